@@ -80,6 +80,10 @@ public class TinyMediaManagerCMD {
   private static Path             exportTemplate  = null;
   private static Path             exportDir       = null;
 
+  // parallel update threads (0 = use the settings)
+  private static int              threadsLocal    = 0;
+  private static int              threadsNetwork  = 0;
+
   /**
    * parse command line params
    * 
@@ -149,6 +153,20 @@ public class TinyMediaManagerCMD {
           System.exit(0);
         }
       }
+      else if (cmd.equalsIgnoreCase("-updateThreads") || cmd.equalsIgnoreCase("-updateThreadsNetwork")) {
+        i++;
+        if (i == args.length || !args[i].matches("[1-9][0-9]*")) {
+          System.out.println("ERROR: " + cmd + " needs a thread count!");
+          printSyntax();
+          System.exit(0);
+        }
+        if (cmd.equalsIgnoreCase("-updateThreads")) {
+          threadsLocal = Integer.parseInt(args[i]);
+        }
+        else {
+          threadsNetwork = Integer.parseInt(args[i]);
+        }
+      }
       // ************
       // ** EXPORT **
       // ************
@@ -216,6 +234,9 @@ public class TinyMediaManagerCMD {
         "\n" +
         "    -rename               rename & cleanup all the movies/TvShows/episodes from former scrape command\n" +
         "    -config file.xml      specify an alternative configuration xml file\n" +
+        "    -updateThreads X      use X parallel threads for updating local datasources\n" +
+        "    -updateThreadsNetwork X\n" +
+        "                          use X parallel threads for updating datasources on network shares\n" +
         "    -export template dir  exports your complete movie/tv library with specified template to dir\n" +
         "    -checkFiles           does a physical check, if all files in DB are existent on filesystem (might take long!)\n" +
         "\n" +
@@ -238,6 +259,10 @@ public class TinyMediaManagerCMD {
       TmmTask task = null;
       boolean updateAvailable = false;
 
+      // only for this run - do not touch the settings
+      MovieUpdateDatasourceTask2.setUpdateThreads(threadsLocal, threadsNetwork);
+      TvShowUpdateDatasourceTask2.setUpdateThreads(threadsLocal, threadsNetwork);
+
       if (scrapeNew || scrapeUnscraped || scrapeAll) {
         // only do an update check when we are scraping online
         // no need for a "forced" check for just updating the datasource
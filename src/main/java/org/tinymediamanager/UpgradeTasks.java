@@ -30,14 +30,17 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
+import org.h2.mvstore.MVMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.CertificationStyle;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.EntityCodec;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Settings;
@@ -640,6 +643,47 @@ public class UpgradeTasks {
     }
   }
 
+  /**
+   * migrates all entries of the given database map to the format of the codec (JSON &lt;-&gt; binary). Entries which cannot be decoded are left
+   * untouched (they will be dropped while loading). The format of the map is stored in the meta map, so the entries are only checked if the
+   * format has been changed<br>
+   * <b>make sure, this upgrade can run multiple times (= needed for nightlies!!!)
+   * 
+   * @param map
+   *          the database map to migrate
+   * @param codec
+   *          the codec with the desired format
+   * @param meta
+   *          the meta map of the database (containing the format of every map)
+   */
+  public static <T> void migrateDatabaseFormat(MVMap<UUID, Object> map, EntityCodec<T> codec, MVMap<String, String> meta) {
+    String format = codec.isBinary() ? "binary" : "json";
+    String formatKey = "format." + map.getName();
+    if (format.equals(meta.get(formatKey))) {
+      return;
+    }
+
+    int migrated = 0;
+    for (UUID uuid : new ArrayList<>(map.keyList())) {
+      Object value = map.get(uuid);
+      if (value == null || codec.isInFormat(value)) {
+        continue;
+      }
+      try {
+        map.put(uuid, codec.encode(codec.decode(value)));
+        migrated++;
+      }
+      catch (Exception e) {
+        LOGGER.warn("could not migrate database entry " + uuid + ": " + e.getMessage());
+      }
+    }
+    meta.put(formatKey, format);
+
+    if (migrated > 0) {
+      LOGGER.info("migrated " + migrated + " entries of " + map.getName() + " to the " + (codec.isBinary() ? "binary" : "JSON") + " format");
+    }
+  }
+
   /**
    * Cleanup; removes all empty IDs from MediaEntities
    * 
@@ -671,6 +715,11 @@ public class UpgradeTasks {
       }
     }
 
+    // the ids have been removed directly from the map
+    if (changed) {
+      me.setDirty();
+    }
+
     return changed;
   }
 
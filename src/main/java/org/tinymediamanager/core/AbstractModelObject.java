@@ -31,7 +31,10 @@ public abstract class AbstractModelObject {
   /** The property change support. */
   // private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
-  private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+  private final PropertyChangeSupport  propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+
+  /** the owner of a nested object (e.g. the movie of a media file); the modifications are reported to the owner */
+  private volatile AbstractModelObject owner                 = null;
 
   /**
    * Adds the property change listener.
@@ -92,6 +95,9 @@ public abstract class AbstractModelObject {
    *          the new value
    */
   protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    if (oldValue == null || newValue == null || !oldValue.equals(newValue)) {
+      propertyModified();
+    }
     try {
       propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
     }
@@ -106,6 +112,32 @@ public abstract class AbstractModelObject {
    *          the evt
    */
   protected void firePropertyChange(PropertyChangeEvent evt) {
+    Object oldValue = evt.getOldValue();
+    Object newValue = evt.getNewValue();
+    if (oldValue == null || newValue == null || !oldValue.equals(newValue)) {
+      propertyModified();
+    }
     propertyChangeSupport.firePropertyChange(evt);
   }
+
+  /**
+   * set the owner of this (nested) object; the modifications of this object will be reported to the owner
+   * 
+   * @param owner
+   *          the owning object
+   */
+  public void setOwner(AbstractModelObject owner) {
+    this.owner = owner;
+  }
+
+  /**
+   * Called (synchronously) whenever a property of this object has been modified; used for the dirty tracking of the persisted entities. Setters
+   * which do not fire a property change should call this directly. Nested objects report the modification to their owner
+   */
+  protected void propertyModified() {
+    AbstractModelObject modelOwner = owner;
+    if (modelOwner != null) {
+      modelOwner.propertyModified();
+    }
+  }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+
+/**
+ * The class DatabaseCompactor. Compacts a MVStore incrementally in the background while tmm is idle (instead of compacting the whole store on
+ * shutdown). Every run rewrites at most a few MB of sparse chunks and moves chunks to the start of the file, so the file can shrink.
+ *
+ * @author Manuel Laggner
+ */
+public class DatabaseCompactor implements Runnable {
+  private static final Logger LOGGER           = LoggerFactory.getLogger(DatabaseCompactor.class);
+
+  private static final int    INTERVAL_SEC     = 60;
+  private static final int    TARGET_FILL_RATE = 80;
+  private static final int    WRITE_LIMIT      = 4 * 1024 * 1024;
+  // only compact on exit if the store is really fragmented; and only a small step
+  private static final int    EXIT_FILL_RATE   = 50;
+  private static final int    EXIT_WRITE_LIMIT = 16 * 1024 * 1024;
+
+  private final String        name;
+  private final MVStore       mvStore;
+
+  private ScheduledFuture<?>  future;
+  private volatile boolean    stopped          = false;
+  private volatile int        fillRate         = 100;
+  private volatile long       fileSize         = 0;
+  private volatile long       compactions      = 0;
+
+  /**
+   * create a new compactor for the given store
+   *
+   * @param name
+   *          the name of the store (for logging)
+   * @param mvStore
+   *          the store to compact
+   */
+  public DatabaseCompactor(String name, MVStore mvStore) {
+    this.name = name;
+    this.mvStore = mvStore;
+  }
+
+  /**
+   * start the periodic compaction in the scheduler of the {@link TmmTaskManager}
+   */
+  public void start() {
+    updateMetrics();
+    LOGGER.debug(name + ": " + getMetrics());
+    future = TmmTaskManager.getInstance().scheduleTask(this, INTERVAL_SEC, INTERVAL_SEC, TimeUnit.SECONDS);
+  }
+
+  /**
+   * stop the periodic compaction (fast exit). A running compaction step will be finished
+   */
+  public void stop() {
+    stopped = true;
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  @Override
+  public void run() {
+    if (stopped || mvStore.isClosed() || !TmmTaskManager.getInstance().isIdle()) {
+      return;
+    }
+
+    try {
+      compact(TARGET_FILL_RATE, WRITE_LIMIT);
+    }
+    catch (Exception e) {
+      LOGGER.warn(name + ": problem compacting the database: " + e.getMessage());
+    }
+  }
+
+  /**
+   * do a single compaction step on exit, but only if the store is heavily fragmented
+   */
+  public void compactOnExit() {
+    stop();
+    if (mvStore.isClosed()) {
+      return;
+    }
+
+    updateMetrics();
+    if (fillRate < EXIT_FILL_RATE) {
+      try {
+        compact(EXIT_FILL_RATE, EXIT_WRITE_LIMIT);
+      }
+      catch (Exception e) {
+        LOGGER.warn(name + ": problem compacting the database: " + e.getMessage());
+      }
+    }
+    LOGGER.info(name + ": " + getMetrics());
+  }
+
+  private void compact(int targetFillRate, int writeLimit) {
+    long start = System.currentTimeMillis();
+
+    // rewrite sparse chunks; this also commits the store
+    boolean rewritten = mvStore.compact(targetFillRate, writeLimit);
+    // and move the chunks to the start of the file, to let the file shrink
+    boolean moved = !stopped && mvStore.compactMoveChunks(targetFillRate, writeLimit);
+
+    if (rewritten || moved) {
+      compactions++;
+      updateMetrics();
+      LOGGER.debug(name + ": compaction step took " + (System.currentTimeMillis() - start) + " ms; " + getMetrics());
+    }
+  }
+
+  private void updateMetrics() {
+    FileStore fileStore = mvStore.getFileStore();
+    if (fileStore != null) {
+      fillRate = fileStore.getFillRate();
+      fileSize = fileStore.size();
+    }
+  }
+
+  /**
+   * get the fill rate of the database file (the percentage of the file being in use)
+   *
+   * @return the fill rate in percent
+   */
+  public int getFillRate() {
+    return fillRate;
+  }
+
+  /**
+   * get the size of the database file
+   *
+   * @return the file size in bytes
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  public long getCompactionCount() {
+    return compactions;
+  }
+
+  /**
+   * get a human readable string of all metrics
+   *
+   * @return the metrics as string
+   */
+  public String getMetrics() {
+    return "fill rate: " + fillRate + "%, file size: " + fileSize / 1024 + " KiB, compaction steps: " + compactions;
+  }
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+
+/**
+ * The class DatasourceMonitor. Watches the data sources for changes and reports the changed folders (the folders in the root of the data source)
+ * to a {@link ChangeListener}. Local data sources are watched with a {@link WatchService}; data sources on network shares (where the
+ * {@link WatchService} does not get any events from other clients) are polled by comparing the modification times of all directories.<br>
+ * The events are debounced: the changes are reported after the data source has been quiet for some seconds, so copying a movie results in a
+ * single update.
+ *
+ * @author Manuel Laggner
+ */
+public class DatasourceMonitor {
+  private static final Logger               LOGGER             = LoggerFactory.getLogger(DatasourceMonitor.class);
+
+  private static final long                 DEBOUNCE_MS        = 10 * 1000;
+  private static final int                  DEBOUNCE_CHECK_SEC = 2;
+  // hidden folders, NAS thumbnail and recycle bin folders
+  private static final List<String>         IGNORED_FOLDERS    = Arrays.asList("@EADIR", "#RECYCLE", "$RECYCLE.BIN", "RECYCLER",
+      "SYSTEM VOLUME INFORMATION");
+
+  private final String                      name;
+  private final Map<Path, String>           datasources;
+  private final int                         pollInterval;
+  private final ChangeListener              listener;
+
+  private final Map<Path, Map<Path, Long>>  pendingChanges     = new HashMap<>();
+  private final Map<WatchKey, Path>         watchKeys          = new ConcurrentHashMap<>();
+  private final Map<Path, PolledDatasource> polledDatasources  = new ConcurrentHashMap<>();
+
+  private volatile WatchService             watchService;
+  private volatile boolean                  stopped            = false;
+  private Thread                            monitorThread;
+  private ScheduledFuture<?>                debounceFuture;
+  // the poll walks can take long on large network shares; they do not block the shared scheduler
+  private volatile ScheduledExecutorService pollExecutor;
+
+  /**
+   * the listener for changes in the data sources
+   */
+  public interface ChangeListener {
+    /**
+     * the given folders of the data source have been changed (added, removed or changed content)
+     *
+     * @param datasource
+     *          the data source
+     * @param folders
+     *          the changed folders in the root of the data source; contains the data source itself, if files in the root of the data source have
+     *          been changed or the whole data source has to be updated
+     */
+    void foldersChanged(String datasource, Set<Path> folders);
+  }
+
+  /**
+   * create a new monitor for the given data sources
+   *
+   * @param name
+   *          the name of the monitor (for logging)
+   * @param datasources
+   *          the data sources to monitor
+   * @param pollInterval
+   *          the poll interval in seconds for data sources which cannot be watched
+   * @param listener
+   *          the listener to report changes to
+   */
+  public DatasourceMonitor(String name, Collection<String> datasources, int pollInterval, ChangeListener listener) {
+    this.name = name;
+    this.datasources = new LinkedHashMap<>();
+    for (String datasource : datasources) {
+      this.datasources.put(Paths.get(datasource).toAbsolutePath(), datasource);
+    }
+    this.pollInterval = Math.max(pollInterval, 10);
+    this.listener = listener;
+  }
+
+  /**
+   * start monitoring. Registering the watches can take a while on large data sources, so this is done in the background
+   */
+  public void start() {
+    monitorThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        registerDatasources();
+        processEvents();
+      }
+    }, "monitor-" + name);
+    monitorThread.setDaemon(true);
+    monitorThread.start();
+
+    debounceFuture = TmmTaskManager.getInstance().scheduleTask(new Runnable() {
+      @Override
+      public void run() {
+        firePendingChanges();
+      }
+    }, DEBOUNCE_CHECK_SEC, DEBOUNCE_CHECK_SEC, TimeUnit.SECONDS);
+  }
+
+  /**
+   * stop monitoring
+   */
+  public void stop() {
+    stopped = true;
+    if (debounceFuture != null) {
+      debounceFuture.cancel(false);
+    }
+    if (pollExecutor != null) {
+      pollExecutor.shutdownNow();
+    }
+    if (watchService != null) {
+      try {
+        watchService.close();
+      }
+      catch (IOException ignored) {
+      }
+    }
+    if (monitorThread != null) {
+      monitorThread.interrupt();
+    }
+  }
+
+  private void registerDatasources() {
+    for (Path datasource : datasources.keySet()) {
+      if (stopped) {
+        return;
+      }
+      if (Files.isDirectory(datasource) && !Utils.isNetworkShare(datasource) && watch(datasource)) {
+        LOGGER.info(name + ": watching " + datasource + " for changes");
+      }
+      else {
+        // network share or not available (yet)
+        polledDatasources.put(datasource, new PolledDatasource(datasource));
+        LOGGER.info(name + ": polling " + datasource + " for changes every " + pollInterval + "s");
+      }
+    }
+
+    if (!polledDatasources.isEmpty() && !stopped) {
+      pollExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "monitor-poll-" + name);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      pollExecutor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          for (PolledDatasource polledDatasource : polledDatasources.values()) {
+            if (stopped) {
+              return;
+            }
+            polledDatasource.poll();
+          }
+        }
+      }, 0, pollInterval, TimeUnit.SECONDS);
+      if (stopped) {
+        // stopped while starting the poller
+        pollExecutor.shutdownNow();
+      }
+    }
+  }
+
+  private static boolean isIgnored(Path path) {
+    if (path.getFileName() == null) {
+      return false;
+    }
+    String filename = path.getFileName().toString();
+    return filename.startsWith(".") || IGNORED_FOLDERS.contains(filename.toUpperCase(Locale.ROOT));
+  }
+
+  /*
+   * WatchService
+   */
+  private boolean watch(Path datasource) {
+    try {
+      if (watchService == null) {
+        watchService = datasource.getFileSystem().newWatchService();
+      }
+      registerTree(datasource);
+      return true;
+    }
+    catch (IOException e) {
+      // e.g. the limit of inotify watches has been reached
+      LOGGER.info(name + ": cannot watch " + datasource + " (" + e.getMessage() + ")");
+      Iterator<Map.Entry<WatchKey, Path>> iterator = watchKeys.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<WatchKey, Path> entry = iterator.next();
+        if (entry.getValue().startsWith(datasource)) {
+          entry.getKey().cancel();
+          iterator.remove();
+        }
+      }
+      return false;
+    }
+  }
+
+  private void registerTree(final Path folder) throws IOException {
+    Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!dir.equals(folder) && isIgnored(dir)) {
+          return SKIP_SUBTREE;
+        }
+        watchKeys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        return CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        return CONTINUE;
+      }
+    });
+  }
+
+  private void processEvents() {
+    while (!stopped && watchService != null && !watchKeys.isEmpty()) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      }
+      catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+
+      Path dir = watchKeys.get(key);
+      if (dir != null) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+          processEvent(dir, event);
+        }
+      }
+      if (!key.reset()) {
+        // directory has been removed
+        watchKeys.remove(key);
+      }
+    }
+  }
+
+  private void processEvent(Path dir, WatchEvent<?> event) {
+    Path datasource = getDatasource(dir);
+    if (datasource == null) {
+      return;
+    }
+    if (event.kind() == OVERFLOW) {
+      // events lost - update the whole data source
+      addPendingChange(datasource, datasource);
+      return;
+    }
+
+    Path child = dir.resolve((Path) event.context());
+    if (isIgnored(child)) {
+      return;
+    }
+
+    boolean isDirectory = Files.isDirectory(child);
+    if (event.kind() == ENTRY_CREATE && isDirectory) {
+      try {
+        registerTree(child);
+      }
+      catch (IOException e) {
+        LOGGER.warn(name + ": cannot watch " + child + " (" + e.getMessage() + ")");
+      }
+    }
+
+    if (dir.equals(datasource)) {
+      // a folder in the root of the data source, or a file in the root
+      if (isDirectory || watchKeys.containsValue(child)) {
+        addPendingChange(datasource, child);
+      }
+      else {
+        addPendingChange(datasource, datasource);
+      }
+    }
+    else {
+      addPendingChange(datasource, getRootFolder(datasource, dir));
+    }
+  }
+
+  private Path getDatasource(Path dir) {
+    for (Path datasource : datasources.keySet()) {
+      if (dir.startsWith(datasource)) {
+        return datasource;
+      }
+    }
+    return null;
+  }
+
+  private static Path getRootFolder(Path datasource, Path path) {
+    return datasource.resolve(datasource.relativize(path).getName(0));
+  }
+
+  /*
+   * debouncing
+   */
+  private synchronized void addPendingChange(Path datasource, Path folder) {
+    Map<Path, Long> folders = pendingChanges.get(datasource);
+    if (folders == null) {
+      folders = new HashMap<>();
+      pendingChanges.put(datasource, folders);
+    }
+    folders.put(folder, System.currentTimeMillis());
+  }
+
+  private void firePendingChanges() {
+    Map<Path, Set<Path>> changes = new HashMap<>();
+    synchronized (this) {
+      long quietSince = System.currentTimeMillis() - DEBOUNCE_MS;
+      for (Map.Entry<Path, Map<Path, Long>> entry : pendingChanges.entrySet()) {
+        // wait until the whole data source is quiet (e.g. a movie is being copied)
+        if (Collections.max(entry.getValue().values()) > quietSince) {
+          continue;
+        }
+        changes.put(entry.getKey(), new HashSet<>(entry.getValue().keySet()));
+      }
+      pendingChanges.keySet().removeAll(changes.keySet());
+    }
+
+    for (Map.Entry<Path, Set<Path>> entry : changes.entrySet()) {
+      if (stopped) {
+        return;
+      }
+      LOGGER.info(name + ": " + entry.getValue().size() + " changed folder(s) in " + entry.getKey());
+      try {
+        listener.foldersChanged(datasources.get(entry.getKey()), entry.getValue());
+      }
+      catch (Exception e) {
+        LOGGER.error(name + ": could not process changes in " + entry.getKey() + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /*
+   * polling
+   */
+  private static long getLastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    }
+    catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static Set<Path> listEntries(Path folder) {
+    Set<Path> entries = new HashSet<>();
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folder)) {
+      for (Path path : directoryStream) {
+        if (!isIgnored(path)) {
+          entries.add(path.toAbsolutePath());
+        }
+      }
+    }
+    catch (IOException ignored) {
+    }
+    return entries;
+  }
+
+  /**
+   * a data source which is polled: the modification times of all directories are compared with the ones of the last poll (only a single stat per
+   * directory is needed). Modified files (with the same name) are not detected
+   */
+  private class PolledDatasource {
+    private final Path      datasource;
+    private Map<Path, Long> directories;
+    private Set<Path>       rootEntries;
+
+    private PolledDatasource(Path datasource) {
+      this.datasource = datasource;
+    }
+
+    private void poll() {
+      Set<Path> entries = listEntries(datasource);
+      if (entries.isEmpty()) {
+        // offline (e.g. an unmounted network share) - do not report all folders as removed
+        return;
+      }
+
+      if (directories == null) {
+        // first poll: take the snapshot
+        directories = new HashMap<>();
+        rootEntries = entries;
+        addTree(datasource);
+        return;
+      }
+
+      for (Map.Entry<Path, Long> entry : new ArrayList<>(directories.entrySet())) {
+        if (stopped) {
+          return;
+        }
+        Path dir = entry.getKey();
+        if (!directories.containsKey(dir) || getLastModified(dir) == entry.getValue()) {
+          // removed in the meantime or unchanged
+          continue;
+        }
+
+        if (dir.equals(datasource)) {
+          pollRoot(entries);
+        }
+        else {
+          addPendingChange(datasource, getRootFolder(datasource, dir));
+          removeTree(dir);
+          if (Files.isDirectory(dir)) {
+            addTree(dir);
+          }
+        }
+      }
+    }
+
+    private void pollRoot(Set<Path> entries) {
+      directories.put(datasource, getLastModified(datasource));
+
+      // new entries
+      for (Path entry : entries) {
+        if (rootEntries.contains(entry)) {
+          continue;
+        }
+        if (Files.isDirectory(entry)) {
+          addPendingChange(datasource, entry);
+          addTree(entry);
+        }
+        else {
+          addPendingChange(datasource, datasource);
+        }
+      }
+
+      // removed entries
+      for (Path entry : rootEntries) {
+        if (entries.contains(entry)) {
+          continue;
+        }
+        if (directories.containsKey(entry)) {
+          addPendingChange(datasource, entry);
+          removeTree(entry);
+        }
+        else {
+          addPendingChange(datasource, datasource);
+        }
+      }
+
+      rootEntries = entries;
+    }
+
+    private void addTree(final Path folder) {
+      try {
+        Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!dir.equals(folder) && isIgnored(dir)) {
+              return SKIP_SUBTREE;
+            }
+            directories.put(dir.toAbsolutePath(), attrs.lastModifiedTime().toMillis());
+            return CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            return CONTINUE;
+          }
+        });
+      }
+      catch (IOException e) {
+        LOGGER.warn(name + ": cannot read " + folder + " (" + e.getMessage() + ")");
+      }
+    }
+
+    private void removeTree(Path folder) {
+      Iterator<Path> iterator = directories.keySet().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().startsWith(folder)) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The class DirectoryFingerprint. A cheap fingerprint of a single directory: the modification time of the directory, the count of its entries and
+ * the sum of the sizes of all files in it (not recursive). If any entry is added, removed, renamed or a file changes its size, the fingerprint
+ * changes.
+ *
+ * @author Manuel Laggner
+ */
+public class DirectoryFingerprint {
+  /** marker for directories where the entries have not been counted (skipped directories) */
+  public static final int NOT_COUNTED = -1;
+
+  private final long      lastModified;
+  private int             entryCount;
+  private long            sizeSum;
+
+  /**
+   * create a new fingerprint for a directory with the given modification time; the entries are added while the directory is being walked
+   *
+   * @param lastModified
+   *          the modification time of the directory in ms
+   */
+  public DirectoryFingerprint(long lastModified) {
+    this(lastModified, 0, 0);
+  }
+
+  public DirectoryFingerprint(long lastModified, int entryCount, long sizeSum) {
+    this.lastModified = lastModified;
+    this.entryCount = entryCount;
+    this.sizeSum = sizeSum;
+  }
+
+  /**
+   * create the fingerprint of the given directory by listing it
+   *
+   * @param directory
+   *          the directory to create the fingerprint for
+   * @return the fingerprint
+   * @throws IOException
+   *           the directory could not be read
+   */
+  public static DirectoryFingerprint of(Path directory) throws IOException {
+    BasicFileAttributes dirAttributes = Files.readAttributes(directory, BasicFileAttributes.class);
+    DirectoryFingerprint fingerprint = new DirectoryFingerprint(dirAttributes.lastModifiedTime().toMillis());
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+      for (Path path : directoryStream) {
+        try {
+          fingerprint.addEntry(Files.readAttributes(path, BasicFileAttributes.class));
+        }
+        catch (IOException e) {
+          // e.g. a broken link; count it anyway
+          fingerprint.addEntry(null);
+        }
+      }
+    }
+    return fingerprint;
+  }
+
+  /**
+   * create the fingerprint of a directory from its listing
+   *
+   * @param dirAttributes
+   *          the attributes of the directory (read before listing it)
+   * @param listing
+   *          the listing of the directory
+   * @return the fingerprint
+   */
+  public static DirectoryFingerprint of(BasicFileAttributes dirAttributes, DirectoryListing listing) {
+    DirectoryFingerprint fingerprint = new DirectoryFingerprint(dirAttributes.lastModifiedTime().toMillis());
+    for (BasicFileAttributes attributes : listing.getEntries().values()) {
+      fingerprint.addEntry(attributes);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * add an entry of the directory
+   *
+   * @param attributes
+   *          the attributes of the entry (or null if they could not be read)
+   */
+  public void addEntry(BasicFileAttributes attributes) {
+    entryCount++;
+    if (attributes != null && !attributes.isDirectory()) {
+      sizeSum += attributes.size();
+    }
+  }
+
+  /**
+   * mark this fingerprint as not counted (the directory has been skipped while walking)
+   */
+  public void setNotCounted() {
+    entryCount = NOT_COUNTED;
+    sizeSum = 0;
+  }
+
+  public boolean isCounted() {
+    return entryCount != NOT_COUNTED;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  public long getSizeSum() {
+    return sizeSum;
+  }
+
+  /**
+   * parse a fingerprint from its string representation
+   *
+   * @param value
+   *          the string representation (created by {@link #toString()})
+   * @return the fingerprint or null if the value could not be parsed
+   */
+  public static DirectoryFingerprint parse(String value) {
+    String[] parts = StringUtils.split(value, ';');
+    if (parts == null || parts.length != 3) {
+      return null;
+    }
+    try {
+      return new DirectoryFingerprint(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return lastModified + ";" + entryCount + ";" + sizeSum;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof DirectoryFingerprint)) {
+      return false;
+    }
+    DirectoryFingerprint other = (DirectoryFingerprint) obj;
+    return lastModified == other.lastModified && entryCount == other.entryCount && sizeSum == other.sizeSum;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (lastModified ^ (lastModified >>> 32)) * 31 * 31 + entryCount * 31 + (int) (sizeSum ^ (sizeSum >>> 32));
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class DirectoryFingerprintStore. Persists the {@link DirectoryFingerprint}s of all directories found in the last update of a data source.
+ * With these fingerprints an unchanged folder (including all its sub folders) can be detected without walking and parsing it again:<br>
+ * the fingerprints of the folder and all its sub folders are compared completely (modification time, entry count and size sum). Only the sub
+ * folders which have been skipped by the walk are compared by their modification time.<br>
+ * The listings for the comparison are taken from a {@link ListingProvider}, so an update task can reuse them for walking a changed folder.
+ *
+ * @author Manuel Laggner
+ */
+public class DirectoryFingerprintStore {
+  private static final Logger         LOGGER = LoggerFactory.getLogger(DirectoryFingerprintStore.class);
+
+  private final MVMap<String, String> map;
+
+  /**
+   * create a new store on top of the given map
+   *
+   * @param map
+   *          the map to persist the fingerprints in (path -&gt; fingerprint)
+   */
+  public DirectoryFingerprintStore(MVMap<String, String> map) {
+    this.map = map;
+  }
+
+  /**
+   * check if the given folder and all its sub folders are unchanged since the fingerprints have been stored
+   *
+   * @param folder
+   *          the folder to check
+   * @return true if nothing has been changed; false if there is no (complete) fingerprint or anything has been changed
+   */
+  public boolean isUnchanged(Path folder) {
+    // every folder is listed once
+    final Map<Path, DirectoryListing> listings = new HashMap<>();
+    ListingProvider provider = new ListingProvider() {
+      @Override
+      public DirectoryListing getListing(Path directory) throws IOException {
+        directory = directory.toAbsolutePath();
+        DirectoryListing listing = listings.get(directory);
+        if (listing == null) {
+          listing = DirectoryListing.list(directory, null);
+          listings.put(directory, listing);
+        }
+        return listing;
+      }
+    };
+
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(folder, BasicFileAttributes.class);
+      return isUnchanged(folder, DirectoryFingerprint.of(attributes, provider.getListing(folder)), provider);
+    }
+    catch (IOException e) {
+      // folder is not accessible (anymore)
+      return false;
+    }
+  }
+
+  /**
+   * check if the given folder and all its sub folders are unchanged since the fingerprints have been stored
+   *
+   * @param folder
+   *          the folder to check
+   * @param current
+   *          the current fingerprint of the folder (e.g. from an existing listing)
+   * @param provider
+   *          the provider of the listings of the sub folders
+   * @return true if nothing has been changed; false if there is no (complete) fingerprint or anything has been changed
+   */
+  public boolean isUnchanged(Path folder, DirectoryFingerprint current, ListingProvider provider) {
+    String key = toKey(folder);
+    DirectoryFingerprint stored = DirectoryFingerprint.parse(map.get(key));
+    if (stored == null || !stored.isCounted()) {
+      return false;
+    }
+
+    try {
+      if (!stored.equals(current)) {
+        return false;
+      }
+
+      // sub folders: the modification time of a folder does not change on every file system if a file in it changes
+      for (String subKey : getSubKeys(key)) {
+        DirectoryFingerprint subFingerprint = DirectoryFingerprint.parse(map.get(subKey));
+        if (subFingerprint == null) {
+          return false;
+        }
+        // the attributes of a sub folder are taken from the listing of its parent
+        Path subFolder = folder.getFileSystem().getPath(subKey);
+        BasicFileAttributes attributes = subFolder.getParent() != null ? provider.getListing(subFolder.getParent()).getAttributes(subFolder) : null;
+        if (attributes == null || !attributes.isDirectory()) {
+          return false;
+        }
+        if (subFingerprint.isCounted()) {
+          if (!subFingerprint.equals(DirectoryFingerprint.of(attributes, provider.getListing(subFolder)))) {
+            return false;
+          }
+        }
+        else if (subFingerprint.getLastModified() != attributes.lastModifiedTime().toMillis()) {
+          return false;
+        }
+      }
+    }
+    catch (IOException e) {
+      // folder or a sub folder is not accessible (anymore)
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * replace all stored fingerprints of the given folder (and its sub folders) with the new ones
+   *
+   * @param folder
+   *          the walked folder
+   * @param fingerprints
+   *          the fingerprints of the folder and all its sub folders
+   */
+  public void replace(Path folder, Map<Path, DirectoryFingerprint> fingerprints) {
+    remove(folder);
+    for (Map.Entry<Path, DirectoryFingerprint> entry : fingerprints.entrySet()) {
+      map.put(toKey(entry.getKey()), entry.getValue().toString());
+    }
+  }
+
+  /**
+   * remove the stored fingerprints of the given folder and all its sub folders
+   *
+   * @param folder
+   *          the folder to remove the fingerprints for
+   */
+  public void remove(Path folder) {
+    String key = toKey(folder);
+    map.remove(key);
+    for (String subKey : getSubKeys(key)) {
+      map.remove(subKey);
+    }
+  }
+
+  /**
+   * invalidate the fingerprints of the given folder (and its sub folders) and of all its parents; all these folders will be walked on the next
+   * update again (e.g. if a movie in this folder has been removed from the database)
+   *
+   * @param folder
+   *          the folder to invalidate
+   */
+  public void invalidate(Path folder) {
+    remove(folder);
+    for (Path parent = MediaEntityIndex.normalize(folder).getParent(); parent != null; parent = parent.getParent()) {
+      map.remove(parent.toString());
+    }
+  }
+
+  /**
+   * remove the fingerprints of all folders in the data source which are not in the given root folders (anymore)
+   *
+   * @param datasource
+   *          the data source
+   * @param rootFolders
+   *          the existing folders in the root of the data source
+   */
+  public void retain(Path datasource, Collection<Path> rootFolders) {
+    Set<String> rootKeys = new HashSet<>();
+    for (Path rootFolder : rootFolders) {
+      rootKeys.add(toKey(rootFolder));
+    }
+
+    String prefix = toPrefix(toKey(datasource));
+    int removed = 0;
+    for (String key : getSubKeys(toKey(datasource))) {
+      int index = key.indexOf(File.separator, prefix.length());
+      String rootKey = index < 0 ? key : key.substring(0, index);
+      if (!rootKeys.contains(rootKey)) {
+        map.remove(key);
+        removed++;
+      }
+    }
+    if (removed > 0) {
+      LOGGER.debug("removed " + removed + " outdated directory fingerprints of " + datasource);
+    }
+  }
+
+  /**
+   * commit the changes to the underlying store
+   */
+  public void commit() {
+    map.getStore().commit();
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * provides the listings of the folders to compare (e.g. the cached listings of an update task)
+   */
+  public interface ListingProvider {
+    /**
+     * get the listing of the given folder
+     *
+     * @param folder
+     *          the folder
+     * @return the listing
+     * @throws IOException
+     *           the folder could not be listed
+     */
+    DirectoryListing getListing(Path folder) throws IOException;
+  }
+
+  private List<String> getSubKeys(String key) {
+    List<String> subKeys = new ArrayList<>();
+    String prefix = toPrefix(key);
+    Iterator<String> iterator = map.keyIterator(prefix);
+    while (iterator.hasNext()) {
+      String subKey = iterator.next();
+      if (!subKey.startsWith(prefix)) {
+        break;
+      }
+      subKeys.add(subKey);
+    }
+    return subKeys;
+  }
+
+  private static String toPrefix(String key) {
+    // the root of a drive already ends with a separator
+    return key.endsWith(File.separator) ? key : key + File.separator;
+  }
+
+  private static String toKey(Path path) {
+    return MediaEntityIndex.normalize(path).toString();
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class DirectoryListing. A snapshot of a single directory (not recursive): all entries together with the attributes read while listing. The
+ * scanners list every directory once and take everything else (file type, size, modification time, ignore markers) from the listing.
+ *
+ * @author Manuel Laggner
+ */
+public class DirectoryListing {
+  /** files which mark a directory (and all its sub directories) to be ignored by tmm */
+  public static final List<String>             IGNORE_MARKERS = Arrays.asList(".tmmignore", "tmmignore", ".nomedia");
+
+  private final Path                           directory;
+  private final Map<Path, BasicFileAttributes> entries        = new LinkedHashMap<>();
+  private boolean                              ignoreMarker   = false;
+
+  private DirectoryListing(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * list the given directory; the attributes of every entry are read once (following links)
+   *
+   * @param directory
+   *          the directory to list
+   * @param fsCalls
+   *          a counter for the issued file system calls (one for the listing and one per entry); may be null
+   * @return the listing of the directory
+   * @throws IOException
+   *           the directory could not be read
+   */
+  public static DirectoryListing list(Path directory, AtomicLong fsCalls) throws IOException {
+    DirectoryListing listing = new DirectoryListing(directory.toAbsolutePath());
+    count(fsCalls);
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(listing.directory)) {
+      for (Path path : directoryStream) {
+        if (IGNORE_MARKERS.contains(path.getFileName().toString())) {
+          listing.ignoreMarker = true;
+        }
+        BasicFileAttributes attributes = null;
+        try {
+          count(fsCalls);
+          attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        }
+        catch (IOException e) {
+          // e.g. a broken link; keep the entry without attributes
+        }
+        listing.entries.put(path.toAbsolutePath(), attributes);
+      }
+    }
+    return listing;
+  }
+
+  private static void count(AtomicLong fsCalls) {
+    if (fsCalls != null) {
+      fsCalls.incrementAndGet();
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * does the directory contain one of the {@link #IGNORE_MARKERS}?
+   *
+   * @return true if the directory should be ignored
+   */
+  public boolean hasIgnoreMarker() {
+    return ignoreMarker;
+  }
+
+  /**
+   * get all entries of the directory with their attributes (the attributes are null if they could not be read)
+   *
+   * @return all entries in listing order
+   */
+  public Map<Path, BasicFileAttributes> getEntries() {
+    return Collections.unmodifiableMap(entries);
+  }
+
+  /**
+   * get the attributes of the given entry
+   *
+   * @param path
+   *          the entry (absolute path)
+   * @return the attributes or null if the entry is not in this listing or the attributes could not be read
+   */
+  public BasicFileAttributes getAttributes(Path path) {
+    return entries.get(path);
+  }
+
+  /**
+   * get all regular files (see {@link Utils#isRegularFile(BasicFileAttributes)}) of the directory
+   *
+   * @return all files in listing order
+   */
+  public List<Path> getFiles() {
+    List<Path> files = new ArrayList<>();
+    for (Map.Entry<Path, BasicFileAttributes> entry : entries.entrySet()) {
+      if (entry.getValue() != null && Utils.isRegularFile(entry.getValue())) {
+        files.add(entry.getKey());
+      }
+    }
+    return files;
+  }
+
+  /**
+   * get all sub directories of the directory
+   *
+   * @return all sub directories in listing order
+   */
+  public List<Path> getDirectories() {
+    List<Path> dirs = new ArrayList<>();
+    for (Map.Entry<Path, BasicFileAttributes> entry : entries.entrySet()) {
+      if (entry.getValue() != null && entry.getValue().isDirectory()) {
+        dirs.add(entry.getKey());
+      }
+    }
+    return dirs;
+  }
+}
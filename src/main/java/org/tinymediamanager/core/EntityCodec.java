@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The class EntityCodec. Used to encode/decode entities for the MVStore. Entities can be stored either as JSON string (default) or in the compact
+ * binary Smile format (byte array). Decoding works for both formats, so a database may contain both while it is being migrated.
+ *
+ * @author Manuel Laggner
+ */
+public class EntityCodec<T> {
+  private final Class<T>     type;
+  private final boolean      binary;
+
+  private final ObjectReader jsonReader;
+  private final ObjectWriter jsonWriter;
+  private final ObjectReader binaryReader;
+  private final ObjectWriter binaryWriter;
+
+  /**
+   * create a new codec for the given type
+   *
+   * @param type
+   *          the entity class
+   * @param binary
+   *          write the entities in the binary format
+   */
+  public EntityCodec(Class<T> type, boolean binary) {
+    this.type = type;
+    this.binary = binary;
+
+    ObjectMapper jsonMapper = createObjectMapper(null);
+    ObjectMapper binaryMapper = createObjectMapper(new SmileFactory());
+
+    this.jsonReader = jsonMapper.readerFor(type);
+    this.jsonWriter = jsonMapper.writerFor(type);
+    this.binaryReader = binaryMapper.readerFor(type);
+    this.binaryWriter = binaryMapper.writerFor(type);
+  }
+
+  /**
+   * create an object mapper with the configuration we use for the database
+   *
+   * @param jsonFactory
+   *          the factory to use (or null for the default JSON factory)
+   * @return the configured object mapper
+   */
+  public static ObjectMapper createObjectMapper(JsonFactory jsonFactory) {
+    ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+    objectMapper.configure(MapperFeature.AUTO_DETECT_GETTERS, false);
+    objectMapper.configure(MapperFeature.AUTO_DETECT_IS_GETTERS, false);
+    objectMapper.configure(MapperFeature.AUTO_DETECT_SETTERS, false);
+    objectMapper.configure(MapperFeature.AUTO_DETECT_FIELDS, false);
+    objectMapper.setTimeZone(TimeZone.getDefault());
+    objectMapper.setSerializationInclusion(Include.NON_DEFAULT);
+    objectMapper.setSerializerProvider(new CustomNullStringSerializerProvider());
+    objectMapper.getSerializerProvider().setNullKeySerializer(new NullKeySerializer());
+    return objectMapper;
+  }
+
+  public Class<T> getType() {
+    return type;
+  }
+
+  public boolean isBinary() {
+    return binary;
+  }
+
+  /**
+   * encode the given entity in the configured format
+   *
+   * @param entity
+   *          the entity to encode
+   * @return a String (JSON) or a byte array (binary)
+   * @throws IOException
+   *           any exception occurred while encoding
+   */
+  public Object encode(T entity) throws IOException {
+    if (binary) {
+      return binaryWriter.writeValueAsBytes(entity);
+    }
+    return jsonWriter.writeValueAsString(entity);
+  }
+
+  /**
+   * decode the given value; the format is detected from the value type
+   *
+   * @param value
+   *          the value from the database
+   * @return the decoded entity
+   * @throws IOException
+   *           any exception occurred while decoding
+   */
+  public T decode(Object value) throws IOException {
+    if (value instanceof byte[]) {
+      return binaryReader.readValue((byte[]) value);
+    }
+    if (value instanceof String) {
+      return jsonReader.readValue((String) value);
+    }
+    throw new IOException("unknown value type: " + (value == null ? "null" : value.getClass().getName()));
+  }
+
+  /**
+   * checks whether the given value is already stored in the configured format
+   *
+   * @param value
+   *          the value from the database
+   * @return true if the value does not need to be migrated
+   */
+  public boolean isInFormat(Object value) {
+    return binary ? value instanceof byte[] : value instanceof String;
+  }
+
+  /**
+   * compare two encoded values
+   *
+   * @param value1
+   *          the first value
+   * @param value2
+   *          the second value
+   * @return true if both values are equal
+   */
+  public boolean isEqual(Object value1, Object value2) {
+    if (value1 instanceof byte[] && value2 instanceof byte[]) {
+      return Arrays.equals((byte[]) value1, (byte[]) value2);
+    }
+    return value1 != null && value1.equals(value2);
+  }
+
+  /**
+   * encode the given entity as JSON (for dumping/logging)
+   *
+   * @param entity
+   *          the entity to encode
+   * @return the JSON string
+   * @throws IOException
+   *           any exception occurred while encoding
+   */
+  public String toJson(T entity) throws IOException {
+    return jsonWriter.writeValueAsString(entity);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaEntity;
+
+/**
+ * The class EntityDetailCache. Used for huge libraries: only a summary of every entity (title, year, ids, flags, media files) is kept in memory,
+ * while the details (plot, cast, ...) are released after loading. The details are re-loaded from the MVStore on first access and kept in a bounded
+ * LRU cache; the least recently used entities release their details again.<br>
+ * Entities with unsaved changes or which are being read (pinned) never release their details.
+ *
+ * @author Manuel Laggner
+ */
+public class EntityDetailCache<T extends MediaEntity> {
+  private static final Logger       LOGGER    = LoggerFactory.getLogger(EntityDetailCache.class);
+
+  private final MVMap<UUID, Object> map;
+  private final EntityCodec<T>      codec;
+  private final int                 maxSize;
+  private final Map<UUID, T>        loaded;
+
+  private long                      loads     = 0;
+  private long                      evictions = 0;
+
+  /**
+   * create a new detail cache
+   *
+   * @param map
+   *          the map to load the details from
+   * @param codec
+   *          the codec for the entities
+   * @param maxSize
+   *          the max count of entities which hold their details in memory
+   */
+  public EntityDetailCache(MVMap<UUID, Object> map, EntityCodec<T> codec, int maxSize) {
+    this.map = map;
+    this.codec = codec;
+    this.maxSize = maxSize;
+    this.loaded = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * release the details of all given entities. Must only be called right after loading, when the details in memory are equal to the ones in the
+   * database
+   *
+   * @param entities
+   *          the entities to release the details from
+   */
+  public synchronized void releaseAll(Collection<? extends T> entities) {
+    for (T entity : entities) {
+      entity.releaseDetails(this);
+    }
+  }
+
+  /**
+   * load the details of the given entity from the database. Called by {@link MediaEntity#loadDetails()}
+   *
+   * @param entity
+   *          the entity to load the details for
+   */
+  public synchronized void loadDetails(MediaEntity entity) {
+    @SuppressWarnings("unchecked")
+    T typedEntity = (T) entity;
+    if (entity.isDetailsLoaded()) {
+      // already loaded (or another thread was faster): just mark it as recently used
+      if (loaded.get(entity.getDbId()) == null) {
+        // not tracked, since it was modified or pinned when it was the eldest one
+        track(typedEntity);
+      }
+      return;
+    }
+    try {
+      Object value = map.get(entity.getDbId());
+      if (value != null) {
+        T source = codec.decode(value);
+        entity.takeDetails(source);
+        loads++;
+      }
+      else {
+        // not in the database (anymore) - nothing to load
+        entity.takeDetails(entity);
+      }
+    }
+    catch (Exception e) {
+      LOGGER.warn("could not load details of " + entity.getTitle() + ": " + e.getMessage());
+      entity.takeDetails(entity);
+    }
+
+    track(typedEntity);
+  }
+
+  /**
+   * encode the given entity with all its details. The entity cannot release its details while it is being encoded
+   *
+   * @param entity
+   *          the entity to encode
+   * @return the encoded entity
+   * @throws Exception
+   *           any exception occurred while encoding
+   */
+  public synchronized Object encode(T entity) throws Exception {
+    entity.loadDetails();
+    Object value = codec.encode(entity);
+    track(entity);
+    return value;
+  }
+
+  /**
+   * remove the given entity from the cache (e.g. if it is deleted)
+   *
+   * @param entity
+   *          the entity to remove
+   */
+  public synchronized void remove(T entity) {
+    entity.loadDetails();
+    loaded.remove(entity.getDbId());
+  }
+
+  /**
+   * get the count of entities which hold their details in memory (and are tracked by the LRU)
+   *
+   * @return the count of loaded entities
+   */
+  public synchronized int getLoadedCount() {
+    return loaded.size();
+  }
+
+  /**
+   * get a human readable string of the cache statistics
+   *
+   * @return the statistics as string
+   */
+  public synchronized String getStatistics() {
+    return "loaded: " + loaded.size() + "/" + maxSize + ", loads from db: " + loads + ", evictions: " + evictions;
+  }
+
+  private void track(T entity) {
+    entity.setDetailCache(this);
+    loaded.put(entity.getDbId(), entity);
+    if (loaded.size() <= maxSize) {
+      return;
+    }
+
+    // release the least recently used entities
+    Iterator<T> iterator = loaded.values().iterator();
+    while (loaded.size() > maxSize && iterator.hasNext()) {
+      T eldest = iterator.next();
+      if (eldest == entity) {
+        continue;
+      }
+      iterator.remove();
+      // modifications mark the entity dirty and readers pin it before they touch the details (and take this lock afterwards)
+      if (!eldest.isDirty() && !eldest.isDetailsPinned()) {
+        eldest.releaseDetails(this);
+        evictions++;
+      }
+      // else: unsaved changes or being read - it will be tracked again on the next access
+    }
+  }
+}
@@ -19,33 +19,38 @@ import java.awt.Image;
 import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
-import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
-import javax.imageio.ImageWriteParam;
-import javax.imageio.ImageWriter;
-import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.imgscalr.Scalr;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.ImageCacheEncoder.TransparentFormat;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.scraper.http.Url;
@@ -58,8 +63,13 @@ import org.tinymediamanager.thirdparty.ImageLoader;
  * @author Manuel Laggner
  */
 public class ImageCache {
-  private static final Logger LOGGER    = LoggerFactory.getLogger(ImageCache.class);
-  private static final Path   CACHE_DIR = Paths.get("cache/image");
+  private static final Logger    LOGGER        = LoggerFactory.getLogger(ImageCache.class);
+  private static final Path      CACHE_DIR     = Paths.get("cache/image");
+  // the memory for decoding originals in KB (a quarter of the heap); the parallel decoding of big images waits for free memory
+  private static final int       DECODE_BUDGET = (int) Math.max(Runtime.getRuntime().maxMemory() / 4 / 1024, 64 * 1024);
+  private static final Semaphore DECODE_MEMORY = new Semaphore(DECODE_BUDGET);
+  // the count of bytes of the original which are hashed for the cache key
+  private static final int       KEY_HASH_SIZE = 16 * 1024;
 
   public enum CacheType {
     FAST,
@@ -83,6 +93,33 @@ public class ImageCache {
     return CACHE_DIR;
   }
 
+  /**
+   * Gets the file in the image cache for the given file name; the files are spread over subdirectories (see {@link ImageCacheIndex})
+   * 
+   * @param fileName
+   *          the file name (MD5 hash and extension)
+   * @return the cached file (which does not need to exist)
+   */
+  public static Path getCacheFile(String fileName) {
+    return ImageCacheIndex.getInstance().getFile(fileName);
+  }
+
+  /**
+   * delete all cached images
+   */
+  public static void clearCache() {
+    Path cache = getCacheDir();
+    if (Files.exists(cache)) {
+      try {
+        Utils.deleteDirectoryRecursive(cache);
+      }
+      catch (Exception e) {
+        LOGGER.warn(e.getMessage());
+      }
+    }
+    ImageCacheIndex.getInstance().clear();
+  }
+
   /**
    * Gets the file name (MD5 hash) of the cached file.
    * 
@@ -106,6 +143,125 @@ public class ImageCache {
     }
   }
 
+  /**
+   * Gets the cache key of a local image: a hash of its size, its modification time and its first bytes. The key does not depend on the path, so
+   * renaming or moving the image (or its folder) keeps the cached image. The keys are stored in the {@link ImageCacheIndex}, so the content of an
+   * unchanged image is read only once
+   * 
+   * @param file
+   *          the image file
+   * @return the cache key or null if the image has never been available
+   */
+  public static String getCacheKey(Path file) {
+    String path = file.toAbsolutePath().toString();
+    ImageCacheIndex index = ImageCacheIndex.getInstance();
+
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    }
+    catch (IOException e) {
+      // the image is not available (e.g. an offline share) - use the key from the last access
+      return index.getKey(path);
+    }
+
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    String key = index.getKey(path, size, lastModified);
+    if (key == null) {
+      key = createCacheKey(file, size, lastModified);
+      if (key != null) {
+        index.putKey(path, size, lastModified, key);
+      }
+    }
+    return key;
+  }
+
+  static String createCacheKey(Path file, long size, long lastModified) {
+    try (InputStream is = Files.newInputStream(file)) {
+      MessageDigest digest = DigestUtils.getMd5Digest();
+      digest.update((size + ";" + lastModified + ";").getBytes(StandardCharsets.UTF_8));
+      byte[] buffer = new byte[KEY_HASH_SIZE];
+      int read = IOUtils.read(is, buffer);
+      digest.update(buffer, 0, read);
+      return new String(Hex.encodeHex(digest.digest()));
+    }
+    catch (IOException e) {
+      LOGGER.trace("could not read " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * get the cached file of a local image (by its cache key); an image which has been cached by an older version (by the path of the image) is moved
+   * to its new name
+   */
+  private static Path getCachedFileOfOriginal(Path originalFile) {
+    String extension = Utils.getExtension(originalFile);
+    Path legacyFile = getCacheFile(getMD5(originalFile.toAbsolutePath().toString()) + "." + extension);
+    String key = getCacheKey(originalFile);
+    if (key == null) {
+      return legacyFile;
+    }
+
+    Path cachedFile = getCacheFile(key + "." + extension);
+    if (!Files.exists(cachedFile) && Files.exists(legacyFile) && !isOutdated(legacyFile, originalFile)) {
+      try {
+        Files.createDirectories(cachedFile.getParent());
+        Files.move(legacyFile, cachedFile);
+        ImageCacheIndex.getInstance().removed(legacyFile);
+        ImageCacheIndex.getInstance().added(cachedFile);
+      }
+      catch (IOException e) {
+        LOGGER.debug("could not rename cached file " + legacyFile + ": " + e.getMessage());
+      }
+    }
+    return cachedFile;
+  }
+
+  /**
+   * forget the cache key of an image which does not exist anymore under the given path (e.g. it has been renamed or moved)
+   * 
+   * @param file
+   *          the old path of the image
+   */
+  public static void removeCacheKey(Path file) {
+    ImageCacheIndex.getInstance().removeKey(file.toAbsolutePath().toString());
+  }
+
+  /**
+   * take over the cached image of a renamed/copied image if the cache key has changed (e.g. the modification time has not been kept)
+   * 
+   * @param oldKey
+   *          the cache key of the image before renaming (see {@link #getCacheKey(Path)})
+   * @param newFile
+   *          the renamed image
+   */
+  public static void remapCachedImage(String oldKey, Path newFile) {
+    if (oldKey == null) {
+      return;
+    }
+    String newKey = getCacheKey(newFile);
+    if (newKey == null || newKey.equals(oldKey)) {
+      return;
+    }
+
+    String extension = Utils.getExtension(newFile);
+    Path oldCachedFile = getCacheFile(oldKey + "." + extension);
+    Path newCachedFile = getCacheFile(newKey + "." + extension);
+    if (Files.exists(oldCachedFile) && !Files.exists(newCachedFile)) {
+      try {
+        // copy - an image may be renamed to several new names
+        Files.createDirectories(newCachedFile.getParent());
+        Files.copy(oldCachedFile, newCachedFile);
+        ImageCacheIndex.getInstance().added(newCachedFile);
+      }
+      catch (IOException e) {
+        LOGGER.debug("could not remap cached file " + oldCachedFile + ": " + e.getMessage());
+      }
+    }
+  }
+
   /**
    * Scale image to fit in the given width.
    * 
@@ -123,7 +279,7 @@ public class ImageCache {
 
     BufferedImage originalImage = null;
     try {
-      originalImage = createImage(url.getBytes());
+      originalImage = createImage(url.getBytes(), width);
     }
     catch (Exception e) {
       throw new IOException(e.getMessage());
@@ -137,43 +293,15 @@ public class ImageCache {
     BufferedImage scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.x, size.y, Scalr.OP_ANTIALIAS);
     originalImage = null;
 
-    ImageWriter imgWrtr = null;
-    ImageWriteParam imgWrtrPrm = null;
-
-    // here we have two different ways to create our thumb
-    // a) a scaled down jpg/png (without transparency) which we have to modify since OpenJDK cannot call native jpg encoders
-    // b) a scaled down png (with transparency) which we can store without any more modifying as png
-    if (hasTransparentPixels(scaledImage)) {
-      // transparent image -> png
-      imgWrtr = ImageIO.getImageWritersByFormatName("png").next();
-      imgWrtrPrm = imgWrtr.getDefaultWriteParam();
-
-    }
-    else {
-      // non transparent image -> jpg
-      // convert to rgb
-      BufferedImage rgb = new BufferedImage(scaledImage.getWidth(), scaledImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-      ColorConvertOp xformOp = new ColorConvertOp(null);
-      xformOp.filter(scaledImage, rgb);
-      imgWrtr = ImageIO.getImageWritersByFormatName("jpg").next();
-      imgWrtrPrm = imgWrtr.getDefaultWriteParam();
-      imgWrtrPrm.setCompressionMode(JPEGImageWriteParam.MODE_EXPLICIT);
-      imgWrtrPrm.setCompressionQuality(0.80f);
-
-      scaledImage = rgb;
-    }
-
+    // opaque images are written as jpg, transparent images as png
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     ImageOutputStream output = ImageIO.createImageOutputStream(baos);
-    imgWrtr.setOutput(output);
-    IIOImage outputImage = new IIOImage(scaledImage, null, null);
-    imgWrtr.write(null, outputImage, imgWrtrPrm);
-    imgWrtr.dispose();
+    ImageCacheEncoder.encode(scaledImage, output, TransparentFormat.PNG);
     scaledImage = null;
+    output.flush();
 
     byte[] bytes = baos.toByteArray();
 
-    output.flush();
     output.close();
     baos.close();
 
@@ -195,7 +323,7 @@ public class ImageCache {
   public static InputStream scaleImage(Path file, int width) throws IOException, InterruptedException {
     BufferedImage originalImage = null;
     try {
-      originalImage = createImage(file);
+      originalImage = createImage(file, width);
     }
     catch (Exception e) {
       throw new IOException(e.getMessage());
@@ -209,43 +337,15 @@ public class ImageCache {
     BufferedImage scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.x, size.y, Scalr.OP_ANTIALIAS);
     originalImage = null;
 
-    ImageWriter imgWrtr = null;
-    ImageWriteParam imgWrtrPrm = null;
-
-    // here we have two different ways to create our thumb
-    // a) a scaled down jpg/png (without transparency) which we have to modify since OpenJDK cannot call native jpg encoders
-    // b) a scaled down png (with transparency) which we can store without any more modifying as png
-    if (hasTransparentPixels(scaledImage)) {
-      // transparent image -> png
-      imgWrtr = ImageIO.getImageWritersByFormatName("png").next();
-      imgWrtrPrm = imgWrtr.getDefaultWriteParam();
-
-    }
-    else {
-      // non transparent image -> jpg
-      // convert to rgb
-      BufferedImage rgb = new BufferedImage(scaledImage.getWidth(), scaledImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-      ColorConvertOp xformOp = new ColorConvertOp(null);
-      xformOp.filter(scaledImage, rgb);
-      imgWrtr = ImageIO.getImageWritersByFormatName("jpg").next();
-      imgWrtrPrm = imgWrtr.getDefaultWriteParam();
-      imgWrtrPrm.setCompressionMode(JPEGImageWriteParam.MODE_EXPLICIT);
-      imgWrtrPrm.setCompressionQuality(0.80f);
-
-      scaledImage = rgb;
-    }
-
+    // opaque images are written as jpg, transparent images as png
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     ImageOutputStream output = ImageIO.createImageOutputStream(baos);
-    imgWrtr.setOutput(output);
-    IIOImage outputImage = new IIOImage(scaledImage, null, null);
-    imgWrtr.write(null, outputImage, imgWrtrPrm);
-    imgWrtr.dispose();
+    ImageCacheEncoder.encode(scaledImage, output, TransparentFormat.PNG);
     scaledImage = null;
+    output.flush();
 
     byte[] bytes = baos.toByteArray();
 
-    output.flush();
     output.close();
     baos.close();
 
@@ -261,9 +361,23 @@ public class ImageCache {
    * @throws Exception
    */
   public static Path cacheImage(Path originalFile) throws Exception {
+    return cacheImage(originalFile, null);
+  }
+
+  /**
+   * Cache image; an image which has been written is added to the given statistics (an up to date cached image is not written again)
+   * 
+   * @param originalFile
+   *          the original image
+   * @param statistics
+   *          the statistics to add the written image to (or null)
+   * @return the file the cached file
+   * @throws Exception
+   */
+  public static Path cacheImage(Path originalFile, ImageCacheEncoder.Statistics statistics) throws Exception {
     MediaFile mf = new MediaFile(originalFile);
-    Path cachedFile = ImageCache.getCacheDir().resolve(getMD5(originalFile.toString()) + "." + Utils.getExtension(originalFile));
-    if (!Files.exists(cachedFile)) {
+    Path cachedFile = getCachedFileOfOriginal(originalFile);
+    if (!Files.exists(cachedFile) || isOutdated(cachedFile, originalFile)) {
       // check if the original file exists && size > 0
       if (!Files.exists(originalFile)) {
         throw new FileNotFoundException("unable to cache file: " + originalFile + "; file does not exist");
@@ -271,116 +385,177 @@ public class ImageCache {
       if (Files.size(originalFile) == 0) {
         throw new EmptyFileException(originalFile);
       }
-
-      // recreate cache dir if needed
-      // rescale & cache
-      BufferedImage originalImage = null;
+      // the writer does not truncate an existing file
+      Files.deleteIfExists(cachedFile);
+      Files.createDirectories(cachedFile.getParent());
+
+      // the size of the original from its header: the size of the cached image is known before decoding
+      Point originalSize = getImageSize(originalFile);
+      Point size = originalSize != null ? getCachedImageSize(mf, originalSize.x, originalSize.y) : null;
+
+      // reserve the memory for decoding
+      int decodeMemory = getDecodeMemory(originalSize, size);
+      String format;
+      DECODE_MEMORY.acquire(decodeMemory);
       try {
-        originalImage = createImage(originalFile);
+        format = writeCachedImage(mf, originalFile, cachedFile, size);
       }
-      catch (Exception e) {
-        throw new Exception("cannot create image - file seems not to be valid? " + originalFile);
+      finally {
+        DECODE_MEMORY.release(decodeMemory);
       }
 
-      // calculate width based on MF type
-      int desiredWidth = originalImage.getWidth(); // initialize with fallback
-      switch (mf.getType()) {
-        case FANART:
-          if (originalImage.getWidth() > 1000) {
-            desiredWidth = 1000;
-          }
-          break;
-
-        case POSTER:
-          if (originalImage.getHeight() > 500) {
-            desiredWidth = 350;
-          }
-          break;
-
-        case EXTRAFANART:
-        case THUMB:
-        case BANNER:
-        case GRAPHIC:
-          desiredWidth = 300;
-          break;
-
-        default:
-          break;
+      if (!Files.exists(cachedFile)) {
+        throw new Exception("unable to cache file: " + originalFile);
       }
-
-      // special handling for movieset-fanart or movieset-poster
-      if (mf.getFilename().startsWith("movieset-fanart") || mf.getFilename().startsWith("movieset-poster")) {
-        if (originalImage.getWidth() > 1000) {
-          desiredWidth = 1000;
-        }
+      ImageCacheIndex.getInstance().added(cachedFile);
+      if (statistics != null) {
+        statistics.add(format, Files.size(originalFile), Files.size(cachedFile));
       }
+    }
 
-      Point size = calculateSize(desiredWidth, (int) (originalImage.getHeight() / 1.5), originalImage.getWidth(), originalImage.getHeight(), true);
-      BufferedImage scaledImage = null;
+    return cachedFile;
+  }
 
-      if (Globals.settings.getImageCacheType() == CacheType.FAST) {
-        // scale fast
-        scaledImage = Scalr.resize(originalImage, Scalr.Method.BALANCED, Scalr.Mode.FIT_EXACT, size.x, size.y);
+  /**
+   * checks if the original file has been modified after caching
+   */
+  private static boolean isOutdated(Path cachedFile, Path originalFile) {
+    try {
+      return Files.getLastModifiedTime(originalFile).toMillis() > Files.getLastModifiedTime(cachedFile).toMillis();
+    }
+    catch (IOException e) {
+      // the original is not available - keep the cached file
+      return false;
+    }
+  }
+
+  /**
+   * estimate the memory for decoding an image (4 bytes per decoded pixel)
+   * 
+   * @return the memory in KB (at most the whole decode budget)
+   */
+  private static int getDecodeMemory(Point originalSize, Point size) {
+    long bytes = 4L * 3840 * 2160; // unknown: assume 4K
+    if (originalSize != null) {
+      int subsampling = getSubsampling(originalSize.x, size.x);
+      bytes = 4L * (originalSize.x / subsampling) * (originalSize.y / subsampling);
+    }
+    return (int) Math.max(Math.min(bytes / 1024, DECODE_BUDGET), 1);
+  }
+
+  /**
+   * read the size of an image from its header (without decoding the image)
+   * 
+   * @param file
+   *          the image file
+   * @return the size of the image or null if it could not be read
+   */
+  public static Point getImageSize(Path file) {
+    try (ImageInputStream iis = ImageIO.createImageInputStream(file.toFile())) {
+      if (iis == null) {
+        return null;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(iis, true, true);
+        return new Point(reader.getWidth(0), reader.getHeight(0));
       }
-      else {
-        // scale with good quality
-        scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, size.x, size.y);
+      finally {
+        reader.dispose();
       }
-      originalImage = null;
+    }
+    catch (Exception e) {
+      return null;
+    }
+  }
 
-      ImageWriter imgWrtr = null;
-      ImageWriteParam imgWrtrPrm = null;
+  /**
+   * calculate the size of the cached image (depending on the type of the image)
+   * 
+   * @param mf
+   *          the media file of the original
+   * @param width
+   *          the width of the original
+   * @param height
+   *          the height of the original
+   * @return the size of the cached image
+   */
+  private static Point getCachedImageSize(MediaFile mf, int width, int height) {
+    // calculate width based on MF type
+    int desiredWidth = width; // initialize with fallback
+    switch (mf.getType()) {
+      case FANART:
+        if (width > 1000) {
+          desiredWidth = 1000;
+        }
+        break;
 
-      // here we have two different ways to create our thumb
-      // a) a scaled down jpg/png (without transparency) which we have to modify since OpenJDK cannot call native jpg encoders
-      // b) a scaled down png (with transparency) which we can store without any more modifying as png
-      if (hasTransparentPixels(scaledImage)) {
-        // transparent image -> png
-        imgWrtr = ImageIO.getImageWritersByFormatName("png").next();
-        imgWrtrPrm = imgWrtr.getDefaultWriteParam();
+      case POSTER:
+        if (height > 500) {
+          desiredWidth = 350;
+        }
+        break;
 
-      }
-      else {
-        // non transparent image -> jpg
-        // convert to rgb
-        BufferedImage rgb = new BufferedImage(scaledImage.getWidth(), scaledImage.getHeight(), BufferedImage.TYPE_INT_RGB);
-        ColorConvertOp xformOp = new ColorConvertOp(null);
-        xformOp.filter(scaledImage, rgb);
-        imgWrtr = ImageIO.getImageWritersByFormatName("jpg").next();
-        imgWrtrPrm = imgWrtr.getDefaultWriteParam();
-        imgWrtrPrm.setCompressionMode(JPEGImageWriteParam.MODE_EXPLICIT);
-        imgWrtrPrm.setCompressionQuality(0.80f);
-
-        scaledImage = rgb;
-      }
+      case EXTRAFANART:
+      case THUMB:
+      case BANNER:
+      case GRAPHIC:
+        desiredWidth = 300;
+        break;
 
-      FileImageOutputStream output = new FileImageOutputStream(cachedFile.toFile());
-      imgWrtr.setOutput(output);
-      IIOImage image = new IIOImage(scaledImage, null, null);
-      imgWrtr.write(null, image, imgWrtrPrm);
-      imgWrtr.dispose();
-      output.flush();
-      output.close();
-      scaledImage = null;
+      default:
+        break;
+    }
 
-      if (!Files.exists(cachedFile)) {
-        throw new Exception("unable to cache file: " + originalFile);
+    // special handling for movieset-fanart or movieset-poster
+    if (mf.getFilename().startsWith("movieset-fanart") || mf.getFilename().startsWith("movieset-poster")) {
+      if (width > 1000) {
+        desiredWidth = 1000;
       }
     }
 
-    return cachedFile;
+    return calculateSize(desiredWidth, (int) (height / 1.5), width, height, true);
   }
 
-  private static boolean hasTransparentPixels(BufferedImage image) {
-    for (int x = 0; x < image.getWidth(); x++) {
-      for (int y = 0; y < image.getHeight(); y++) {
-        int pixel = image.getRGB(x, y);
-        if ((pixel >> 24) == 0x00) {
-          return true;
-        }
-      }
+  private static String writeCachedImage(MediaFile mf, Path originalFile, Path cachedFile, Point size) throws Exception {
+    // rescale & cache
+    BufferedImage originalImage = null;
+    try {
+      // decode only the pixels which are needed for the size of the cached image
+      originalImage = size != null ? createImage(originalFile, size.x) : createImage(originalFile);
     }
-    return false;
+    catch (Exception e) {
+      throw new Exception("cannot create image - file seems not to be valid? " + originalFile);
+    }
+    if (size == null) {
+      size = getCachedImageSize(mf, originalImage.getWidth(), originalImage.getHeight());
+    }
+
+    BufferedImage scaledImage = null;
+
+    if (Globals.settings.getImageCacheType() == CacheType.FAST) {
+      // scale fast
+      scaledImage = Scalr.resize(originalImage, Scalr.Method.BALANCED, Scalr.Mode.FIT_EXACT, size.x, size.y);
+    }
+    else {
+      // scale with good quality
+      scaledImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, size.x, size.y);
+    }
+    originalImage = null;
+
+    // opaque images are written as jpg, transparent images as png (or webp if chosen and available); the readers detect the format by the
+    // content, not by the extension
+    String format;
+    try (FileImageOutputStream output = new FileImageOutputStream(cachedFile.toFile())) {
+      format = ImageCacheEncoder.encode(scaledImage, output, Globals.settings.getImageCacheFormat());
+      output.flush();
+    }
+    scaledImage = null;
+    return format;
   }
 
   /**
@@ -390,9 +565,10 @@ public class ImageCache {
    *          the path
    */
   public static void invalidateCachedImage(Path path) {
-    Path cachedFile = getCacheDir().resolve(ImageCache.getMD5(path.toAbsolutePath().toString()) + "." + Utils.getExtension(path));
+    Path cachedFile = getCachedFileOfOriginal(path);
     if (Files.exists(cachedFile)) {
       Utils.deleteFileSafely(cachedFile);
+      ImageCacheIndex.getInstance().removed(cachedFile);
     }
   }
 
@@ -413,9 +589,10 @@ public class ImageCache {
     if (ext.isEmpty()) {
       ext = "jpg"; // just assume
     }
-    Path cachedFile = ImageCache.getCacheDir().resolve(getMD5(url) + "." + ext);
+    Path cachedFile = getCacheFile(getMD5(url) + "." + ext);
     if (Files.exists(cachedFile)) {
       LOGGER.trace("found cached url :) " + url);
+      ImageCacheIndex.getInstance().accessed(cachedFile);
       return cachedFile;
     }
 
@@ -426,15 +603,20 @@ public class ImageCache {
 
     try {
       Url u = new Url(url);
+      Files.createDirectories(cachedFile.getParent());
       boolean ok = u.download(cachedFile);
       if (ok) {
         LOGGER.trace("cached url successfully :) " + url);
+        ImageCacheIndex.getInstance().added(cachedFile);
         return cachedFile;
       }
     }
     catch (MalformedURLException e) {
       LOGGER.trace("Problem getting cached file for url " + e.getMessage());
     }
+    catch (IOException e) {
+      LOGGER.warn("could not create cache dir " + cachedFile.getParent() + " - " + e.getMessage());
+    }
 
     LOGGER.trace("Problem getting cached file for url " + url);
     return null;
@@ -454,9 +636,10 @@ public class ImageCache {
     }
     path = path.toAbsolutePath();
 
-    Path cachedFile = ImageCache.getCacheDir().resolve(getMD5(path.toString()) + "." + Utils.getExtension(path));
+    Path cachedFile = getCachedFileOfOriginal(path);
     if (Files.exists(cachedFile)) {
       LOGGER.trace("found cached file :) " + path);
+      ImageCacheIndex.getInstance().accessed(cachedFile);
       return cachedFile;
     }
 
@@ -507,7 +690,7 @@ public class ImageCache {
       return false;
     }
 
-    Path cachedFile = CACHE_DIR.resolve(ImageCache.getMD5(path.toString()) + "." + Utils.getExtension(path));
+    Path cachedFile = getCachedFileOfOriginal(path);
     if (Files.exists(cachedFile)) {
       return true;
     }
@@ -528,6 +711,7 @@ public class ImageCache {
         Path file = ImageCache.getCachedFile(mediaFile.getFileAsPath());
         if (file != null) {
           Utils.deleteFileSafely(file);
+          ImageCacheIndex.getInstance().removed(file);
         }
       }
     }
@@ -579,4 +763,89 @@ public class ImageCache {
   public static BufferedImage createImage(Image img) {
     return ImageLoader.createImage(img);
   }
+
+  /**
+   * create an image which will be scaled down to the given width: only every n-th pixel is decoded (at least the double of the target width is kept
+   * for a good quality of the following scaling)
+   * 
+   * @param file
+   *          the image file
+   * @param targetWidth
+   *          the width the image will be scaled to
+   * @return the (subsampled) image
+   * @throws Exception
+   *           the image could not be decoded
+   */
+  public static BufferedImage createImage(Path file, int targetWidth) throws Exception {
+    BufferedImage image = null;
+    try (ImageInputStream iis = ImageIO.createImageInputStream(file.toFile())) {
+      image = createSubsampledImage(iis, targetWidth);
+    }
+    catch (Exception e) {
+      LOGGER.trace("could not decode " + file + " with ImageIO: " + e.getMessage());
+    }
+    // e.g. CMYK JPEGs cannot be decoded by ImageIO
+    return image != null ? image : createImage(file);
+  }
+
+  /**
+   * create an image which will be scaled down to the given width (see {@link #createImage(Path, int)})
+   * 
+   * @param imageData
+   *          the encoded image
+   * @param targetWidth
+   *          the width the image will be scaled to
+   * @return the (subsampled) image
+   * @throws Exception
+   *           the image could not be decoded
+   */
+  public static BufferedImage createImage(byte[] imageData, int targetWidth) throws Exception {
+    BufferedImage image = null;
+    try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+      image = createSubsampledImage(iis, targetWidth);
+    }
+    catch (Exception e) {
+      LOGGER.trace("could not decode image with ImageIO: " + e.getMessage());
+    }
+    return image != null ? image : createImage(imageData);
+  }
+
+  private static BufferedImage createSubsampledImage(ImageInputStream iis, int targetWidth) throws IOException {
+    if (iis == null) {
+      return null;
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+    if (!readers.hasNext()) {
+      return null;
+    }
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(iis, true, true);
+      ImageReadParam param = reader.getDefaultReadParam();
+      int subsampling = getSubsampling(reader.getWidth(0), targetWidth);
+      if (subsampling > 1) {
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+      }
+      return reader.read(0, param);
+    }
+    finally {
+      reader.dispose();
+    }
+  }
+
+  /**
+   * get the subsampling for decoding an image which will be scaled down to the given width
+   * 
+   * @param width
+   *          the width of the image
+   * @param targetWidth
+   *          the width the image will be scaled to
+   * @return decode only every n-th pixel (1 = all pixels)
+   */
+  static int getSubsampling(int width, int targetWidth) {
+    if (targetWidth <= 0) {
+      return 1;
+    }
+    return Math.max(width / (2 * targetWidth), 1);
+  }
 }
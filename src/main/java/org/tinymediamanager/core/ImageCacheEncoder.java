@@ -0,0 +1,342 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * The class ImageCacheEncoder. Encodes the scaled images of the image cache:
+ * <ul>
+ * <li>opaque images are written as JPEG; images which are already RGB are written directly (without converting them first)</li>
+ * <li>transparent images are written as PNG or - if chosen in the settings and an ImageIO WebP plugin is available - as the much more compact
+ * WebP</li>
+ * <li>a PNG with at most 256 colors (e.g. most logos) is written with a palette instead of 4 bytes per pixel - lossless</li>
+ * </ul>
+ * Further formats can be plugged in by registering an {@link Encoder}. The count of images and bytes written per format can be collected in
+ * {@link Statistics}.
+ *
+ * @author Manuel Laggner
+ */
+public class ImageCacheEncoder {
+  private static final Map<String, Encoder> ENCODERS       = new ConcurrentHashMap<>();
+  private static final float                JPEG_QUALITY   = 0.80f;
+  private static final float                WEBP_QUALITY   = 0.80f;
+  private static final int                  PALETTE_COLORS = 256;
+
+  public enum TransparentFormat {
+    PNG,
+    WEBP
+  }
+
+  static {
+    register(new ImageIOEncoder("jpg", JPEG_QUALITY));
+    register(new PngEncoder());
+    register(new ImageIOEncoder("webp", WEBP_QUALITY));
+  }
+
+  private ImageCacheEncoder() {
+  }
+
+  /**
+   * an encoder for a single image format
+   */
+  public interface Encoder {
+    /**
+     * the name of the format
+     */
+    String getFormatName();
+
+    /**
+     * can this encoder be used (e.g. the needed ImageIO plugins are available)?
+     */
+    boolean isAvailable();
+
+    /**
+     * write the image to the output
+     */
+    void write(BufferedImage image, ImageOutputStream output) throws IOException;
+  }
+
+  /**
+   * register an encoder (replaces the encoder for the same format)
+   *
+   * @param encoder
+   *          the encoder
+   */
+  public static void register(Encoder encoder) {
+    ENCODERS.put(encoder.getFormatName(), encoder);
+  }
+
+  /**
+   * encode the image to the output
+   *
+   * @param image
+   *          the image
+   * @param output
+   *          the output
+   * @param transparentFormat
+   *          the format for transparent images (PNG is used if the format is not available)
+   * @return the name of the format which has been used
+   * @throws IOException
+   *           the image could not be written
+   */
+  public static String encode(BufferedImage image, ImageOutputStream output, TransparentFormat transparentFormat) throws IOException {
+    Encoder encoder;
+    if (hasTransparentPixels(image)) {
+      encoder = ENCODERS.get(transparentFormat.name().toLowerCase());
+      if (encoder == null || !encoder.isAvailable()) {
+        encoder = ENCODERS.get("png");
+      }
+    }
+    else {
+      // OpenJDK cannot call native jpg encoders: the image has to be RGB
+      encoder = ENCODERS.get("jpg");
+      image = toRgb(image);
+    }
+    encoder.write(image, output);
+    return encoder.getFormatName();
+  }
+
+  /**
+   * checks if the image contains fully transparent pixels; only the alpha channel is read (if there is one at all)
+   */
+  static boolean hasTransparentPixels(BufferedImage image) {
+    if (!image.getColorModel().hasAlpha()) {
+      return false;
+    }
+    Raster alpha = image.getAlphaRaster();
+    if (alpha == null) {
+      // e.g. an indexed image with a transparent color
+      for (int x = 0; x < image.getWidth(); x++) {
+        for (int y = 0; y < image.getHeight(); y++) {
+          if ((image.getRGB(x, y) >> 24) == 0x00) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+    int[] row = new int[alpha.getWidth()];
+    for (int y = 0; y < alpha.getHeight(); y++) {
+      alpha.getSamples(alpha.getMinX(), alpha.getMinY() + y, alpha.getWidth(), 1, 0, row);
+      for (int sample : row) {
+        if (sample == 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * get the image with a palette if it has at most 256 colors (including the alpha channel); otherwise null
+   */
+  static BufferedImage toIndexed(BufferedImage image) {
+    Map<Integer, Integer> palette = new LinkedHashMap<>();
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      for (int argb : row) {
+        if (!palette.containsKey(argb)) {
+          if (palette.size() == PALETTE_COLORS) {
+            return null;
+          }
+          palette.put(argb, palette.size());
+        }
+      }
+    }
+
+    int[] colors = new int[palette.size()];
+    for (Map.Entry<Integer, Integer> entry : palette.entrySet()) {
+      colors[entry.getValue()] = entry.getKey();
+    }
+    IndexColorModel colorModel = new IndexColorModel(8, colors.length, colors, 0, true, -1, DataBuffer.TYPE_BYTE);
+    BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+    byte[] pixels = new byte[width];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      for (int x = 0; x < width; x++) {
+        pixels[x] = (byte) palette.get(row[x]).intValue();
+      }
+      indexed.getRaster().setDataElements(0, y, width, 1, pixels);
+    }
+    return indexed;
+  }
+
+  /**
+   * get the image as RGB; an RGB image is returned as it is
+   */
+  static BufferedImage toRgb(BufferedImage image) {
+    if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+      return image;
+    }
+    BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    ColorConvertOp xformOp = new ColorConvertOp(null);
+    xformOp.filter(image, rgb);
+    return rgb;
+  }
+
+  /**
+   * the count of images and bytes written per format (e.g. by a single {@link ImageCacheTask})
+   */
+  public static class Statistics {
+    private final Map<String, AtomicLong[]> formats      = new ConcurrentHashMap<>();
+    private final AtomicLong                originalSize = new AtomicLong(0);
+    private final AtomicLong                cachedSize   = new AtomicLong(0);
+
+    /**
+     * add a written image
+     *
+     * @param formatName
+     *          the format of the cached image
+     * @param originalBytes
+     *          the size of the original
+     * @param cachedBytes
+     *          the size of the cached image
+     */
+    public void add(String formatName, long originalBytes, long cachedBytes) {
+      AtomicLong[] counters = formats.get(formatName);
+      if (counters == null) {
+        formats.putIfAbsent(formatName, new AtomicLong[] { new AtomicLong(), new AtomicLong() });
+        counters = formats.get(formatName);
+      }
+      counters[0].incrementAndGet();
+      counters[1].addAndGet(cachedBytes);
+      originalSize.addAndGet(originalBytes);
+      cachedSize.addAndGet(cachedBytes);
+    }
+
+    /**
+     * get the count of written images
+     */
+    public long getCount() {
+      long count = 0;
+      for (AtomicLong[] counters : formats.values()) {
+        count += counters[0].get();
+      }
+      return count;
+    }
+
+    public long getOriginalSize() {
+      return originalSize.get();
+    }
+
+    public long getCachedSize() {
+      return cachedSize.get();
+    }
+
+    /**
+     * get the count of images and the bytes written per format
+     *
+     * @return the statistics as a loggable string
+     */
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      for (Map.Entry<String, AtomicLong[]> entry : new TreeMap<>(formats).entrySet()) {
+        if (sb.length() > 0) {
+          sb.append(", ");
+        }
+        sb.append(entry.getKey()).append(": ").append(entry.getValue()[0].get()).append(" images (").append(entry.getValue()[1].get() / 1024)
+            .append(" KB)");
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * a png encoder which writes images with at most 256 colors with a palette
+   */
+  private static class PngEncoder extends ImageIOEncoder {
+    private PngEncoder() {
+      super("png", null);
+    }
+
+    @Override
+    public void write(BufferedImage image, ImageOutputStream output) throws IOException {
+      BufferedImage indexed = image.getColorModel() instanceof IndexColorModel ? null : toIndexed(image);
+      super.write(indexed != null ? indexed : image, output);
+    }
+  }
+
+  /**
+   * an encoder using an ImageIO writer
+   */
+  private static class ImageIOEncoder implements Encoder {
+    private final String formatName;
+    private final Float  quality;
+
+    protected ImageIOEncoder(String formatName, Float quality) {
+      this.formatName = formatName;
+      this.quality = quality;
+    }
+
+    @Override
+    public String getFormatName() {
+      return formatName;
+    }
+
+    @Override
+    public boolean isAvailable() {
+      // the cached images have to be read again too
+      return ImageIO.getImageWritersByFormatName(formatName).hasNext() && ImageIO.getImageReadersByFormatName(formatName).hasNext();
+    }
+
+    @Override
+    public void write(BufferedImage image, ImageOutputStream output) throws IOException {
+      Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+      if (!writers.hasNext()) {
+        throw new IOException("no writer for " + formatName);
+      }
+      ImageWriter writer = writers.next();
+      try {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (quality != null && param.canWriteCompressed()) {
+          param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+          if (param.getCompressionType() == null && param.getCompressionTypes() != null && param.getCompressionTypes().length > 0) {
+            // e.g. WebP: the first type is the lossy compression
+            param.setCompressionType(param.getCompressionTypes()[0]);
+          }
+          param.setCompressionQuality(quality);
+        }
+        writer.setOutput(output);
+        writer.write(null, new IIOImage(image, null, null), param);
+      }
+      finally {
+        writer.dispose();
+      }
+    }
+  }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+
+/**
+ * The class ImageCacheIndex. Keeps the size and the last access of every file in the image cache, to keep the cache below the size from the
+ * settings:
+ * <ul>
+ * <li>the cached files are stored in subdirectories named by the first two characters of their (hashed) name</li>
+ * <li>the sweeper runs periodically and removes the least recently used files when the cache is too big</li>
+ * <li>on start a background thread moves the files of the old flat layout into the subdirectories and adds the files which are not indexed yet;
+ * the sweeper waits for it</li>
+ * </ul>
+ * The index also remembers the cache keys of the originals (see {@link ImageCache#getCacheKey(Path)}), so the content of an unchanged original is
+ * not read again and the cached image of an unavailable original can still be found. The key of a deleted original is removed when it is looked
+ * up (or when it has been renamed).
+ *
+ * @author Manuel Laggner
+ */
+public class ImageCacheIndex {
+  private static final Logger         LOGGER            = LoggerFactory.getLogger(ImageCacheIndex.class);
+  private static final String         INDEX_DB          = "imagecache.db";
+  private static final String         LAYOUT            = "layout";
+  private static final String         LAYOUT_SHARDED    = "sharded";
+  // the last access of a file is stored at most once per hour
+  private static final long           ACCESS_RESOLUTION = TimeUnit.HOURS.toMillis(1);
+  private static final int            INTERVAL_MIN      = 10;
+  // evict down to 90% of the maximum size, so the sweeper does not have to run on every new file
+  private static final int            TARGET_PERCENT    = 90;
+
+  private static ImageCacheIndex      instance;
+
+  private final Path                  cacheDir;
+  private final MVStore               mvStore;
+  // file name -> {size, last access}
+  private final MVMap<String, long[]> entries;
+  private final MVMap<String, String> meta;
+  // path of an original -> size;modification time;cache key
+  private final MVMap<String, String> keys;
+  private final AtomicLong            totalSize         = new AtomicLong(0);
+  private final AtomicLong            evicted           = new AtomicLong(0);
+
+  private ScheduledFuture<?>          future;
+  private volatile boolean            migrated;
+  private volatile boolean            reconciled        = false;
+
+  ImageCacheIndex(Path cacheDir, MVStore mvStore) {
+    this.cacheDir = cacheDir;
+    this.mvStore = mvStore;
+    this.entries = mvStore.openMap("entries");
+    this.meta = mvStore.openMap("meta");
+    this.keys = mvStore.openMap("keys");
+    this.migrated = LAYOUT_SHARDED.equals(meta.get(LAYOUT));
+    for (long[] entry : entries.values()) {
+      totalSize.addAndGet(entry[0]);
+    }
+  }
+
+  /**
+   * get the index (the database will be opened on the first call)
+   *
+   * @return the index
+   */
+  public static synchronized ImageCacheIndex getInstance() {
+    if (instance == null) {
+      Path cacheDir = ImageCache.getCacheDir();
+      MVStore mvStore = new MVStore.Builder().fileName(cacheDir.resolveSibling(INDEX_DB).toString()).compress()
+          .backgroundExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+              LOGGER.error("Error in the background thread of the image cache index", e);
+            }
+          }).open();
+      instance = new ImageCacheIndex(cacheDir, mvStore);
+    }
+    return instance;
+  }
+
+  /**
+   * stop the sweeper and close the index (if it has been opened)
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      instance.stopSweeper();
+      LOGGER.info("image cache: " + instance.getStatistics());
+      instance.mvStore.close();
+      instance = null;
+    }
+  }
+
+  /**
+   * reconcile the index with the cache directory in a background thread and start the periodic sweeper in the scheduler of the
+   * {@link TmmTaskManager}
+   */
+  public void startSweeper() {
+    // walking the whole cache directory takes long - it must not block the shared scheduler
+    Thread reconciler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          reconcile();
+          reconciled = true;
+        }
+        catch (Exception e) {
+          LOGGER.warn("problem reconciling the image cache: " + e.getMessage());
+        }
+      }
+    }, "imagecache-reconcile");
+    reconciler.setDaemon(true);
+    reconciler.start();
+
+    future = TmmTaskManager.getInstance().scheduleTask(new Runnable() {
+      @Override
+      public void run() {
+        sweep();
+      }
+    }, 1, INTERVAL_MIN, TimeUnit.MINUTES);
+  }
+
+  private void stopSweeper() {
+    if (future != null) {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * get the file in the image cache for the given file name: the files are stored in subdirectories named by the first two characters. A file of
+   * the old flat layout is moved into its subdirectory
+   *
+   * @param fileName
+   *          the file name (hash and extension)
+   * @return the file (which does not need to exist)
+   */
+  public Path getFile(String fileName) {
+    Path file = cacheDir.resolve(fileName.substring(0, 2)).resolve(fileName);
+    if (!migrated) {
+      Path legacy = cacheDir.resolve(fileName);
+      if (Files.exists(legacy) && !Files.exists(file)) {
+        moveToShard(legacy, file);
+      }
+    }
+    return file;
+  }
+
+  private void moveToShard(Path legacy, Path file) {
+    try {
+      Files.createDirectories(file.getParent());
+      Files.move(legacy, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not move " + legacy + " to " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * a cached file has been used; the last access is stored (at most once per hour)
+   *
+   * @param file
+   *          the cached file
+   */
+  public void accessed(Path file) {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    long[] entry = entries.get(file.getFileName().toString());
+    if (entry == null) {
+      added(file);
+    }
+    else if (System.currentTimeMillis() - entry[1] > ACCESS_RESOLUTION) {
+      entries.put(file.getFileName().toString(), new long[] { entry[0], System.currentTimeMillis() });
+    }
+  }
+
+  /**
+   * a file has been (re)written to the image cache
+   *
+   * @param file
+   *          the cached file
+   */
+  public void added(Path file) {
+    try {
+      put(file.getFileName().toString(), Files.size(file), System.currentTimeMillis());
+    }
+    catch (IOException e) {
+      LOGGER.trace("could not index " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * a file has been deleted from the image cache
+   *
+   * @param file
+   *          the cached file
+   */
+  public void removed(Path file) {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    long[] old = entries.remove(file.getFileName().toString());
+    if (old != null) {
+      totalSize.addAndGet(-old[0]);
+    }
+  }
+
+  /**
+   * all cached files have been deleted
+   */
+  public void clear() {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    entries.clear();
+    totalSize.set(0);
+  }
+
+  /**
+   * get the stored cache key of an original
+   *
+   * @param path
+   *          the path of the original
+   * @param size
+   *          the size of the original
+   * @param lastModified
+   *          the modification time of the original
+   * @return the cache key or null if the original is unknown or has been changed since
+   */
+  public String getKey(String path, long size, long lastModified) {
+    if (mvStore.isClosed()) {
+      return null;
+    }
+    String value = keys.get(path);
+    String prefix = size + ";" + lastModified + ";";
+    if (value != null && value.startsWith(prefix)) {
+      return value.substring(prefix.length());
+    }
+    return null;
+  }
+
+  /**
+   * get the last known cache key of an original which cannot be read (e.g. an offline share). The key of an original which has been deleted (its
+   * folder is available) is removed
+   *
+   * @param path
+   *          the path of the original
+   * @return the cache key or null if the original is unknown or has been deleted
+   */
+  public String getKey(String path) {
+    if (mvStore.isClosed()) {
+      return null;
+    }
+    String value = keys.get(path);
+    if (value == null) {
+      return null;
+    }
+    if (isDeleted(path)) {
+      keys.remove(path);
+      return null;
+    }
+    return value.substring(value.lastIndexOf(';') + 1);
+  }
+
+  private boolean isDeleted(String path) {
+    try {
+      Path original = Paths.get(path);
+      return !Files.exists(original) && original.getParent() != null && Files.isDirectory(original.getParent());
+    }
+    catch (InvalidPathException e) {
+      return true;
+    }
+  }
+
+  /**
+   * store the cache key of an original
+   *
+   * @param path
+   *          the path of the original
+   * @param size
+   *          the size of the original
+   * @param lastModified
+   *          the modification time of the original
+   * @param key
+   *          the cache key
+   */
+  public void putKey(String path, long size, long lastModified, String key) {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    keys.put(path, size + ";" + lastModified + ";" + key);
+  }
+
+  /**
+   * remove the cache key of an original (e.g. it has been renamed or moved)
+   *
+   * @param path
+   *          the path of the original
+   */
+  public void removeKey(String path) {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    keys.remove(path);
+  }
+
+  private void put(String fileName, long size, long lastAccess) {
+    if (mvStore.isClosed()) {
+      return;
+    }
+    long[] old = entries.put(fileName, new long[] { size, lastAccess });
+    totalSize.addAndGet(size - (old != null ? old[0] : 0));
+  }
+
+  /**
+   * one run of the sweeper: remove the least recently used files if the cache is too big (after the index has been reconciled with the cache
+   * directory)
+   */
+  void sweep() {
+    if (mvStore.isClosed() || !reconciled) {
+      return;
+    }
+    try {
+      long maxSize = Settings.getInstance().getImageCacheSize() * 1024L * 1024L;
+      if (maxSize > 0 && totalSize.get() > maxSize) {
+        evict(maxSize * TARGET_PERCENT / 100);
+      }
+    }
+    catch (Exception e) {
+      LOGGER.warn("problem sweeping the image cache: " + e.getMessage());
+    }
+  }
+
+  /**
+   * move the files of the flat layout into the subdirectories, index the unknown files (with their modification time as last access) and drop the
+   * entries of vanished files
+   */
+  void reconcile() throws IOException {
+    if (mvStore.isClosed() || !Files.isDirectory(cacheDir)) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    int moved = 0;
+    Set<String> found = new HashSet<>();
+
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.isDirectory()) {
+          found.addAll(reconcileShard(path));
+        }
+        else if (attributes.isRegularFile() && name.length() > 2) {
+          // the flat layout of older versions
+          Path file = cacheDir.resolve(name.substring(0, 2)).resolve(name);
+          moveToShard(path, file);
+          index(name, attributes);
+          found.add(name);
+          moved++;
+        }
+      }
+    }
+
+    if (!migrated) {
+      meta.put(LAYOUT, LAYOUT_SHARDED);
+      migrated = true;
+    }
+
+    // drop the entries of the files which have been deleted outside of tmm; files which have been cached while walking are kept
+    List<String> vanished = new ArrayList<>();
+    for (String name : entries.keySet()) {
+      if (!found.contains(name) && !Files.exists(cacheDir.resolve(name.substring(0, 2)).resolve(name))) {
+        vanished.add(name);
+      }
+    }
+    for (String name : vanished) {
+      removed(cacheDir.resolve(name));
+    }
+
+    LOGGER.debug("reconciled image cache in " + (System.currentTimeMillis() - start) + " ms: " + found.size() + " files, " + moved
+        + " moved to subdirectories, " + vanished.size() + " vanished");
+  }
+
+  private List<String> reconcileShard(Path shard) throws IOException {
+    List<String> found = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(shard)) {
+      for (Path path : stream) {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.isRegularFile()) {
+          String name = path.getFileName().toString();
+          index(name, attributes);
+          found.add(name);
+        }
+      }
+    }
+    return found;
+  }
+
+  private void index(String name, BasicFileAttributes attributes) {
+    long[] entry = entries.get(name);
+    if (entry == null) {
+      put(name, attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+    else if (entry[0] != attributes.size()) {
+      put(name, attributes.size(), entry[1]);
+    }
+  }
+
+  /**
+   * remove the least recently used files until the cache is not bigger than the given size
+   *
+   * @param targetSize
+   *          the size of the cache in bytes
+   * @return the count of removed files
+   */
+  int evict(long targetSize) {
+    List<Map.Entry<String, long[]>> lru = new ArrayList<>(entries.entrySet());
+    Collections.sort(lru, new Comparator<Map.Entry<String, long[]>>() {
+      @Override
+      public int compare(Map.Entry<String, long[]> o1, Map.Entry<String, long[]> o2) {
+        return Long.compare(o1.getValue()[1], o2.getValue()[1]);
+      }
+    });
+
+    int count = 0;
+    long freed = 0;
+    for (Map.Entry<String, long[]> entry : lru) {
+      if (totalSize.get() <= targetSize) {
+        break;
+      }
+      Path file = cacheDir.resolve(entry.getKey().substring(0, 2)).resolve(entry.getKey());
+      try {
+        Files.deleteIfExists(file);
+        removed(file);
+        freed += entry.getValue()[0];
+        count++;
+      }
+      catch (IOException e) {
+        // e.g. the file is in use - try it on the next run
+        LOGGER.debug("could not remove " + file + " from the image cache: " + e.getMessage());
+      }
+    }
+    evicted.addAndGet(count);
+    LOGGER.debug("removed " + count + " least recently used files (" + freed / (1024 * 1024) + " MB) from the image cache");
+    return count;
+  }
+
+  public long getTotalSize() {
+    return totalSize.get();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public String getStatistics() {
+    return entries.size() + " files, " + totalSize.get() / (1024 * 1024) + " MB, " + evicted.get() + " evicted";
+  }
+}
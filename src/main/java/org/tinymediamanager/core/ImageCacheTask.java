@@ -20,16 +20,20 @@ import java.io.FileNotFoundException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.ResourceBundle;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ImageCacheEncoder.Statistics;
+import org.tinymediamanager.core.threading.PipelineStage;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class ImageCacheTask. Cache a bunch of images in a separate task
+ * The Class ImageCacheTask. Cache a bunch of images in a separate task (with several threads for many images)
  * 
  * @author Manuel Laggner
  */
@@ -37,7 +41,13 @@ public class ImageCacheTask extends TmmTask {
   private static final Logger         LOGGER       = LoggerFactory.getLogger(ImageCacheTask.class);
   private static final ResourceBundle BUNDLE       = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
 
+  private static final int            MAX_THREADS  = 4;
+
   private List<Path>                  filesToCache = new ArrayList<>();
+  private volatile PipelineStage      stage;
+  private int                         cached       = 0;
+  // the images which have been written by this task
+  private final Statistics            statistics   = new Statistics();
 
   public ImageCacheTask(String pathToFile) {
     super(BUNDLE.getString("tmm.rebuildimagecache"), 1, TaskType.BACKGROUND_TASK);
@@ -62,25 +72,73 @@ public class ImageCacheTask extends TmmTask {
 
   @Override
   protected void doInBackground() {
-    int i = 0;
-    for (Path fileToCache : filesToCache) {
-      try {
-        if (cancel) {
-          return;
-        }
+    // no need to cache the same file twice
+    final List<Path> files = new ArrayList<>(new LinkedHashSet<>(filesToCache));
+    setWorkUnits(files.size());
 
-        publishState(++i);
-        ImageCache.cacheImage(fileToCache);
-      }
-      catch (EmptyFileException e) {
-        LOGGER.warn("failed to cache file (file is empty): " + fileToCache);
-      }
-      catch (FileNotFoundException e) {
-        LOGGER.warn("failed to cache file (file not found): " + fileToCache);
-      }
-      catch (Exception e) {
-        LOGGER.warn("failed to cache file: " + fileToCache, e);
+    // decoding is CPU bound; the memory for decoding is limited by the image cache itself
+    int threads = Math.max(Math.min(Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS), files.size()), 1);
+    stage = new PipelineStage("imagecache", threads, threads * 2);
+    if (cancel) {
+      stage.cancel();
+    }
+    final long start = System.currentTimeMillis();
+    for (final Path fileToCache : files) {
+      if (cancel) {
+        break;
       }
+      stage.submit(new Runnable() {
+        @Override
+        public void run() {
+          cacheImage(fileToCache);
+          imageCached(start);
+        }
+      });
+    }
+
+    try {
+      stage.awaitCompletion();
+    }
+    catch (InterruptedException e) {
+      stage.cancel();
+    }
+    stage.shutdown();
+    LOGGER.info(stage.getStatistics());
+    long mb = 1024 * 1024;
+    LOGGER.info("image cache: " + statistics.getCount() + " images written, " + statistics.getOriginalSize() / mb + " MB of originals cached in "
+        + statistics.getCachedSize() / mb + " MB (" + (statistics.getOriginalSize() - statistics.getCachedSize()) / mb + " MB saved); " + statistics);
+  }
+
+  private void cacheImage(Path fileToCache) {
+    try {
+      ImageCache.cacheImage(fileToCache, statistics);
+    }
+    catch (EmptyFileException e) {
+      LOGGER.warn("failed to cache file (file is empty): " + fileToCache);
+    }
+    catch (FileNotFoundException e) {
+      LOGGER.warn("failed to cache file (file not found): " + fileToCache);
+    }
+    catch (Exception e) {
+      LOGGER.warn("failed to cache file: " + fileToCache, e);
+    }
+  }
+
+  /**
+   * report the progress and the throughput
+   */
+  private synchronized void imageCached(long start) {
+    cached++;
+    double seconds = (System.currentTimeMillis() - start) / 1000d;
+    String throughput = seconds > 0 ? String.format(Locale.ROOT, "%d/%d (%.1f/s)", cached, workUnits, cached / seconds) : null;
+    publishState(throughput, cached);
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    if (stage != null) {
+      stage.cancel();
     }
   }
 }
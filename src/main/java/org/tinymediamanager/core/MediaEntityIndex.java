@@ -0,0 +1,287 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.entities.MediaEntity;
+
+/**
+ * The class MediaEntityIndex. Secondary hash indexes (database id, path and the provider ids like imdb, tmdb and tvdb) for the entities of a list.
+ * Lookups are lock free; the index is kept up to date by the entities themselves when their path or ids change.
+ *
+ * @author Manuel Laggner
+ */
+public class MediaEntityIndex<T extends MediaEntity> {
+  private final ConcurrentMap<UUID, T>                      byId;
+  private final ConcurrentMap<Path, List<T>>                byPath;
+  private final Map<String, ConcurrentMap<String, List<T>>> byProviderId;
+  private final ConcurrentMap<UUID, IndexKeys>              keys;
+
+  /**
+   * create a new index
+   *
+   * @param providerIds
+   *          the provider ids to index (like imdb, tmdb, tvdb)
+   */
+  public MediaEntityIndex(String... providerIds) {
+    this.byId = new ConcurrentHashMap<>();
+    this.byPath = new ConcurrentHashMap<>();
+    this.keys = new ConcurrentHashMap<>();
+
+    Map<String, ConcurrentMap<String, List<T>>> providerMaps = new HashMap<>();
+    for (String providerId : providerIds) {
+      providerMaps.put(providerId, new ConcurrentHashMap<String, List<T>>());
+    }
+    this.byProviderId = Collections.unmodifiableMap(providerMaps);
+  }
+
+  /**
+   * normalize the given path for the index
+   *
+   * @param path
+   *          the path to normalize
+   * @return the absolute, normalized path
+   */
+  public static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+
+  /**
+   * add the given entity to the index
+   *
+   * @param entity
+   *          the entity to add
+   */
+  public synchronized void add(T entity) {
+    byId.put(entity.getDbId(), entity);
+    IndexKeys newKeys = new IndexKeys(entity, byProviderId.keySet());
+    IndexKeys oldKeys = keys.put(entity.getDbId(), newKeys);
+    if (oldKeys != null) {
+      unindex(entity, oldKeys);
+    }
+    index(entity, newKeys);
+    entity.setIndex(this);
+  }
+
+  /**
+   * add all given entities to the index
+   *
+   * @param entities
+   *          the entities to add
+   */
+  public synchronized void addAll(Collection<? extends T> entities) {
+    for (T entity : entities) {
+      add(entity);
+    }
+  }
+
+  /**
+   * remove the given entity from the index
+   *
+   * @param entity
+   *          the entity to remove
+   */
+  public synchronized void remove(T entity) {
+    entity.setIndex(null);
+    byId.remove(entity.getDbId(), entity);
+    IndexKeys oldKeys = keys.remove(entity.getDbId());
+    if (oldKeys != null) {
+      unindex(entity, oldKeys);
+    }
+  }
+
+  /**
+   * re-index the given entity (after the path or an id has been changed). Called by the entity itself
+   *
+   * @param entity
+   *          the changed entity
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized void update(MediaEntity entity) {
+    T typedEntity = (T) entity;
+    IndexKeys oldKeys = keys.get(entity.getDbId());
+    if (oldKeys == null) {
+      // not (or not anymore) in this index
+      return;
+    }
+    IndexKeys newKeys = new IndexKeys(entity, byProviderId.keySet());
+    if (!newKeys.equals(oldKeys)) {
+      unindex(typedEntity, oldKeys);
+      keys.put(entity.getDbId(), newKeys);
+      index(typedEntity, newKeys);
+    }
+  }
+
+  /**
+   * is the given property relevant for the index?
+   *
+   * @param propertyName
+   *          the name of the changed property
+   * @return true if the entity needs to be re-indexed
+   */
+  public boolean isIndexedProperty(String propertyName) {
+    return Constants.PATH.equals(propertyName) || byProviderId.containsKey(propertyName);
+  }
+
+  /**
+   * get the entity with the given database id
+   *
+   * @param uuid
+   *          the database id
+   * @return the entity or null
+   */
+  public T getById(UUID uuid) {
+    if (uuid == null) {
+      return null;
+    }
+    return byId.get(uuid);
+  }
+
+  /**
+   * get all entities with the given path
+   *
+   * @param path
+   *          the path
+   * @return a list of all entities with this path (never null)
+   */
+  public List<T> getByPath(Path path) {
+    if (path == null) {
+      return Collections.emptyList();
+    }
+    List<T> entities = byPath.get(normalize(path));
+    if (entities == null) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(entities);
+  }
+
+  /**
+   * get all entities with the given provider id
+   *
+   * @param providerId
+   *          the provider id (like imdb, tmdb, tvdb)
+   * @param id
+   *          the id
+   * @return a list of all entities with this id (never null)
+   */
+  public List<T> getByProviderId(String providerId, Object id) {
+    ConcurrentMap<String, List<T>> map = byProviderId.get(providerId);
+    String value = idToString(id);
+    if (map == null || value == null) {
+      return Collections.emptyList();
+    }
+    List<T> entities = map.get(value);
+    if (entities == null) {
+      return Collections.emptyList();
+    }
+    return new ArrayList<>(entities);
+  }
+
+  private void index(T entity, IndexKeys indexKeys) {
+    if (indexKeys.path != null) {
+      addToBucket(byPath, indexKeys.path, entity);
+    }
+    for (Map.Entry<String, String> entry : indexKeys.providerIds.entrySet()) {
+      addToBucket(byProviderId.get(entry.getKey()), entry.getValue(), entity);
+    }
+  }
+
+  private void unindex(T entity, IndexKeys indexKeys) {
+    if (indexKeys.path != null) {
+      removeFromBucket(byPath, indexKeys.path, entity);
+    }
+    for (Map.Entry<String, String> entry : indexKeys.providerIds.entrySet()) {
+      removeFromBucket(byProviderId.get(entry.getKey()), entry.getValue(), entity);
+    }
+  }
+
+  private <K> void addToBucket(ConcurrentMap<K, List<T>> map, K key, T entity) {
+    List<T> bucket = map.get(key);
+    if (bucket == null) {
+      bucket = new CopyOnWriteArrayList<>();
+      map.put(key, bucket);
+    }
+    if (!bucket.contains(entity)) {
+      bucket.add(entity);
+    }
+  }
+
+  private <K> void removeFromBucket(ConcurrentMap<K, List<T>> map, K key, T entity) {
+    List<T> bucket = map.get(key);
+    if (bucket != null) {
+      bucket.remove(entity);
+      if (bucket.isEmpty()) {
+        map.remove(key);
+      }
+    }
+  }
+
+  private static String idToString(Object id) {
+    if (id == null) {
+      return null;
+    }
+    String value = String.valueOf(id);
+    if (StringUtils.isBlank(value) || "0".equals(value) || "null".equals(value)) {
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * the keys an entity is currently indexed with
+   */
+  private static class IndexKeys {
+    private final Path                path;
+    private final Map<String, String> providerIds = new HashMap<>(3);
+
+    IndexKeys(MediaEntity entity, Collection<String> providerIdNames) {
+      Path entityPath = entity.getPathNIO();
+      this.path = entityPath == null ? null : normalize(entityPath);
+      for (String providerId : providerIdNames) {
+        String value = idToString(entity.getId(providerId));
+        if (value != null) {
+          providerIds.put(providerId, value);
+        }
+      }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof IndexKeys)) {
+        return false;
+      }
+      IndexKeys other = (IndexKeys) obj;
+      return (path == null ? other.path == null : path.equals(other.path)) && providerIds.equals(other.providerIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return (path == null ? 0 : path.hashCode()) * 31 + providerIds.hashCode();
+    }
+  }
+}
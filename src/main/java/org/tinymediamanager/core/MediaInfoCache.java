@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+
+/**
+ * The class MediaInfoCache. A persistent cache for the results (snapshots) of MediaInfo. The results are stored by the fingerprint of the file
+ * (size, modification time and a hash of the first 64 KB), but not by its path, so
+ * <ul>
+ * <li>an unchanged file is never probed again (even on a forced reload)</li>
+ * <li>a moved or renamed file keeps its result</li>
+ * <li>a changed file does not match its old fingerprint and will be probed again</li>
+ * <li>different files with the same size and date (e.g. the VOBs of a DVD) do not share a result, since their content differs</li>
+ * </ul>
+ * The results of disc images are stored together with the accumulated duration and size of the probed files. Entries which have not been used
+ * for half a year (e.g. of changed or deleted files) are removed on startup.
+ *
+ * @author Manuel Laggner
+ */
+public class MediaInfoCache {
+  private static final Logger                 LOGGER    = LoggerFactory.getLogger(MediaInfoCache.class);
+  private static final String                 CACHE_DB  = "mediainfo.db";
+  private static final int                    HASH_SIZE = 64 * 1024;
+  private static final long                   MAX_AGE   = TimeUnit.DAYS.toMillis(180);
+
+  private static MediaInfoCache               instance;
+
+  private final MVStore                       mvStore;
+  private final MVMap<String, CachedSnapshot> snapshots;
+  // the time of the last use of every entry
+  private final MVMap<String, Long>           lastUsed;
+  private final AtomicLong                    hits      = new AtomicLong(0);
+  private final AtomicLong                    misses    = new AtomicLong(0);
+
+  MediaInfoCache(MVStore mvStore) {
+    this.mvStore = mvStore;
+    // the results of older versions are stored by other keys
+    for (String oldMap : new String[] { "snapshots", "files" }) {
+      if (mvStore.hasMap(oldMap)) {
+        mvStore.removeMap(mvStore.openMap(oldMap));
+      }
+    }
+    this.snapshots = mvStore.openMap("content");
+    this.lastUsed = mvStore.openMap("lastUsed");
+    prune(System.currentTimeMillis() - MAX_AGE);
+  }
+
+  /**
+   * get the cache (the database will be opened on the first call)
+   *
+   * @return the cache
+   */
+  public static synchronized MediaInfoCache getInstance() {
+    if (instance == null) {
+      MVStore mvStore = new MVStore.Builder().fileName(Paths.get(Settings.getInstance().getSettingsFolder(), CACHE_DB).toString()).compress()
+          .backgroundExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+              LOGGER.error("Error in the background thread of the mediainfo cache", e);
+            }
+          }).open();
+      instance = new MediaInfoCache(mvStore);
+    }
+    return instance;
+  }
+
+  /**
+   * close the cache (if it has been opened)
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      LOGGER.info("mediainfo cache: " + instance.getStatistics());
+      instance.mvStore.close();
+      instance = null;
+    }
+  }
+
+  /**
+   * get the cache key of a file: its size, modification time and a hash of its first 64 KB
+   *
+   * @param file
+   *          the file
+   * @param size
+   *          the size of the file
+   * @param lastModified
+   *          the modification time of the file in ms
+   * @return the key or null if the file cannot be cached (no fingerprint or not readable)
+   */
+  public static String getKey(Path file, long size, long lastModified) {
+    if (size <= 0 || lastModified <= 0) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    try (InputStream is = Files.newInputStream(file)) {
+      byte[] buffer = new byte[8192];
+      int remaining = HASH_SIZE;
+      int read;
+      while (remaining > 0 && (read = is.read(buffer, 0, Math.min(buffer.length, remaining))) > 0) {
+        crc.update(buffer, 0, read);
+        remaining -= read;
+      }
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not hash " + file + ": " + e.getMessage());
+      return null;
+    }
+    return size + ";" + lastModified + ";" + Long.toHexString(crc.getValue());
+  }
+
+  /**
+   * get the cached MediaInfo result for a file
+   *
+   * @param key
+   *          the key of the file (see {@link #getKey(Path, long, long)})
+   * @return the cached snapshot or null if the file has not been probed yet (or has been changed since)
+   */
+  public Map<StreamKind, List<Map<String, String>>> get(String key) {
+    CachedSnapshot cached = getEntry(key);
+    return cached == null ? null : cached.toSnapshot();
+  }
+
+  /**
+   * get the cached MediaInfo result for a disc image
+   *
+   * @param key
+   *          the key of the image (see {@link #getKey(Path, long, long)})
+   * @return the cached entry (with the accumulated duration and size of the probed files) or null if the image has not been probed yet
+   */
+  public CachedSnapshot getEntry(String key) {
+    if (key == null || mvStore.isClosed()) {
+      return null;
+    }
+    CachedSnapshot cached = snapshots.get(key);
+    if (cached == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    // the time of the last use only matters by the day; do not write it on every hit
+    long now = System.currentTimeMillis();
+    Long used = lastUsed.get(key);
+    if (used == null || now - used > TimeUnit.DAYS.toMillis(1)) {
+      lastUsed.put(key, now);
+    }
+    return cached;
+  }
+
+  /**
+   * store the MediaInfo result for a file
+   *
+   * @param key
+   *          the key of the file (see {@link #getKey(Path, long, long)})
+   * @param snapshot
+   *          the MediaInfo snapshot
+   */
+  public void put(String key, Map<StreamKind, List<Map<String, String>>> snapshot) {
+    put(key, snapshot, 0, 0);
+  }
+
+  /**
+   * store the MediaInfo result for a disc image
+   *
+   * @param key
+   *          the key of the image (see {@link #getKey(Path, long, long)})
+   * @param snapshot
+   *          the MediaInfo snapshot of the main file
+   * @param duration
+   *          the accumulated duration of the probed files in s
+   * @param discSize
+   *          the accumulated size of the files in the image
+   */
+  public void put(String key, Map<StreamKind, List<Map<String, String>>> snapshot, int duration, long discSize) {
+    if (key == null || snapshot == null || mvStore.isClosed()) {
+      return;
+    }
+    snapshots.put(key, new CachedSnapshot(snapshot, duration, discSize));
+    lastUsed.put(key, System.currentTimeMillis());
+  }
+
+  /**
+   * remove all entries which have not been used since the given time
+   *
+   * @param usedBefore
+   *          the time in ms
+   * @return the count of removed entries
+   */
+  int prune(long usedBefore) {
+    int removed = 0;
+    List<String> stale = new ArrayList<>();
+    for (String key : snapshots.keySet()) {
+      Long used = lastUsed.get(key);
+      if (used == null || used < usedBefore) {
+        stale.add(key);
+      }
+    }
+    for (String key : stale) {
+      snapshots.remove(key);
+      lastUsed.remove(key);
+      removed++;
+    }
+    if (removed > 0) {
+      LOGGER.debug("removed " + removed + " unused entries from the mediainfo cache");
+    }
+    return removed;
+  }
+
+  public int size() {
+    return snapshots.size();
+  }
+
+  public String getStatistics() {
+    return snapshots.size() + " entries, " + hits.get() + " hits, " + misses.get() + " misses";
+  }
+
+  /**
+   * the stored form of a snapshot: only serializable standard collections, keyed by the name of the stream kind
+   */
+  public static class CachedSnapshot implements Serializable {
+    private static final long                                                     serialVersionUID = 2L;
+
+    private final LinkedHashMap<String, ArrayList<LinkedHashMap<String, String>>> streams          = new LinkedHashMap<>();
+    private final int                                                             duration;
+    private final long                                                            discSize;
+
+    CachedSnapshot(Map<StreamKind, List<Map<String, String>>> snapshot, int duration, long discSize) {
+      this.duration = duration;
+      this.discSize = discSize;
+      for (Map.Entry<StreamKind, List<Map<String, String>>> entry : snapshot.entrySet()) {
+        ArrayList<LinkedHashMap<String, String>> list = new ArrayList<>();
+        for (Map<String, String> stream : entry.getValue()) {
+          list.add(new LinkedHashMap<>(stream));
+        }
+        streams.put(entry.getKey().name(), list);
+      }
+    }
+
+    public Map<StreamKind, List<Map<String, String>>> toSnapshot() {
+      Map<StreamKind, List<Map<String, String>>> snapshot = new EnumMap<>(StreamKind.class);
+      for (Map.Entry<String, ArrayList<LinkedHashMap<String, String>>> entry : streams.entrySet()) {
+        try {
+          List<Map<String, String>> list = new ArrayList<>();
+          for (LinkedHashMap<String, String> stream : entry.getValue()) {
+            list.add(new LinkedHashMap<>(stream));
+          }
+          snapshot.put(StreamKind.valueOf(entry.getKey()), list);
+        }
+        catch (IllegalArgumentException e) {
+          // unknown stream kind
+        }
+      }
+      return snapshot;
+    }
+
+    /**
+     * the accumulated duration of the probed files of a disc image in s
+     */
+    public int getDuration() {
+      return duration;
+    }
+
+    /**
+     * the accumulated size of the files of a disc image
+     */
+    public long getDiscSize() {
+      return discSize;
+    }
+  }
+}
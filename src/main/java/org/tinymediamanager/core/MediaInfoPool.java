@@ -0,0 +1,390 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.thirdparty.MediaInfo;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+
+/**
+ * The class MediaInfoPool. Probes files with MediaInfo from several threads:
+ * <ul>
+ * <li>the files are fed to MediaInfo through its buffer interface: only the requested parts are read, up to the read limit from the settings</li>
+ * <li>the native MediaInfo handles are reused (a handle is closed after every file, but only deleted when the pool is full)</li>
+ * <li>the count of parallel probes is limited per file store (drive/share), so a network share is not flooded with requests</li>
+ * <li>a probe which does not finish within the timeout is given up; the native call cannot be interrupted, so its (daemon) thread deletes the
+ * handle when the native call returns at last. Its slot of the file store is handed over to the waiting probes at once - up to a few hanging
+ * probes per file store; beyond that the slot is kept until the native call returns</li>
+ * <li>a probe which does not get a slot of its file store within the timeout is skipped</li>
+ * </ul>
+ *
+ * @author Manuel Laggner
+ */
+public class MediaInfoPool {
+  private static final Logger          LOGGER      = LoggerFactory.getLogger(MediaInfoPool.class);
+  private static final int             MAX_IDLE    = 8;
+  // the count of hanging probes per file store which do not block a slot
+  private static final int             MAX_HANGING = 2;
+
+  private static MediaInfoPool         instance;
+
+  private final Deque<MediaInfo>       idleHandles = new ArrayDeque<>();
+  private final ExecutorService        executor    = Executors.newCachedThreadPool(new ProbeThreadFactory());
+  // the I/O limits per file store and the file store of every probed folder
+  private final Map<Object, IoLimit>   storeLimits = new ConcurrentHashMap<>();
+  private final Map<Path, IoLimit>     ioLimits    = new ConcurrentHashMap<>();
+  private final AtomicLong             probes      = new AtomicLong(0);
+  private final AtomicLong             timeouts    = new AtomicLong(0);
+  private final AtomicLong             skipped     = new AtomicLong(0);
+  private final AtomicLong             handles     = new AtomicLong(0);
+  private final AtomicLong             bytesRead   = new AtomicLong(0);
+
+  private MediaInfoPool() {
+  }
+
+  public static synchronized MediaInfoPool getInstance() {
+    if (instance == null) {
+      instance = new MediaInfoPool();
+    }
+    return instance;
+  }
+
+  /**
+   * delete all idle handles and stop the probe threads
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      LOGGER.info("mediainfo pool: " + instance.getStatistics());
+      instance.executor.shutdownNow();
+      synchronized (instance.idleHandles) {
+        for (MediaInfo mediaInfo : instance.idleHandles) {
+          if (mediaInfo.isLoaded()) {
+            mediaInfo.dispose();
+          }
+        }
+        instance.idleHandles.clear();
+      }
+      instance = null;
+    }
+  }
+
+  /**
+   * probe the given file with MediaInfo; waits for a free slot of the file store and gives up after the timeout from the settings
+   *
+   * @param file
+   *          the file to probe
+   * @return the MediaInfo snapshot or null if the file could not be probed
+   */
+  public Map<StreamKind, List<Map<String, String>>> snapshot(Path file) {
+    return snapshot(file, new Probe(file, null, 0, null));
+  }
+
+  /**
+   * probe a stream inside the given file (e.g. a file in an ISO image) with MediaInfo
+   *
+   * @param file
+   *          the file containing the stream
+   * @param source
+   *          the source of the stream
+   * @param size
+   *          the size of the stream
+   * @param name
+   *          the name of the stream (for the formats which are detected by the extension)
+   * @return the MediaInfo snapshot or null if the stream could not be probed
+   */
+  public Map<StreamKind, List<Map<String, String>>> snapshot(Path file, MediaInfo.BufferSource source, long size, String name) {
+    return snapshot(file, new Probe(file, source, size, name));
+  }
+
+  private Map<StreamKind, List<Map<String, String>>> snapshot(Path file, Probe probe) {
+    IoLimit ioLimit = getIoLimit(file);
+    int timeout = Math.max(Settings.getInstance().getMediaInfoTimeout(), 1);
+    try {
+      if (!ioLimit.permits.tryAcquire(timeout, TimeUnit.SECONDS)) {
+        // the file store is blocked (e.g. by hanging probes)
+        skipped.incrementAndGet();
+        LOGGER.error("Mediainfo got no free slot within " + timeout + "s - skipping: " + file);
+        return null;
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    // the slot is released by the probe thread when the native call has finished
+    probe.ioLimit = ioLimit;
+
+    try {
+      probes.incrementAndGet();
+      probe.mediaInfo = borrow();
+      Future<Map<StreamKind, List<Map<String, String>>>> future = executor.submit(probe);
+      try {
+        return future.get(timeout, TimeUnit.SECONDS);
+      }
+      catch (TimeoutException e) {
+        timeouts.incrementAndGet();
+        abandon(probe, future);
+        LOGGER.error("Mediainfo did not finish within " + timeout + "s - giving up: " + file);
+      }
+      catch (ExecutionException e) {
+        LOGGER.error("Mediainfo could not open file: " + file + "; " + e.getCause().getMessage());
+      }
+      catch (InterruptedException e) {
+        abandon(probe, future);
+        Thread.currentThread().interrupt();
+      }
+      return null;
+    }
+    catch (Exception e) {
+      // e.g. the pool has been shut down - the probe has never been started
+      LOGGER.error("Mediainfo could not open file: " + file + "; " + e.getMessage());
+      probe.releaseIoLimit();
+      return null;
+    }
+  }
+
+  private void abandon(Probe probe, Future<?> future) {
+    probe.abandoned = true;
+    future.cancel(true);
+    synchronized (probe) {
+      if (!probe.started) {
+        // cancelled before it has been started; the probe thread will not release the slot
+        probe.releaseIoLimit();
+      }
+      else if (!probe.finished && probe.ioLimit.hanging.incrementAndGet() <= MAX_HANGING) {
+        // hand over the slot at once; the native call may hang for a long time
+        probe.hanging = true;
+        probe.releaseIoLimit();
+      }
+      else if (!probe.finished) {
+        // too many hanging probes on this file store - keep the slot until the native call returns
+        probe.ioLimit.hanging.decrementAndGet();
+      }
+    }
+  }
+
+  private MediaInfo borrow() {
+    synchronized (idleHandles) {
+      MediaInfo mediaInfo = idleHandles.pollFirst();
+      if (mediaInfo != null) {
+        return mediaInfo;
+      }
+    }
+    handles.incrementAndGet();
+    return new MediaInfo();
+  }
+
+  private void giveBack(MediaInfo mediaInfo) {
+    synchronized (idleHandles) {
+      if (idleHandles.size() < MAX_IDLE && !executor.isShutdown()) {
+        idleHandles.addFirst(mediaInfo);
+        return;
+      }
+    }
+    if (mediaInfo.isLoaded()) {
+      mediaInfo.dispose();
+    }
+  }
+
+  /**
+   * get the I/O limit of the file store of the given file; the file store is looked up once per folder
+   */
+  private IoLimit getIoLimit(Path file) {
+    Path folder = file.toAbsolutePath().getParent();
+    IoLimit ioLimit = ioLimits.get(folder);
+    if (ioLimit == null) {
+      Object store;
+      try {
+        store = Files.getFileStore(file);
+      }
+      catch (IOException e) {
+        store = file.toAbsolutePath().getRoot();
+      }
+      ioLimit = storeLimits.get(store);
+      if (ioLimit == null) {
+        int permits = Utils.isNetworkShare(file) ? Settings.getInstance().getMediaInfoThreadsNetwork() : Settings.getInstance().getMediaInfoThreads();
+        storeLimits.putIfAbsent(store, new IoLimit(Math.max(permits, 1)));
+        ioLimit = storeLimits.get(store);
+      }
+      ioLimits.put(folder, ioLimit);
+    }
+    return ioLimit;
+  }
+
+  /**
+   * get the count of parallel probes which is useful for the tasks (the file stores are limited by the pool itself)
+   *
+   * @return the count of threads
+   */
+  public static int getThreadCount() {
+    return Math.max(Math.max(Settings.getInstance().getMediaInfoThreads(), Settings.getInstance().getMediaInfoThreadsNetwork()), 1);
+  }
+
+  public String getStatistics() {
+    return probes.get() + " probes, " + bytesRead.get() / (1024 * 1024) + " MB read, " + timeouts.get() + " timeouts, " + skipped.get()
+        + " skipped, " + handles.get() + " native handles created";
+  }
+
+  /**
+   * a single probe running in a probe thread
+   */
+  private class Probe implements Callable<Map<StreamKind, List<Map<String, String>>>> {
+    private final Path                   file;
+    private final MediaInfo.BufferSource source;
+    private final long                   size;
+    private final String                 name;
+    private final AtomicBoolean          released  = new AtomicBoolean(false);
+    private MediaInfo                    mediaInfo;
+    private IoLimit                      ioLimit;
+    private volatile boolean             started   = false;
+    private volatile boolean             abandoned = false;
+    // guarded by this probe
+    private boolean                      finished  = false;
+    private boolean                      hanging   = false;
+
+    private Probe(Path file, MediaInfo.BufferSource source, long size, String name) {
+      this.file = file;
+      this.source = source;
+      this.size = size;
+      this.name = name;
+    }
+
+    @Override
+    public Map<StreamKind, List<Map<String, String>>> call() throws Exception {
+      synchronized (this) {
+        started = true;
+      }
+      boolean broken = false;
+      try {
+        long readLimit = Settings.getInstance().getMediaInfoReadLimit() * 1024L * 1024L;
+        if (source != null) {
+          long read = mediaInfo.openBuffered(source, size, name, readLimit > 0 ? readLimit : Long.MAX_VALUE);
+          if (read < 0) {
+            LOGGER.error("Mediainfo could not open stream " + name + " in " + file);
+            return null;
+          }
+          bytesRead.addAndGet(read);
+          LOGGER.debug("Mediainfo read " + read / 1024 + " KB of " + name + " in " + file);
+        }
+        else if (readLimit > 0) {
+          // feed only the requested parts of the file to MediaInfo
+          long read = mediaInfo.openBuffered(file, readLimit);
+          if (read < 0) {
+            LOGGER.error("Mediainfo could not open file: " + file);
+            return null;
+          }
+          bytesRead.addAndGet(read);
+          LOGGER.debug("Mediainfo read " + read / 1024 + " KB of " + file);
+        }
+        else if (!mediaInfo.open(file)) {
+          LOGGER.error("Mediainfo could not open file: " + file);
+          return null;
+        }
+        return mediaInfo.snapshot();
+      }
+      catch (Exception | Error e) {
+        // do not reuse a handle after an error of the native library
+        broken = true;
+        throw e;
+      }
+      finally {
+        try {
+          mediaInfo.close();
+          if (abandoned) {
+            // the caller gave up on this probe; the handle may be in an inconsistent state - never reuse it
+            LOGGER.info("abandoned Mediainfo probe finished after all: " + file);
+            if (mediaInfo.isLoaded()) {
+              mediaInfo.dispose();
+            }
+          }
+          else if (!broken) {
+            giveBack(mediaInfo);
+          }
+          else if (mediaInfo.isLoaded()) {
+            mediaInfo.dispose();
+          }
+        }
+        finally {
+          synchronized (this) {
+            finished = true;
+            if (hanging) {
+              ioLimit.hanging.decrementAndGet();
+            }
+          }
+          releaseIoLimit();
+        }
+      }
+    }
+
+    /**
+     * release the slot of the file store (only once)
+     */
+    private void releaseIoLimit() {
+      if (ioLimit != null && released.compareAndSet(false, true)) {
+        ioLimit.permits.release();
+      }
+    }
+  }
+
+  /**
+   * the I/O limit of a file store
+   */
+  private static class IoLimit {
+    private final Semaphore     permits;
+    // the probes which hang in the native call without blocking a slot
+    private final AtomicInteger hanging = new AtomicInteger(0);
+
+    private IoLimit(int permits) {
+      this.permits = new Semaphore(permits);
+    }
+  }
+
+  /**
+   * probe threads are daemons - a hanging native call must never block the shutdown of tmm
+   */
+  private static class ProbeThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "tmmpool-mediainfo-probe-T" + threadNumber.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
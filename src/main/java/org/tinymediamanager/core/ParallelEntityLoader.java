@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.h2.mvstore.MVMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaEntity;
+
+/**
+ * The class ParallelEntityLoader. Used to decode all entities of a MVMap in parallel. The key space of the map is partitioned into chunks which are
+ * decoded in a fork join pool; the results are returned in key order so they can be added to the observable lists in one batch.<br>
+ * Corrupt entries are collected and dropped from the map after decoding (the same behaviour as the sequential loading)
+ *
+ * @author Manuel Laggner
+ */
+public class ParallelEntityLoader<T extends MediaEntity> {
+  private static final Logger  LOGGER         = LoggerFactory.getLogger(ParallelEntityLoader.class);
+  private static final int     MIN_CHUNK_SIZE = 500;
+
+  private final EntityCodec<T> codec;
+  private final String         entityName;
+  private final boolean        parallel;
+
+  /**
+   * create a new loader for the given entity type
+   *
+   * @param codec
+   *          the (thread safe) codec for the entity type
+   * @param entityName
+   *          a name of the entity type for logging
+   */
+  public ParallelEntityLoader(EntityCodec<T> codec, String entityName) {
+    this(codec, entityName, Runtime.getRuntime().availableProcessors() > 1);
+  }
+
+  /**
+   * create a new loader for the given entity type
+   *
+   * @param codec
+   *          the (thread safe) codec for the entity type
+   * @param entityName
+   *          a name of the entity type for logging
+   * @param parallel
+   *          decode in parallel or in the calling thread
+   */
+  public ParallelEntityLoader(EntityCodec<T> codec, String entityName, boolean parallel) {
+    this.codec = codec;
+    this.entityName = entityName;
+    this.parallel = parallel;
+  }
+
+  /**
+   * decode all entities from the given map. Corrupt entries will be removed from the map
+   *
+   * @param map
+   *          the map to load the entities from
+   * @return a list of all decoded entities (in key order)
+   */
+  public List<T> load(MVMap<UUID, Object> map) {
+    long start = System.currentTimeMillis();
+
+    List<UUID> keys = new ArrayList<>(map.keyList());
+    List<T> result = new ArrayList<>(keys.size());
+    List<UUID> corruptEntries = Collections.synchronizedList(new ArrayList<UUID>());
+
+    if (!keys.isEmpty()) {
+      @SuppressWarnings("unchecked")
+      T[] entities = (T[]) new MediaEntity[keys.size()];
+      int threads = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+
+      if (threads > 1 && keys.size() > MIN_CHUNK_SIZE) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, keys.size() / (threads * 4));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+          pool.invoke(new DecodeAction(map, keys, entities, corruptEntries, 0, keys.size(), chunkSize));
+        }
+        finally {
+          pool.shutdown();
+        }
+      }
+      else {
+        decode(map, keys, entities, corruptEntries, 0, keys.size());
+      }
+
+      for (T entity : entities) {
+        if (entity != null) {
+          result.add(entity);
+        }
+      }
+    }
+
+    // drop corrupt entries
+    for (UUID uuid : corruptEntries) {
+      LOGGER.info("dropping corrupt " + entityName);
+      map.remove(uuid);
+    }
+
+    LOGGER.debug("decoded " + result.size() + " " + entityName + "s in " + (System.currentTimeMillis() - start) + " ms");
+    return result;
+  }
+
+  private void decode(MVMap<UUID, Object> map, List<UUID> keys, T[] entities, List<UUID> corruptEntries, int from, int to) {
+    for (int i = from; i < to; i++) {
+      UUID uuid = keys.get(i);
+      try {
+        T entity = codec.decode(map.get(uuid));
+        entity.setDbId(uuid);
+        // freshly loaded from the database - nothing to persist
+        entity.clearDirty();
+        entities[i] = entity;
+      }
+      catch (Exception e) {
+        LOGGER.warn("problem decoding " + entityName + " entry: " + e.getMessage());
+        corruptEntries.add(uuid);
+      }
+    }
+  }
+
+  /**
+   * the fork join action which splits the key range until it is smaller than the chunk size
+   */
+  private class DecodeAction extends RecursiveAction {
+    private static final long         serialVersionUID = 4613372829416218537L;
+
+    private final MVMap<UUID, Object> map;
+    private final List<UUID>          keys;
+    private final T[]                 entities;
+    private final List<UUID>          corruptEntries;
+    private final int                 from;
+    private final int                 to;
+    private final int                 chunkSize;
+
+    DecodeAction(MVMap<UUID, Object> map, List<UUID> keys, T[] entities, List<UUID> corruptEntries, int from, int to, int chunkSize) {
+      this.map = map;
+      this.keys = keys;
+      this.entities = entities;
+      this.corruptEntries = corruptEntries;
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= chunkSize) {
+        decode(map, keys, entities, corruptEntries, from, to);
+        return;
+      }
+
+      int middle = from + (to - from) / 2;
+      invokeAll(new DecodeAction(map, keys, entities, corruptEntries, from, middle, chunkSize),
+          new DecodeAction(map, keys, entities, corruptEntries, middle, to, chunkSize));
+    }
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaEntity;
+
+/**
+ * The class PersistenceQueue. A write-behind queue for the persistence of entities into a MVStore. Repeated saves of the same entity are coalesced
+ * until the next flush; every flush writes all pending entities and commits the store explicitly. A failed write is retried with the next flushes.
+ *
+ * @author Manuel Laggner
+ */
+public class PersistenceQueue {
+  private static final Logger              LOGGER         = LoggerFactory.getLogger(PersistenceQueue.class);
+  private static final int                 FLUSH_DELAY_MS = 1000;
+  private static final int                 MAX_PENDING    = 500;
+  private static final int                 MAX_ATTEMPTS   = 3;
+
+  private final String                     name;
+  private final MVStore                    mvStore;
+  private final Map<UUID, PendingWrite<?>> pending        = new LinkedHashMap<>();
+  private final ReentrantLock              flushLock      = new ReentrantLock();
+  private final ScheduledExecutorService   executor;
+
+  // metrics
+  private final AtomicLong                 enqueued       = new AtomicLong();
+  private final AtomicLong                 coalesced      = new AtomicLong();
+  private final AtomicLong                 written        = new AtomicLong();
+  private final AtomicLong                 failed         = new AtomicLong();
+  private final AtomicLong                 commits        = new AtomicLong();
+  private final AtomicLong                 totalLatency   = new AtomicLong();
+  private final AtomicLong                 maxLatency     = new AtomicLong();
+
+  /**
+   * the interface for the actual write of an entity into the store
+   */
+  public interface EntityWriter<T extends MediaEntity> {
+    void write(T entity) throws Exception;
+  }
+
+  /**
+   * create a new persistence queue for the given store
+   *
+   * @param name
+   *          the name of the queue (for logging and the thread name)
+   * @param mvStore
+   *          the store to commit after every flush
+   */
+  public PersistenceQueue(final String name, MVStore mvStore) {
+    this.name = name;
+    this.mvStore = mvStore;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "persistence-" + name);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, FLUSH_DELAY_MS, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * enqueue the given entity for persisting. If the entity is already in the queue, the writes will be coalesced
+   *
+   * @param entity
+   *          the entity to persist
+   * @param writer
+   *          the writer doing the actual write into the store
+   */
+  public <T extends MediaEntity> void enqueue(T entity, EntityWriter<T> writer) {
+    if (executor.isShutdown()) {
+      // already shut down - write directly
+      synchronized (pending) {
+        pending.put(entity.getDbId(), new PendingWrite<>(entity, writer, System.currentTimeMillis(), 1));
+      }
+      flushWithRetries();
+      return;
+    }
+
+    int size;
+    synchronized (pending) {
+      enqueued.incrementAndGet();
+      PendingWrite<?> existing = pending.get(entity.getDbId());
+      if (existing != null) {
+        coalesced.incrementAndGet();
+        if (existing.entity == entity) {
+          return;
+        }
+      }
+      // new entity or another instance with the same id - the latest one wins
+      pending.put(entity.getDbId(), new PendingWrite<>(entity, writer, existing == null ? System.currentTimeMillis() : existing.enqueueTime, 1));
+      size = pending.size();
+    }
+
+    // flush immediately if there are too many pending writes
+    if (size == MAX_PENDING) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      });
+    }
+  }
+
+  /**
+   * remove a pending write of the given entity (e.g. if the entity is being deleted). After this call, no write of this entity is in progress
+   *
+   * @param entity
+   *          the entity to discard
+   */
+  public void discard(MediaEntity entity) {
+    flushLock.lock();
+    try {
+      synchronized (pending) {
+        pending.remove(entity.getDbId());
+      }
+    }
+    finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * write all pending entities and commit the store
+   */
+  public void flush() {
+    flushLock.lock();
+    try {
+      List<PendingWrite<?>> writes;
+      synchronized (pending) {
+        writes = new ArrayList<>(pending.values());
+        pending.clear();
+      }
+
+      for (PendingWrite<?> write : writes) {
+        write(write);
+      }
+
+      // commit also changes which did not come through the queue (like removals)
+      if (!mvStore.isClosed() && mvStore.hasUnsavedChanges()) {
+        mvStore.commit();
+        commits.incrementAndGet();
+        if (!writes.isEmpty()) {
+          LOGGER.trace(name + ": committed " + writes.size() + " entities; " + getMetrics());
+        }
+      }
+    }
+    catch (Exception e) {
+      LOGGER.error(name + ": problem flushing the persistence queue: " + e.getMessage());
+    }
+    finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void write(PendingWrite<?> write) {
+    try {
+      write.write();
+      written.incrementAndGet();
+
+      long latency = System.currentTimeMillis() - write.enqueueTime;
+      totalLatency.addAndGet(latency);
+      long max = maxLatency.get();
+      while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+        max = maxLatency.get();
+      }
+    }
+    catch (Exception e) {
+      if (write.attempt < MAX_ATTEMPTS) {
+        LOGGER.warn(name + ": failed to persist " + write.entity.getTitle() + " - trying again: " + e.getMessage());
+        retry(write);
+      }
+      else {
+        failed.incrementAndGet();
+        LOGGER.error(name + ": failed to persist " + write.entity.getTitle() + " after " + MAX_ATTEMPTS + " attempts: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * enqueue a failed write again (if there is no newer write of the same entity)
+   */
+  private void retry(PendingWrite<?> write) {
+    synchronized (pending) {
+      if (!pending.containsKey(write.entity.getDbId())) {
+        pending.put(write.entity.getDbId(), write.nextAttempt());
+      }
+    }
+  }
+
+  /**
+   * flush until all pending writes (including the retries of failed writes) are done
+   */
+  private void flushWithRetries() {
+    for (int i = 0; i < MAX_ATTEMPTS && getQueueDepth() > 0; i++) {
+      flush();
+    }
+  }
+
+  /**
+   * flush all pending writes and stop the queue. All following writes will be done synchronously
+   */
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException ignored) {
+      Thread.currentThread().interrupt();
+    }
+    flushWithRetries();
+    LOGGER.info(name + ": " + getMetrics());
+  }
+
+  /**
+   * get the count of pending writes
+   *
+   * @return the queue depth
+   */
+  public int getQueueDepth() {
+    synchronized (pending) {
+      return pending.size();
+    }
+  }
+
+  public long getEnqueuedCount() {
+    return enqueued.get();
+  }
+
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  public long getCommitCount() {
+    return commits.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * get the average latency between enqueuing and writing an entity
+   *
+   * @return the average latency in ms
+   */
+  public long getAverageLatency() {
+    long count = written.get();
+    return count == 0 ? 0 : totalLatency.get() / count;
+  }
+
+  public long getMaxLatency() {
+    return maxLatency.get();
+  }
+
+  /**
+   * get a human readable string of all metrics
+   *
+   * @return the metrics as string
+   */
+  public String getMetrics() {
+    return "queue depth: " + getQueueDepth() + ", enqueued: " + getEnqueuedCount() + ", coalesced: " + getCoalescedCount() + ", written: "
+        + getWrittenCount() + ", failed: " + getFailedCount() + ", commits: " + getCommitCount() + ", avg latency: " + getAverageLatency()
+        + " ms, max latency: " + getMaxLatency() + " ms";
+  }
+
+  /**
+   * a pending write of an entity
+   */
+  private static class PendingWrite<T extends MediaEntity> {
+    private final T               entity;
+    private final EntityWriter<T> writer;
+    private final long            enqueueTime;
+    private final int             attempt;
+
+    PendingWrite(T entity, EntityWriter<T> writer, long enqueueTime, int attempt) {
+      this.entity = entity;
+      this.writer = writer;
+      this.enqueueTime = enqueueTime;
+      this.attempt = attempt;
+    }
+
+    PendingWrite<T> nextAttempt() {
+      return new PendingWrite<>(entity, writer, enqueueTime, attempt + 1);
+    }
+
+    void write() throws Exception {
+      writer.write(entity);
+    }
+  }
+}
@@ -52,6 +52,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.ReleaseInfo;
 import org.tinymediamanager.core.ImageCache.CacheType;
+import org.tinymediamanager.core.ImageCacheEncoder.TransparentFormat;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.movie.MovieFanartNaming;
 import org.tinymediamanager.core.movie.MovieNfoNaming;
@@ -96,9 +97,19 @@ public class Settings extends AbstractModelObject {
   private final static String         PROXY_PASSWORD              = "proxyPassword";
   private final static String         IMAGE_CACHE                 = "imageCache";
   private final static String         IMAGE_CACHE_TYPE            = "imageCacheType";
+  private final static String         IMAGE_CACHE_SIZE            = "imageCacheSize";
+  private final static String         IMAGE_CACHE_FORMAT          = "imageCacheFormat";
   private final static String         LANGUAGE                    = "language";
   private final static String         WOL_DEVICES                 = "wolDevices";
   private final static String         ENABLE_ANALYTICS            = "enableAnalytics";
+  private final static String         BINARY_DATABASE             = "binaryDatabase";
+  private final static String         DETAIL_CACHE_SIZE           = "detailCacheSize";
+  private final static String         MONITOR_DATASOURCES         = "monitorDatasources";
+  private final static String         DATASOURCE_POLL_INTERVAL    = "datasourcePollInterval";
+  private final static String         MEDIAINFO_THREADS           = "mediaInfoThreads";
+  private final static String         MEDIAINFO_THREADS_NETWORK   = "mediaInfoThreadsNetwork";
+  private final static String         MEDIAINFO_TIMEOUT           = "mediaInfoTimeout";
+  private final static String         MEDIAINFO_READ_LIMIT        = "mediaInfoReadLimit";
 
   private final static String         UPNP_SHARE_LIBRARY          = "upnpShareLibrary";
   private final static String         UPNP_PLAY_ON_REMOTE         = "upnpRemotePlay";
@@ -139,6 +150,8 @@ public class Settings extends AbstractModelObject {
 
   private boolean                     imageCache                  = true;
   private CacheType                   imageCacheType              = CacheType.SMOOTH;
+  private int                         imageCacheSize              = 2048;
+  private TransparentFormat           imageCacheFormat            = TransparentFormat.PNG;
   private boolean                     dirty                       = false;
   private MovieSettings               movieSettings               = null;
   private TvShowSettings              tvShowSettings              = null;
@@ -154,6 +167,14 @@ public class Settings extends AbstractModelObject {
 
   private boolean                     deleteTrashOnExit           = false;
   private boolean                     enableAnalytics             = true;
+  private boolean                     binaryDatabase              = false;
+  private int                         detailCacheSize             = 0;
+  private boolean                     monitorDatasources          = false;
+  private int                         datasourcePollInterval      = 300;
+  private int                         mediaInfoThreads            = 2;
+  private int                         mediaInfoThreadsNetwork     = 1;
+  private int                         mediaInfoTimeout            = 120;
+  private int                         mediaInfoReadLimit          = 32;
 
   private PropertyChangeListener      propertyChangeListener;
   @XmlTransient
@@ -993,6 +1014,39 @@ public class Settings extends AbstractModelObject {
     firePropertyChange(IMAGE_CACHE_TYPE, oldValue, newValue);
   }
 
+  public int getImageCacheSize() {
+    return imageCacheSize;
+  }
+
+  /**
+   * the maximum size of the image cache; the least recently used images are removed by the image cache sweeper. 0 means no limit
+   * 
+   * @param newValue
+   *          the maximum size in MB
+   */
+  public void setImageCacheSize(int newValue) {
+    int oldValue = this.imageCacheSize;
+    this.imageCacheSize = newValue;
+    firePropertyChange(IMAGE_CACHE_SIZE, oldValue, newValue);
+  }
+
+  public TransparentFormat getImageCacheFormat() {
+    return imageCacheFormat;
+  }
+
+  /**
+   * the format of the cached images with transparency (opaque images are always cached as jpg). WebP is only used if an ImageIO WebP plugin is
+   * available - otherwise png is used
+   * 
+   * @param newValue
+   *          the format for transparent images
+   */
+  public void setImageCacheFormat(TransparentFormat newValue) {
+    TransparentFormat oldValue = this.imageCacheFormat;
+    this.imageCacheFormat = newValue;
+    firePropertyChange(IMAGE_CACHE_FORMAT, oldValue, newValue);
+  }
+
   /**
    * is our library shared via UPNP?
    * 
@@ -1175,4 +1229,135 @@ public class Settings extends AbstractModelObject {
     this.enableAnalytics = newValue;
     firePropertyChange(ENABLE_ANALYTICS, oldValue, newValue);
   }
+
+  public boolean isBinaryDatabase() {
+    return binaryDatabase;
+  }
+
+  /**
+   * store the entities in the compact binary format (instead of JSON). The database will be migrated on the next start
+   * 
+   * @param newValue
+   *          true to use the binary format
+   */
+  public void setBinaryDatabase(boolean newValue) {
+    boolean oldValue = this.binaryDatabase;
+    this.binaryDatabase = newValue;
+    firePropertyChange(BINARY_DATABASE, oldValue, newValue);
+  }
+
+  public int getDetailCacheSize() {
+    return detailCacheSize;
+  }
+
+  /**
+   * keep only the details (plot, cast, ...) of the given count of movies/episodes in memory; the details of all others are loaded from the database
+   * on demand. 0 keeps everything in memory
+   * 
+   * @param newValue
+   *          the count of movies/episodes with details in memory
+   */
+  public void setDetailCacheSize(int newValue) {
+    int oldValue = this.detailCacheSize;
+    this.detailCacheSize = newValue;
+    firePropertyChange(DETAIL_CACHE_SIZE, oldValue, newValue);
+  }
+
+  public boolean isMonitorDatasources() {
+    return monitorDatasources;
+  }
+
+  /**
+   * watch the data sources for changes and update the changed folders automatically (instead of a manual/scheduled update of the whole data
+   * source)
+   * 
+   * @param newValue
+   *          true to monitor the data sources
+   */
+  public void setMonitorDatasources(boolean newValue) {
+    boolean oldValue = this.monitorDatasources;
+    this.monitorDatasources = newValue;
+    firePropertyChange(MONITOR_DATASOURCES, oldValue, newValue);
+  }
+
+  public int getDatasourcePollInterval() {
+    return datasourcePollInterval;
+  }
+
+  /**
+   * the interval for polling the data sources which cannot be watched by the file system (e.g. network shares)
+   * 
+   * @param newValue
+   *          the poll interval in seconds
+   */
+  public void setDatasourcePollInterval(int newValue) {
+    int oldValue = this.datasourcePollInterval;
+    this.datasourcePollInterval = newValue;
+    firePropertyChange(DATASOURCE_POLL_INTERVAL, oldValue, newValue);
+  }
+
+  public int getMediaInfoThreads() {
+    return mediaInfoThreads;
+  }
+
+  /**
+   * the maximum count of files probed by MediaInfo at the same time on one local drive
+   * 
+   * @param newValue
+   *          the count of parallel probes
+   */
+  public void setMediaInfoThreads(int newValue) {
+    int oldValue = this.mediaInfoThreads;
+    this.mediaInfoThreads = newValue;
+    firePropertyChange(MEDIAINFO_THREADS, oldValue, newValue);
+  }
+
+  public int getMediaInfoThreadsNetwork() {
+    return mediaInfoThreadsNetwork;
+  }
+
+  /**
+   * the maximum count of files probed by MediaInfo at the same time on one network share
+   * 
+   * @param newValue
+   *          the count of parallel probes
+   */
+  public void setMediaInfoThreadsNetwork(int newValue) {
+    int oldValue = this.mediaInfoThreadsNetwork;
+    this.mediaInfoThreadsNetwork = newValue;
+    firePropertyChange(MEDIAINFO_THREADS_NETWORK, oldValue, newValue);
+  }
+
+  public int getMediaInfoTimeout() {
+    return mediaInfoTimeout;
+  }
+
+  /**
+   * the time after which a MediaInfo probe is given up (e.g. a broken file which hangs the native library)
+   * 
+   * @param newValue
+   *          the timeout in seconds
+   */
+  public void setMediaInfoTimeout(int newValue) {
+    int oldValue = this.mediaInfoTimeout;
+    this.mediaInfoTimeout = newValue;
+    firePropertyChange(MEDIAINFO_TIMEOUT, oldValue, newValue);
+  }
+
+  public int getMediaInfoReadLimit() {
+    return mediaInfoReadLimit;
+  }
+
+  /**
+   * the maximum amount of data MediaInfo may read from a single file (the headers and indices are enough for the technical data). 0 lets
+   * MediaInfo read the file on its own without any limit
+   * 
+   * @param newValue
+   *          the limit in MB
+   */
+  public void setMediaInfoReadLimit(int newValue) {
+    int oldValue = this.mediaInfoReadLimit;
+    this.mediaInfoReadLimit = newValue;
+    firePropertyChange(MEDIAINFO_READ_LIMIT, oldValue, newValue);
+  }
 }
@@ -52,7 +52,9 @@ public class TmmModuleManager {
       throw new Exception("module " + module.getModuleTitle() + " not registered");
     }
 
+    long start = System.currentTimeMillis();
     module.startUp();
+    LOGGER.info("startup of module " + module.getModuleTitle() + " took " + (System.currentTimeMillis() - start) + " ms");
   }
 
   public void disableModule(ITmmModule module) throws Exception {
@@ -67,7 +69,7 @@ public class TmmModuleManager {
    * start up tmm - do initialization code here
    */
   public void startUp() {
-
+    ImageCacheIndex.getInstance().startSweeper();
   }
 
   /**
@@ -84,6 +86,9 @@ public class TmmModuleManager {
         }
       }
     }
+    MediaInfoPool.shutdown();
+    MediaInfoCache.shutdown();
+    ImageCacheIndex.shutdown();
   }
 
   /**
@@ -44,6 +44,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
@@ -78,28 +79,32 @@ import org.tinymediamanager.scraper.util.StrgUtils;
  * @author Manuel Laggner / Myron Boyle
  */
 public class Utils {
-  private static final Logger  LOGGER                = LoggerFactory.getLogger(Utils.class);
-  private static final Pattern localePattern         = Pattern.compile("messages_(.{2})_?(.{2}){0,1}\\.properties", Pattern.CASE_INSENSITIVE);
+  private static final Logger       LOGGER                = LoggerFactory.getLogger(Utils.class);
+  private static final Pattern      localePattern         = Pattern.compile("messages_(.{2})_?(.{2}){0,1}\\.properties", Pattern.CASE_INSENSITIVE);
 
   // <cd/dvd/part/pt/disk/disc> <0-N>
-  private static final Pattern stackingPattern1      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})(\\.[^.]+)$",
+  private static final Pattern      stackingPattern1      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // <cd/dvd/part/pt/disk/disc> <a-d>
-  private static final Pattern stackingPattern2      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[a-d])(\\.[^.]+)$",
+  private static final Pattern      stackingPattern2      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[a-d])(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // moviename-a.avi // modified mandatory delimiter (but no space), and A-D must be at end!
-  private static final Pattern stackingPattern3      = Pattern.compile("(.*?)[_.-]+([a-d])(\\.[^.]+)$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern      stackingPattern3      = Pattern.compile("(.*?)[_.-]+([a-d])(\\.[^.]+)$", Pattern.CASE_INSENSITIVE);
 
   // moviename-1of2.avi, moviename-1 of 2.avi
-  private static final Pattern stackingPattern4      = Pattern.compile("(.*?)[ \\(_.-]+([1-9][ .]?of[ .]?[1-9])[ \\)_-]?(\\.[^.]+)$",
+  private static final Pattern      stackingPattern4      = Pattern.compile("(.*?)[ \\(_.-]+([1-9][ .]?of[ .]?[1-9])[ \\)_-]?(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // folder stacking marker <cd/dvd/part/pt/disk/disc> <0-N> - must be last part
-  private static final Pattern folderStackingPattern = Pattern.compile("(.*?)[ _.-]*((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})$",
+  private static final Pattern      folderStackingPattern = Pattern.compile("(.*?)[ _.-]*((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})$",
       Pattern.CASE_INSENSITIVE);
 
+  // file system types of network shares
+  private static final List<String> networkFileSystems    = Arrays.asList("nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "afpfs", "webdav", "davfs",
+      "9p");
+
   /**
    * gets the filename part, and returns last extension
    * 
@@ -151,6 +156,27 @@ public class Utils {
     return (attr.isRegularFile() || attr.isOther()) && !attr.isDirectory();
   }
 
+  /**
+   * checks if the given path is on a network share (UNC path or a network file system like NFS/SMB)
+   * 
+   * @param path
+   *          the path to check
+   * @return true if the path is on a network share (or the file system cannot be determined)
+   */
+  public static boolean isNetworkShare(Path path) {
+    // UNC path
+    if (path.toString().startsWith("\\\\")) {
+      return true;
+    }
+    try {
+      String type = Files.getFileStore(path).type().toLowerCase(Locale.ROOT);
+      return networkFileSystems.contains(type) || type.startsWith("fuse");
+    }
+    catch (IOException e) {
+      return true;
+    }
+  }
+
   /**
    * dumps a complete Object (incl sub-classes 5 levels deep) to System.out
    * 
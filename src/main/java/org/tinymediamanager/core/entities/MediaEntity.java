@@ -52,12 +52,16 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.StringUtils;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.EntityDetailCache;
+import org.tinymediamanager.core.MediaEntityIndex;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.scraper.entities.MediaArtwork.MediaArtworkType;
 
@@ -70,41 +74,57 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  */
 public abstract class MediaEntity extends AbstractModelObject {
   /** The id for the database. */
-  protected UUID                       dbId              = UUID.randomUUID();
+  protected UUID                        dbId              = UUID.randomUUID();
 
   /** The ids to store the ID from several metadataproviders. */
   @JsonProperty
-  protected HashMap<String, Object>    ids               = new HashMap<>(0);
+  protected HashMap<String, Object>     ids               = new HashMap<>(0);
 
   @JsonProperty
-  protected String                     title             = "";
+  protected String                      title             = "";
   @JsonProperty
-  protected String                     originalTitle     = "";
+  protected String                      originalTitle     = "";
   @JsonProperty
-  protected String                     year              = "";
+  protected String                      year              = "";
   @JsonProperty
-  protected String                     plot              = "";
+  protected String                      plot              = "";
   @JsonProperty
-  protected float                      rating            = 0f;
+  protected float                       rating            = 0f;
   @JsonProperty
-  protected int                        votes             = 0;
+  protected int                         votes             = 0;
   @JsonProperty
-  protected String                     path              = "";
+  protected String                      path              = "";
   @JsonProperty
-  protected Date                       dateAdded         = new Date();
+  protected Date                        dateAdded         = new Date();
   @JsonProperty
-  protected String                     productionCompany = "";
+  protected String                      productionCompany = "";
   @JsonProperty
-  protected boolean                    scraped           = false;
+  protected boolean                     scraped           = false;
 
   @JsonProperty
-  private List<MediaFile>              mediaFiles        = new ArrayList<>();
+  private List<MediaFile>               mediaFiles        = new ArrayList<>();
   @JsonProperty
-  protected Map<MediaFileType, String> artworkUrlMap     = new HashMap<>();
+  protected Map<MediaFileType, String>  artworkUrlMap     = new HashMap<>();
 
-  protected boolean                    newlyAdded        = false;
-  protected boolean                    duplicate         = false;
-  protected ReadWriteLock              readWriteLock     = new ReentrantReadWriteLock();
+  protected boolean                     newlyAdded        = false;
+  protected boolean                     duplicate         = false;
+  protected ReadWriteLock               readWriteLock     = new ReentrantReadWriteLock();
+
+  /**
+   * dirty tracking: the count of modifications and the count at the last persist/load (new entities are always dirty); the nested objects (media
+   * files, actors, ...) report their modifications to the entity
+   */
+  private final AtomicLong              modifications     = new AtomicLong(1);
+  private volatile long                 persisted         = 0;
+
+  /** the cache to load the details from, if they have been released to save memory */
+  private volatile EntityDetailCache<?> detailCache       = null;
+  private volatile boolean              detailsLoaded     = true;
+  // the count of threads reading the details right now; pinned details are not released
+  private final AtomicInteger           detailReaders     = new AtomicInteger(0);
+
+  /** the index of the list containing this entity; has to be updated synchronously on path/id changes */
+  private MediaEntityIndex<?>           index             = null;
 
   public MediaEntity() {
   }
@@ -121,6 +141,8 @@ public abstract class MediaEntity extends AbstractModelObject {
       return;
     }
 
+    loadDetailsForModification();
+
     this.title = StringUtils.isEmpty(this.title) ? other.getTitle() : this.title;
     this.originalTitle = StringUtils.isEmpty(this.originalTitle) ? other.getOriginalTitle() : this.originalTitle;
     this.year = StringUtils.isEmpty(this.year) ? other.getYear() : this.year;
@@ -132,7 +154,8 @@ public abstract class MediaEntity extends AbstractModelObject {
 
     for (String key : other.getIds().keySet()) {
       if (!this.ids.containsKey(key)) {
-        this.ids.put(key, other.getId(key));
+        // through the setter: the index has to learn the new id
+        setId(key, other.getId(key));
       }
     }
     for (MediaFileType key : other.getArtworkUrls().keySet()) {
@@ -185,7 +208,13 @@ public abstract class MediaEntity extends AbstractModelObject {
   }
 
   public String getPlot() {
-    return plot;
+    pinDetails();
+    try {
+      return plot;
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -264,6 +293,7 @@ public abstract class MediaEntity extends AbstractModelObject {
   }
 
   public void setPlot(String newValue) {
+    loadDetailsForModification();
     String oldValue = plot;
     plot = newValue == null ? "" : newValue.trim();
     firePropertyChange(PLOT, oldValue, newValue);
@@ -505,6 +535,10 @@ public abstract class MediaEntity extends AbstractModelObject {
         if (oldMf.getType() != mediaFile.getType()) {
           mediaFiles.remove(i);
         }
+        else {
+          // the same file has been found again - gather the media information again if it has been changed
+          oldMf.resetIfChanged(mediaFile);
+        }
       }
     }
     if (!mediaFiles.contains(mediaFile)) {
@@ -696,6 +730,8 @@ public abstract class MediaEntity extends AbstractModelObject {
       mediaFiles.remove(i);
     }
     readWriteLock.writeLock().unlock();
+    // the removal of non-artwork files does not fire an event
+    propertyModified();
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -726,6 +762,8 @@ public abstract class MediaEntity extends AbstractModelObject {
       }
     }
     readWriteLock.writeLock().unlock();
+    // the removal of non-artwork files does not fire an event
+    propertyModified();
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -743,6 +781,8 @@ public abstract class MediaEntity extends AbstractModelObject {
       }
     }
     readWriteLock.writeLock().unlock();
+    // the removal of non-artwork files does not fire an event
+    propertyModified();
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -782,6 +822,187 @@ public abstract class MediaEntity extends AbstractModelObject {
     firePropertyChange(NEWLY_ADDED, oldValue, newValue);
   }
 
+  @Override
+  protected void propertyModified() {
+    modifications.incrementAndGet();
+  }
+
+  /**
+   * mark this entity as dirty (needed if a persisted field has been changed without firing an event)
+   */
+  public void setDirty() {
+    modifications.incrementAndGet();
+  }
+
+  /**
+   * is this entity (or any nested object) modified since the last persist/load?
+   * 
+   * @return true if the entity needs to be persisted
+   */
+  public boolean isDirty() {
+    return modifications.get() != persisted;
+  }
+
+  /**
+   * get the count of modifications of this entity; to be taken <b>before</b> serializing it and passed to {@link #clearDirty(long)} afterwards
+   * 
+   * @return the count of modifications
+   */
+  public long getModificationCount() {
+    return modifications.get();
+  }
+
+  /**
+   * mark this entity as loaded/persisted with all its modifications
+   */
+  public void clearDirty() {
+    clearDirty(modifications.get());
+  }
+
+  /**
+   * mark this entity as persisted up to the given count of modifications; modifications while serializing keep the entity dirty
+   * 
+   * @param modificationCount
+   *          the count of modifications taken before serializing
+   */
+  public void clearDirty(long modificationCount) {
+    persisted = modificationCount;
+    takeOwnershipOfNestedObjects();
+  }
+
+  /**
+   * make this entity the owner of its nested objects, so their modifications mark this entity as dirty. Nested objects which are added later are
+   * taken over on the next persist (adding them already marks this entity as dirty)
+   */
+  protected void takeOwnershipOfNestedObjects() {
+    readWriteLock.readLock().lock();
+    try {
+      for (MediaFile mediaFile : mediaFiles) {
+        mediaFile.setOwner(this);
+      }
+    }
+    finally {
+      readWriteLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * load the details (plot, cast, ...) if they have been released and mark them as recently used
+   */
+  public void loadDetails() {
+    EntityDetailCache<?> cache = detailCache;
+    if (cache != null) {
+      cache.loadDetails(this);
+    }
+  }
+
+  /**
+   * load the details and keep them in memory until {@link #unpinDetails()} is called; every read of a detail field has to be enclosed by
+   * pinDetails()/unpinDetails(), since another thread may release the details in between otherwise
+   */
+  public void pinDetails() {
+    // pin first: the cache does not release pinned details, and a release in progress finishes before the details are loaded again
+    detailReaders.incrementAndGet();
+    loadDetails();
+  }
+
+  /**
+   * allow the details to be released again (see {@link #pinDetails()})
+   */
+  public void unpinDetails() {
+    detailReaders.decrementAndGet();
+  }
+
+  /**
+   * are the details of this entity being read right now?
+   * 
+   * @return true if the details must not be released
+   */
+  public boolean isDetailsPinned() {
+    return detailReaders.get() > 0;
+  }
+
+  /**
+   * load the details before modifying them; every modification of a detail field has to call this first.<br>
+   * The entity is marked as modified before, so the cache does not release the details (and the modification) until it has been persisted
+   */
+  protected void loadDetailsForModification() {
+    setDirty();
+    EntityDetailCache<?> cache = detailCache;
+    if (cache != null) {
+      // always take the lock of the cache: a release in progress has to finish before the details are modified
+      cache.loadDetails(this);
+    }
+  }
+
+  /**
+   * are the details of this entity in memory?
+   * 
+   * @return true if the details are loaded
+   */
+  public boolean isDetailsLoaded() {
+    return detailsLoaded;
+  }
+
+  /**
+   * set the cache which tracks the details of this entity<br>
+   * <b>Only to be called by the {@link EntityDetailCache}</b>
+   * 
+   * @param cache
+   *          the cache to load the details from
+   */
+  public void setDetailCache(EntityDetailCache<?> cache) {
+    detailCache = cache;
+  }
+
+  /**
+   * release the details of this entity to save memory. The details will be re-loaded from the given cache on the next access<br>
+   * <b>Only to be called by the {@link EntityDetailCache}</b>
+   * 
+   * @param cache
+   *          the cache to load the details from
+   */
+  public void releaseDetails(EntityDetailCache<?> cache) {
+    detailCache = cache;
+    detailsLoaded = false;
+    plot = "";
+  }
+
+  /**
+   * take over the details from the given (fully loaded) copy of this entity<br>
+   * <b>Only to be called by the {@link EntityDetailCache}</b>
+   * 
+   * @param source
+   *          the fully loaded copy of this entity
+   */
+  public void takeDetails(MediaEntity source) {
+    plot = source.plot;
+    detailsLoaded = true;
+    takeOwnershipOfNestedObjects();
+  }
+
+  /**
+   * set the index of the list containing this entity<br>
+   * <b>Only to be called by the {@link MediaEntityIndex}</b>
+   * 
+   * @param index
+   *          the index or null
+   */
+  public void setIndex(MediaEntityIndex<?> index) {
+    this.index = index;
+  }
+
+  @Override
+  protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    super.firePropertyChange(propertyName, oldValue, newValue);
+
+    // keep the index up to date synchronously (the listeners are notified asynchronously)
+    MediaEntityIndex<?> entityIndex = index;
+    if (entityIndex != null && entityIndex.isIndexedProperty(propertyName)) {
+      entityIndex.update(this);
+    }
+  }
+
   abstract public void saveToDb();
 
   abstract public void deleteFromDb();
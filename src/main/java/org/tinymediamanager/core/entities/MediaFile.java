@@ -24,6 +24,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -47,10 +48,12 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.MediaInfoCache;
+import org.tinymediamanager.core.MediaInfoPool;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.scraper.util.LanguageUtils;
 import org.tinymediamanager.scraper.util.StrgUtils;
-import org.tinymediamanager.thirdparty.MediaInfo;
+import org.tinymediamanager.thirdparty.IsoReadAheadCache;
 import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
 import org.tinymediamanager.thirdparty.MediaInfoXMLParser;
 
@@ -89,6 +92,8 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   private static Pattern                             discartPattern       = Pattern
       .compile("(?i)(.*-discart|discart|.*-disc|disc)\\.(jpg|jpeg|png|tbn)");
   private static Pattern                             clearartPattern      = Pattern.compile("(?i)(.*-clearart|clearart)\\..{2,4}");
+  // the VOBs of a DVD title set (vts_XX_0.vob is the menu)
+  private static Pattern                             dvdTitleSetPattern   = Pattern.compile("vts_(\\d\\d)_[1-9]\\.vob");
 
   public static final String                         VIDEO_FORMAT_96P     = "96p";
   public static final String                         VIDEO_FORMAT_120P    = "120p";
@@ -156,11 +161,12 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   @JsonProperty
   private List<MediaFileSubtitle>                    subtitles            = new CopyOnWriteArrayList<>();
 
-  private MediaInfo                                  mediaInfo;
   private Map<StreamKind, List<Map<String, String>>> miSnapshot           = null;
   private Path                                       file                 = null;
   private boolean                                    isISO                = false;
   private boolean                                    isAnimatedGraphic    = false;
+  // size and date have been taken from the directory listing and need not to be read again
+  private boolean                                    fileAttributesKnown  = false;
 
   /**
    * "clones" a new media file.
@@ -204,7 +210,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
    */
   @Deprecated
   public MediaFile(File f) {
-    this(f.toPath(), null);
+    this(f.toPath(), (MediaFileType) null);
   }
 
   /**
@@ -214,7 +220,23 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
    *          the file
    */
   public MediaFile(Path f) {
-    this(f, null);
+    this(f, (MediaFileType) null);
+  }
+
+  /**
+   * Instantiates a new media file with the size and date from the given attributes (e.g. from the directory listing of the update task); they will
+   * not be read again from the file system when gathering the media information.
+   * 
+   * @param f
+   *          the file
+   * @param attributes
+   *          the attributes of the file
+   */
+  public MediaFile(Path f, BasicFileAttributes attributes) {
+    this(f, (MediaFileType) null);
+    this.filedate = attributes.lastModifiedTime().toMillis();
+    this.filesize = attributes.size();
+    this.fileAttributesKnown = true;
   }
 
   /**
@@ -680,6 +702,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
 
   public void setType(MediaFileType type) {
     this.type = type;
+    propertyModified();
   }
 
   public int getStacking() {
@@ -688,6 +711,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
 
   public void setStacking(int stacking) {
     this.stacking = stacking;
+    propertyModified();
   }
 
   public String getStackingMarker() {
@@ -696,6 +720,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
 
   public void setStackingMarker(String stackingMarker) {
     this.stackingMarker = stackingMarker;
+    propertyModified();
   }
 
   /**
@@ -720,6 +745,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
       // try to parse from parent directory
       this.stackingMarker = Utils.getFolderStackingMarker(FilenameUtils.getBaseName(getPath()));
     }
+    propertyModified();
   }
 
   public List<MediaFileSubtitle> getSubtitles() {
@@ -742,11 +768,14 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
 
   public void setSubtitles(List<MediaFileSubtitle> subtitles) {
     this.subtitles = subtitles;
+    propertyModified();
   }
 
   public void addSubtitle(MediaFileSubtitle subtitle) {
     if (!this.subtitles.contains(subtitle)) {
       this.subtitles.add(subtitle);
+      subtitle.setOwner(this);
+      propertyModified();
     }
   }
 
@@ -775,43 +804,18 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   }
 
   /**
-   * instantiates and gets new mediainfo object.
+   * gets the mediainfo snapshot of the file (probed by the {@link MediaInfoPool}).
    */
   private void getMediaInfoSnapshot() {
-    if (mediaInfo == null) {
-      mediaInfo = new MediaInfo();
-    }
-
     if (miSnapshot == null) {
-      try {
-        if (!mediaInfo.open(this.getFileAsPath())) {
-          LOGGER.error("Mediainfo could not open file: " + getFileAsPath());
-
-          // clear references
-          closeMediaInfo();
-        }
-        else {
-          miSnapshot = mediaInfo.snapshot();
-        }
-      }
-      // sometimes also an error is thrown
-      catch (Exception | Error e) {
-        LOGGER.error("Mediainfo could not open file: " + getFileAsPath() + "; " + e.getMessage());
-
-        // clear references
-        closeMediaInfo();
-      }
+      miSnapshot = MediaInfoPool.getInstance().snapshot(this.getFileAsPath());
     }
   }
 
   /**
-   * Closes the connection to the mediainfo lib.
+   * Releases the mediainfo snapshot.
    */
   private void closeMediaInfo() {
-    if (mediaInfo != null) {
-      mediaInfo.close();
-      mediaInfo = null;
-    }
     miSnapshot = null;
   }
 
@@ -1376,6 +1380,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
 
   public void setAudioStreams(List<MediaFileAudioStream> audioStreams) {
     this.audioStreams = audioStreams;
+    propertyModified();
   }
 
   public String getCombinedCodecs() {
@@ -1408,6 +1413,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
    */
   public void setVideo3DFormat(String video3DFormat) {
     this.video3DFormat = video3DFormat;
+    propertyModified();
   }
 
   /**
@@ -1428,6 +1434,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
    */
   public void setAnimatedGraphic(boolean isAnimatedGraphic) {
     this.isAnimatedGraphic = isAnimatedGraphic;
+    propertyModified();
   }
 
   /**
@@ -1478,8 +1485,17 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
       }
     }
 
+    // an unchanged image need not to be probed again
+    String cacheKey = miSnapshot == null ? MediaInfoCache.getKey(getFileAsPath(), filesize, filedate) : null;
+    MediaInfoCache.CachedSnapshot cached = MediaInfoCache.getInstance().getEntry(cacheKey);
+    if (cached != null) {
+      LOGGER.debug("ISO: got MediaInfo from cache for " + getFileAsPath());
+      miSnapshot = cached.toSnapshot();
+      setDuration(cached.getDuration());
+      return cached.getDiscSize();
+    }
+
     if (miSnapshot == null) {
-      int BUFFER_SIZE = 64 * 1024;
       Iso9660FileSystem image = null;
       try {
         LOGGER.trace("ISO: Open");
@@ -1488,86 +1504,49 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
         long siz = 0L; // accumulated filesize
         long biggest = 0L;
 
+        // only the directory records are read here
+        List<Iso9660FileEntry> entries = new ArrayList<>();
         for (Iso9660FileEntry entry : image) {
           LOGGER.trace("ISO: got entry " + entry.getName() + " size:" + entry.getSize());
           siz += entry.getSize();
+          if (entry.getSize() > 5000) { // small files and "." entries
+            entries.add(entry);
+          }
+        }
 
-          if (entry.getSize() <= 5000) { // small files and "." entries
+        // probe only the main feature; all probes share one read-ahead cache
+        List<Iso9660FileEntry> mainFeature = getMainFeatureFromISO(entries);
+        IsoReadAheadCache cache = new IsoReadAheadCache(image);
+        for (Iso9660FileEntry entry : mainFeature) {
+          Map<StreamKind, List<Map<String, String>>> tempSnapshot = MediaInfoPool.getInstance().snapshot(getFileAsPath(), cache.getSource(entry),
+              entry.getSize(), entry.getName());
+          if (tempSnapshot == null) {
             continue;
           }
 
           MediaFile mf = new MediaFile(Paths.get(getFileAsPath().toString(), entry.getPath())); // set ISO as MF path
-          // mf.setMediaInfo(fileMI); // we need set the inner MI
-          if (mf.getType() == MediaFileType.VIDEO && mf.isDiscFile()) { // would not count video_ts.bup for ex (and not .dat files or other types)
-            mf.setFilesize(entry.getSize());
-
-            MediaInfo fileMI = new MediaInfo();
-            try {
-              // mediaInfo.option("File_IsSeekable", "0");
-              byte[] From_Buffer = new byte[BUFFER_SIZE];
-              int From_Buffer_Size; // The size of the read file buffer
-
-              // Preparing to fill MediaInfo with a buffer
-              fileMI.openBufferInit(entry.getSize(), 0);
-
-              long pos = 0L;
-              // The parsing loop
-              do {
-                // limit read to maxBuffer, or to end of file size (cannot determine file end in stream!!)
-                Long toread = pos + BUFFER_SIZE > entry.getSize() ? entry.getSize() - pos : BUFFER_SIZE;
-                // LOGGER.trace("ISO: reading " + toread);
-
-                // Reading data somewhere, do what you want for this.
-                From_Buffer_Size = image.readBytes(entry, pos, From_Buffer, 0, toread.intValue());
-                if (From_Buffer_Size > 0) {
-                  pos += From_Buffer_Size; // add bytes read to file position
-
-                  // Sending the buffer to MediaInfo
-                  int Result = fileMI.openBufferContinue(From_Buffer, From_Buffer_Size);
-                  if ((Result & 8) == 8) { // Status.Finalized
-                    break;
-                  }
-
-                  // Testing if MediaInfo request to go elsewhere
-                  if (fileMI.openBufferContinueGoToGet() != -1) {
-                    pos = fileMI.openBufferContinueGoToGet();
-                    LOGGER.trace("ISO: Seek to " + pos);
-                    // From_Buffer_Size = image.readBytes(entry, newPos, From_Buffer, 0, BUFFER_SIZE);
-                    // pos = newPos + From_Buffer_Size; // add bytes read to file position
-                    fileMI.openBufferInit(entry.getSize(), pos); // Informing MediaInfo we have seek
-                  }
-                }
-              } while (From_Buffer_Size > 0);
-
-              LOGGER.trace("ISO: finalize");
-              // Finalizing
-              fileMI.openBufferFinalize(); // This is the end of the stream, MediaInfo must finish some work
-              Map<StreamKind, List<Map<String, String>>> tempSnapshot = fileMI.snapshot();
-              fileMI.close();
-
-              mf.setMiSnapshot(tempSnapshot); // set ours to MI for standard gathering
-              mf.gatherMediaInformation(); // normal gather from snapshots
-
-              // set ISO snapshot ONCE from biggest video file, so we copy all the resolutions & co
-              if (entry.getSize() > biggest) {
-                biggest = entry.getSize();
-                miSnapshot = tempSnapshot;
-              }
+          mf.setFilesize(entry.getSize());
+          mf.setMiSnapshot(tempSnapshot); // set ours to MI for standard gathering
+          mf.gatherMediaInformation(); // normal gather from snapshots
+
+          // set ISO snapshot ONCE from biggest video file, so we copy all the resolutions & co
+          if (entry.getSize() > biggest) {
+            biggest = entry.getSize();
+            miSnapshot = tempSnapshot;
+          }
 
-              // accumulate durations from every MF
-              dur += mf.getDuration();
-              LOGGER.trace("ISO: file duration:" + mf.getDurationHHMMSS() + "  accumulated min:" + dur / 60);
-            }
-            // sometimes also an error is thrown
-            catch (Exception | Error e) {
-              LOGGER.error("Mediainfo could not open file STREAM", e);
-              fileMI.close();
-            }
-          } // end VIDEO
-        } // end entry
+          // accumulate durations from every MF
+          dur += mf.getDuration();
+          LOGGER.trace("ISO: file duration:" + mf.getDurationHHMMSS() + "  accumulated min:" + dur / 60);
+        }
+        LOGGER.debug("ISO: probed " + mainFeature.size() + " of " + entries.size() + " files, " + cache.getBytesRead() / 1024 + " KB read from "
+            + getFileAsPath());
         setDuration(dur); // set it here, and ignore duration parsing for ISO in gatherMI method...
         LOGGER.trace("ISO: final duration:" + getDurationHHMMSS());
         image.close();
+        if (miSnapshot != null) {
+          MediaInfoCache.getInstance().put(cacheKey, miSnapshot, dur, siz);
+        }
         return siz;
       }
       catch (Exception e) {
@@ -1589,11 +1568,54 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   }
 
   /**
-   * DO NOT USE - only for ISO!!!
-   */
-  @Deprecated
-  public void setMediaInfo(MediaInfo mediaInfo) {
-    this.mediaInfo = mediaInfo;
+   * get the files of the main feature from the entries of an ISO image (just by the names and sizes from the directory records)
+   * <ul>
+   * <li>DVD: all VOBs of the biggest title set</li>
+   * <li>Blu-ray/HD-DVD: the biggest stream</li>
+   * </ul>
+   * 
+   * @param entries
+   *          all entries of the image
+   * @return the files of the main feature
+   */
+  private static List<Iso9660FileEntry> getMainFeatureFromISO(List<Iso9660FileEntry> entries) {
+    Map<String, List<Iso9660FileEntry>> titleSets = new LinkedHashMap<>();
+    Map<String, Long> titleSetSizes = new LinkedHashMap<>();
+    Iso9660FileEntry biggestStream = null;
+
+    for (Iso9660FileEntry entry : entries) {
+      String name = entry.getName().toLowerCase(Locale.ROOT);
+      Matcher matcher = dvdTitleSetPattern.matcher(name);
+      if (matcher.matches()) {
+        String titleSet = matcher.group(1);
+        if (!titleSets.containsKey(titleSet)) {
+          titleSets.put(titleSet, new ArrayList<Iso9660FileEntry>());
+          titleSetSizes.put(titleSet, 0L);
+        }
+        titleSets.get(titleSet).add(entry);
+        titleSetSizes.put(titleSet, titleSetSizes.get(titleSet) + entry.getSize());
+      }
+      else if (name.matches("\\d{5}\\.m2ts") || name.endsWith(".evo")) {
+        if (biggestStream == null || entry.getSize() > biggestStream.getSize()) {
+          biggestStream = entry;
+        }
+      }
+    }
+
+    List<Iso9660FileEntry> mainFeature = new ArrayList<>();
+    if (!titleSets.isEmpty()) {
+      String mainTitleSet = null;
+      for (Map.Entry<String, Long> titleSet : titleSetSizes.entrySet()) {
+        if (mainTitleSet == null || titleSet.getValue() > titleSetSizes.get(mainTitleSet)) {
+          mainTitleSet = titleSet.getKey();
+        }
+      }
+      mainFeature.addAll(titleSets.get(mainTitleSet));
+    }
+    else if (biggestStream != null) {
+      mainFeature.add(biggestStream);
+    }
+    return mainFeature;
   }
 
   /**
@@ -1604,6 +1626,27 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     this.miSnapshot = miSnapshot;
   }
 
+  /**
+   * checks the size and date of the given (freshly found) media file of the same file: if the file has been changed since the media information
+   * has been gathered, the media information will be reset, so it will be gathered again
+   * 
+   * @param found
+   *          the found media file with the current size and date
+   * @return true if the file has been changed
+   */
+  public boolean resetIfChanged(MediaFile found) {
+    if (found.filedate == 0 || filedate == 0 || StringUtils.isBlank(getContainerFormat())) {
+      // nothing known to compare or not gathered yet
+      return false;
+    }
+    if (found.filedate != filedate || found.filesize != filesize) {
+      LOGGER.debug("file has been changed - gathering media information again: " + getFileAsPath());
+      setContainerFormat("");
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Gathers the media information via the native mediainfo lib.<br>
    * If mediafile has already be scanned, it will be skipped.<br>
@@ -1634,24 +1677,32 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
       return;
     }
 
+    // the media information will be (re)gathered; most fields are set directly
+    propertyModified();
+
     // gather subtitle infos independent of MI
     if (getType() == MediaFileType.SUBTITLE) {
       gatherSubtitleInformation();
     }
 
-    // file size and last modified
-    try {
-      BasicFileAttributes attrs = Files.readAttributes(getFileAsPath(), BasicFileAttributes.class);
-      filedate = attrs.lastModifiedTime().toMillis();
-      setFilesize(attrs.size());
+    // file size and last modified (only once from the directory listing; a forced re-gathering reads them again)
+    if (fileAttributesKnown) {
+      fileAttributesKnown = false;
     }
-    catch (IOException e) {
-      if (miSnapshot == null) { // maybe we set it already (from ISO) so only display message when empty
-        LOGGER.warn("could not get file information (size/date): " + e.getMessage());
+    else {
+      try {
+        BasicFileAttributes attrs = Files.readAttributes(getFileAsPath(), BasicFileAttributes.class);
+        filedate = attrs.lastModifiedTime().toMillis();
+        setFilesize(attrs.size());
+      }
+      catch (IOException e) {
+        if (miSnapshot == null) { // maybe we set it already (from ISO) so only display message when empty
+          LOGGER.warn("could not get file information (size/date): " + e.getMessage());
+        }
+        // do not set/return here - we might have set it already... and the next check does check for a 0-byte file
+        // setContainerFormat(getExtension());
+        // return;
       }
-      // do not set/return here - we might have set it already... and the next check does check for a 0-byte file
-      // setContainerFormat(getExtension());
-      // return;
     }
 
     // do not work further on 0 byte files
@@ -1675,7 +1726,20 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
     if (isISO) {
       discFilesSizes = getMediaInfoSnapshotFromISO();
     }
+    else if (miSnapshot == null && filedate > 0) {
+      // an unchanged file need not to be probed again
+      String cacheKey = MediaInfoCache.getKey(getFileAsPath(), filesize, filedate);
+      miSnapshot = MediaInfoCache.getInstance().get(cacheKey);
+      if (miSnapshot == null) {
+        getMediaInfoSnapshot();
+        MediaInfoCache.getInstance().put(cacheKey, miSnapshot);
+      }
+      else {
+        LOGGER.debug("got MediaInfo from cache for " + this.getFileAsPath());
+      }
+    }
     else {
+      // the snapshot may have been set already (e.g. a file inside an ISO image)
       getMediaInfoSnapshot();
     }
 
@@ -2146,4 +2210,18 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   public int hashCode() {
     return this.getFileAsPath().hashCode();
   }
+
+  /**
+   * the streams and subtitles report their modifications to this media file, which reports them to its owner
+   */
+  @Override
+  public void setOwner(AbstractModelObject owner) {
+    super.setOwner(owner);
+    for (MediaFileAudioStream audioStream : audioStreams) {
+      audioStream.setOwner(this);
+    }
+    for (MediaFileSubtitle subtitle : subtitles) {
+      subtitle.setOwner(this);
+    }
+  }
 }
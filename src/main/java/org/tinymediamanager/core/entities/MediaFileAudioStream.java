@@ -98,17 +98,21 @@ public class MediaFileAudioStream extends AbstractModelObject {
 
   public void setCodec(String codec) {
     this.codec = codec;
+    propertyModified();
   }
 
   public void setChannels(String channels) {
     this.channels = channels;
+    propertyModified();
   }
 
   public void setBitrate(int bitrate) {
     this.bitrate = bitrate;
+    propertyModified();
   }
 
   public void setLanguage(String language) {
     this.language = language;
+    propertyModified();
   }
 }
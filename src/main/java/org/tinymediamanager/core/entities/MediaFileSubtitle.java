@@ -41,6 +41,7 @@ public class MediaFileSubtitle extends AbstractModelObject implements Comparable
 
   public void setCodec(String codec) {
     this.codec = codec;
+    propertyModified();
   }
 
   public String getLanguage() {
@@ -49,6 +50,7 @@ public class MediaFileSubtitle extends AbstractModelObject implements Comparable
 
   public void setLanguage(String language) {
     this.language = language;
+    propertyModified();
   }
 
   public boolean isForced() {
@@ -57,6 +59,7 @@ public class MediaFileSubtitle extends AbstractModelObject implements Comparable
 
   public void setForced(boolean forced) {
     this.forced = forced;
+    propertyModified();
   }
 
   @Override
@@ -150,6 +150,7 @@ public abstract class Person extends AbstractModelObject {
   @Deprecated
   public void setThumbPath(String thumbPath) {
     this.thumbPath = thumbPath;
+    propertyModified();
   }
 
   /**
@@ -170,6 +171,7 @@ public abstract class Person extends AbstractModelObject {
   @Deprecated
   public void setEntityRoot(String entityRoot) {
     this.entityRoot = entityRoot;
+    propertyModified();
   }
 
   @Deprecated
@@ -177,6 +179,7 @@ public abstract class Person extends AbstractModelObject {
     if (entityRoot != null) {
       this.entityRoot = entityRoot.toString();
     }
+    propertyModified();
   }
 
   /**
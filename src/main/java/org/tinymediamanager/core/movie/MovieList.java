@@ -46,11 +46,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.EntityCodec;
+import org.tinymediamanager.core.MediaEntityIndex;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ParallelEntityLoader;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
@@ -65,9 +68,6 @@ import org.tinymediamanager.scraper.entities.MediaLanguages;
 import org.tinymediamanager.scraper.entities.MediaType;
 import org.tinymediamanager.scraper.mediaprovider.IMovieMetadataProvider;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-
 import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.GlazedLists;
 import ca.odell.glazedlists.ObservableElementList;
@@ -78,19 +78,20 @@ import ca.odell.glazedlists.ObservableElementList;
  * @author Manuel Laggner
  */
 public class MovieList extends AbstractModelObject {
-  private static final Logger          LOGGER             = LoggerFactory.getLogger(MovieList.class);
-  private static MovieList             instance;
+  private static final Logger           LOGGER             = LoggerFactory.getLogger(MovieList.class);
+  private static MovieList              instance;
 
-  private final MovieSettings          movieSettings;
-  private final List<Movie>            movieList;
-  private final List<MovieSet>         movieSetList;
-  private final List<String>           tagsObservable;
-  private final List<String>           videoCodecsObservable;
-  private final List<String>           audioCodecsObservable;
-  private final List<Certification>    certificationsObservable;
+  private final MovieSettings           movieSettings;
+  private final List<Movie>             movieList;
+  private final List<MovieSet>          movieSetList;
+  private final List<String>            tagsObservable;
+  private final List<String>            videoCodecsObservable;
+  private final List<String>            audioCodecsObservable;
+  private final List<Certification>     certificationsObservable;
+  private final MediaEntityIndex<Movie> movieIndex;
 
-  private final PropertyChangeListener tagListener;
-  private final Comparator<MovieSet>   movieSetComparator = new MovieSetComparator();
+  private final PropertyChangeListener  tagListener;
+  private final Comparator<MovieSet>    movieSetComparator = new MovieSetComparator();
 
   /**
    * Instantiates a new movie list.
@@ -103,6 +104,7 @@ public class MovieList extends AbstractModelObject {
     videoCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     audioCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     certificationsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<Certification>());
+    movieIndex = new MediaEntityIndex<>(Constants.IMDB, Constants.TMDB);
 
     // the tag listener: its used to always have a full list of all tags used in tmm
     tagListener = new PropertyChangeListener() {
@@ -145,10 +147,11 @@ public class MovieList extends AbstractModelObject {
    * @param movie
    *          the movie
    */
-  public void addMovie(Movie movie) {
+  public synchronized void addMovie(Movie movie) {
     if (!movieList.contains(movie)) {
       int oldValue = movieList.size();
       movieList.add(movie);
+      movieIndex.add(movie);
 
       updateTags(movie);
       movie.addPropertyChangeListener(tagListener);
@@ -222,10 +225,12 @@ public class MovieList extends AbstractModelObject {
     Set<MovieSet> modifiedMovieSets = new HashSet<>();
     int oldValue = movieList.size();
 
-    // remove in inverse order => performance
+    // remove all in one pass (a single remove has to search the whole list)
+    movieList.removeAll(new HashSet<>(movies));
+
     for (int i = movies.size() - 1; i >= 0; i--) {
       Movie movie = movies.get(i);
-      movieList.remove(movie);
+      movieIndex.remove(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
 
@@ -263,6 +268,7 @@ public class MovieList extends AbstractModelObject {
       Movie movie = movies.get(i);
       movie.deleteFilesSafely();
       movieList.remove(movie);
+      movieIndex.remove(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
         movieSet.removeMovie(movie, false);
@@ -293,46 +299,24 @@ public class MovieList extends AbstractModelObject {
   /**
    * Load movies from database.
    */
-  void loadMoviesFromDatabase(MVMap<UUID, String> movieMap, ObjectMapper objectMapper) {
+  void loadMoviesFromDatabase(MVMap<UUID, Object> movieMap, EntityCodec<Movie> movieCodec) {
     // load movies
-    ObjectReader movieObjectReader = objectMapper.readerFor(Movie.class);
+    ParallelEntityLoader<Movie> loader = new ParallelEntityLoader<>(movieCodec, "movie");
+    List<Movie> movies = loader.load(movieMap);
 
-    for (UUID uuid : new ArrayList<>(movieMap.keyList())) {
-      String json = "";
-      try {
-        json = movieMap.get(uuid);
-        Movie movie = movieObjectReader.readValue(json);
-        movie.setDbId(uuid);
-        // for performance reasons we add movies directly
-        movieList.add(movie);
-      }
-      catch (Exception e) {
-        LOGGER.warn("problem decoding movie json string: " + e.getMessage());
-        LOGGER.info("dropping corrupt movie");
-        movieMap.remove(uuid);
-      }
-    }
+    // for performance reasons we add movies directly (in one batch)
+    movieList.addAll(movies);
+    movieIndex.addAll(movies);
     LOGGER.info("found " + movieList.size() + " movies in database");
   }
 
-  void loadMovieSetsFromDatabase(MVMap<UUID, String> movieSetMap, ObjectMapper objectMapper) {
+  void loadMovieSetsFromDatabase(MVMap<UUID, Object> movieSetMap, EntityCodec<MovieSet> movieSetCodec) {
     // load movie sets
-    ObjectReader movieSetObjectReader = objectMapper.readerFor(MovieSet.class);
-
-    for (UUID uuid : new ArrayList<>(movieSetMap.keyList())) {
-      try {
-        MovieSet movieSet = movieSetObjectReader.readValue(movieSetMap.get(uuid));
-        movieSet.setDbId(uuid);
-        // for performance reasons we add movies sets directly
-        movieSetList.add(movieSet);
-      }
-      catch (Exception e) {
-        LOGGER.warn("problem decoding movie set json string: " + e.getMessage());
-        LOGGER.info("dropping corrupt movie set");
-        movieSetMap.remove(uuid);
-      }
-    }
+    ParallelEntityLoader<MovieSet> loader = new ParallelEntityLoader<>(movieSetCodec, "movie set");
+    List<MovieSet> movieSets = loader.load(movieSetMap);
 
+    // for performance reasons we add movies sets directly (in one batch)
+    movieSetList.addAll(movieSets);
     LOGGER.info("found " + movieSetList.size() + " movieSets in database");
   }
 
@@ -404,12 +388,7 @@ public class MovieList extends AbstractModelObject {
   }
 
   public Movie lookupMovie(UUID uuid) {
-    for (Movie movie : movieList) {
-      if (movie.getDbId().equals(uuid)) {
-        return movie;
-      }
-    }
-    return null;
+    return movieIndex.getById(uuid);
   }
 
   /**
@@ -421,7 +400,7 @@ public class MovieList extends AbstractModelObject {
    * @deprecated use Java7 getMovieByPath(Path path) instead.
    */
   @Deprecated
-  public synchronized Movie getMovieByPath(File path) {
+  public Movie getMovieByPath(File path) {
     return getMovieByPath(path.toPath());
   }
 
@@ -432,13 +411,12 @@ public class MovieList extends AbstractModelObject {
    *          the path
    * @return the movie by path
    */
-  public synchronized Movie getMovieByPath(Path path) {
-
-    for (Movie movie : movieList) {
-      if (movie.getPathNIO().compareTo(path.toAbsolutePath()) == 0) {
-        LOGGER.debug("Ok, found already existing movie '" + movie.getTitle() + "' in DB (path: " + path + ")");
-        return movie;
-      }
+  public Movie getMovieByPath(Path path) {
+    List<Movie> movies = movieIndex.getByPath(path);
+    if (!movies.isEmpty()) {
+      Movie movie = movies.get(0);
+      LOGGER.debug("Ok, found already existing movie '" + movie.getTitle() + "' in DB (path: " + path + ")");
+      return movie;
     }
 
     return null;
@@ -453,7 +431,7 @@ public class MovieList extends AbstractModelObject {
    * @deprecated use Java7 getMoviesByPath(Path path) instead.
    */
   @Deprecated
-  public synchronized List<Movie> getMoviesByPath(File path) {
+  public List<Movie> getMoviesByPath(File path) {
     return getMoviesByPath(path.toPath());
   }
 
@@ -464,14 +442,30 @@ public class MovieList extends AbstractModelObject {
    *          the path
    * @return the movie list
    */
-  public synchronized List<Movie> getMoviesByPath(Path path) {
-    ArrayList<Movie> movies = new ArrayList<>();
-    for (Movie movie : movieList) {
-      if (movie.getPathNIO().compareTo(path) == 0) {
-        movies.add(movie);
-      }
-    }
-    return movies;
+  public List<Movie> getMoviesByPath(Path path) {
+    return movieIndex.getByPath(path);
+  }
+
+  /**
+   * Gets a list of movies with the given IMDB id.
+   * 
+   * @param imdbId
+   *          the IMDB id
+   * @return the movie list
+   */
+  public List<Movie> getMoviesByImdbId(String imdbId) {
+    return movieIndex.getByProviderId(Constants.IMDB, imdbId);
+  }
+
+  /**
+   * Gets a list of movies with the given TMDB id.
+   * 
+   * @param tmdbId
+   *          the TMDB id
+   * @return the movie list
+   */
+  public List<Movie> getMoviesByTmdbId(int tmdbId) {
+    return movieIndex.getByProviderId(Constants.TMDB, tmdbId);
   }
 
   /**
@@ -15,32 +15,34 @@
  */
 package org.tinymediamanager.core.movie;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.TimeZone;
+import java.util.Set;
 import java.util.UUID;
 
-import org.apache.commons.lang3.StringUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.UpgradeTasks;
 import org.tinymediamanager.core.Constants;
-import org.tinymediamanager.core.CustomNullStringSerializerProvider;
+import org.tinymediamanager.core.DatabaseCompactor;
+import org.tinymediamanager.core.DatasourceMonitor;
+import org.tinymediamanager.core.DirectoryFingerprintStore;
+import org.tinymediamanager.core.EntityCodec;
+import org.tinymediamanager.core.EntityDetailCache;
 import org.tinymediamanager.core.ITmmModule;
-import org.tinymediamanager.core.NullKeySerializer;
+import org.tinymediamanager.core.PersistenceQueue;
+import org.tinymediamanager.core.PersistenceQueue.EntityWriter;
 import org.tinymediamanager.core.Settings;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieSet;
-
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import org.tinymediamanager.core.movie.tasks.MovieUpdateDatasourceTask2;
+import org.tinymediamanager.core.threading.TmmTaskManager;
 
 /**
  * The class MovieModuleManager. Used to manage the movies module
@@ -57,12 +59,20 @@ public class MovieModuleManager implements ITmmModule {
 
   private boolean                   enabled;
   private MVStore                   mvStore;
-  private ObjectMapper              objectMapper;
-  private ObjectWriter              movieObjectWriter;
-  private ObjectWriter              movieSetObjectWriter;
+  private EntityCodec<Movie>        movieCodec;
+  private EntityCodec<MovieSet>     movieSetCodec;
+
+  private MVMap<UUID, Object>       movieMap;
+  private MVMap<UUID, Object>       movieSetMap;
+
+  private PersistenceQueue          persistenceQueue;
+  private DatabaseCompactor         compactor;
+  private DatasourceMonitor         datasourceMonitor;
+  private EntityWriter<Movie>       movieWriter;
+  private EntityWriter<MovieSet>    movieSetWriter;
 
-  private MVMap<UUID, String>       movieMap;
-  private MVMap<UUID, String>       movieSetMap;
+  private EntityDetailCache<Movie>  movieDetailCache;
+  private DirectoryFingerprintStore directoryFingerprints;
 
   private MovieModuleManager() {
     enabled = false;
@@ -95,36 +105,82 @@ public class MovieModuleManager implements ITmmModule {
             LOGGER.error("Error in the background thread of the persistent cache", e);
           }
         }).autoCommitBufferSize(4096).open();
-    mvStore.setAutoCommitDelay(2000); // 2 sec
+    mvStore.setAutoCommitDelay(0); // commits are done by the persistence queue
     mvStore.setRetentionTime(0);
     mvStore.setReuseSpace(true);
 
-    // configure JSON
-    objectMapper = new ObjectMapper();
-    objectMapper.configure(MapperFeature.AUTO_DETECT_GETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_IS_GETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_SETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_FIELDS, false);
-    objectMapper.setTimeZone(TimeZone.getDefault());
-    objectMapper.setSerializationInclusion(Include.NON_DEFAULT);
-    objectMapper.setSerializerProvider(new CustomNullStringSerializerProvider());
-    objectMapper.getSerializerProvider().setNullKeySerializer(new NullKeySerializer());
-
-    movieObjectWriter = objectMapper.writerFor(Movie.class);
-    movieSetObjectWriter = objectMapper.writerFor(MovieSet.class);
+    // configure JSON/binary codecs
+    boolean binary = Globals.settings.isBinaryDatabase();
+    movieCodec = new EntityCodec<>(Movie.class, binary);
+    movieSetCodec = new EntityCodec<>(MovieSet.class, binary);
 
     movieMap = mvStore.openMap("movies");
     movieSetMap = mvStore.openMap("movieSets");
+    directoryFingerprints = new DirectoryFingerprintStore(mvStore.<String, String> openMap("directoryFingerprints"));
+
+    // migrate the stored entities if the database format has been changed
+    MVMap<String, String> meta = mvStore.openMap("meta");
+    UpgradeTasks.migrateDatabaseFormat(movieMap, movieCodec, meta);
+    UpgradeTasks.migrateDatabaseFormat(movieSetMap, movieSetCodec, meta);
+    mvStore.commit();
 
-    MovieList.getInstance().loadMoviesFromDatabase(movieMap, objectMapper);
-    MovieList.getInstance().loadMovieSetsFromDatabase(movieSetMap, objectMapper);
+    // all writes are done through the write-behind queue which commits explicitly
+    persistenceQueue = new PersistenceQueue("movies", mvStore);
+    movieWriter = new EntityWriter<Movie>() {
+      @Override
+      public void write(Movie movie) throws Exception {
+        writeMovie(movie);
+      }
+    };
+    movieSetWriter = new EntityWriter<MovieSet>() {
+      @Override
+      public void write(MovieSet movieSet) throws Exception {
+        writeMovieSet(movieSet);
+      }
+    };
+
+    MovieList.getInstance().loadMoviesFromDatabase(movieMap, movieCodec);
+    MovieList.getInstance().loadMovieSetsFromDatabase(movieSetMap, movieSetCodec);
     MovieList.getInstance().initDataAfterLoading();
+
+    // keep only the details of the recently used movies in memory
+    if (Globals.settings.getDetailCacheSize() > 0) {
+      movieDetailCache = new EntityDetailCache<>(movieMap, movieCodec, Globals.settings.getDetailCacheSize());
+      movieDetailCache.releaseAll(MovieList.getInstance().getMovies());
+    }
+
+    // compact the database incrementally while tmm is idle
+    compactor = new DatabaseCompactor("movies", mvStore);
+    compactor.start();
+
+    // update changed folders automatically
+    if (Globals.settings.isMonitorDatasources()) {
+      datasourceMonitor = new DatasourceMonitor("movies", MOVIE_SETTINGS.getMovieDataSource(), Globals.settings.getDatasourcePollInterval(),
+          new DatasourceMonitor.ChangeListener() {
+            @Override
+            public void foldersChanged(String datasource, Set<Path> folders) {
+              TmmTaskManager.getInstance().addMainTask(new MovieUpdateDatasourceTask2(datasource, folders));
+            }
+          });
+      datasourceMonitor.start();
+    }
+
     enabled = true;
   }
 
   @Override
   public void shutDown() throws Exception {
-    mvStore.compactMoveChunks();
+    if (datasourceMonitor != null) {
+      datasourceMonitor.stop();
+    }
+    // write all pending changes
+    persistenceQueue.shutdown();
+    if (movieDetailCache != null) {
+      LOGGER.info("movie detail cache: " + movieDetailCache.getStatistics());
+    }
+
+    // fast exit: only compact if the database is heavily fragmented
+    compactor.compactOnExit();
     mvStore.close();
 
     enabled = false;
@@ -149,13 +205,17 @@ public class MovieModuleManager implements ITmmModule {
    *          the movie to make the dump for
    */
   public void dump(Movie movie) {
+    movie.pinDetails();
     try {
-      JSONObject jsonObject = new JSONObject(movieObjectWriter.writeValueAsString(movie));
+      JSONObject jsonObject = new JSONObject(movieCodec.toJson(movie));
       LOGGER.info("Dumping Movie:\n" + jsonObject.toString(4));
     }
-    catch (JsonProcessingException e) {
+    catch (IOException e) {
       LOGGER.error("Cannot parse JSON!", e);
     }
+    finally {
+      movie.unpinDetails();
+    }
   }
 
   /**
@@ -166,38 +226,85 @@ public class MovieModuleManager implements ITmmModule {
    */
   public void dump(MovieSet movieSet) {
     try {
-      JSONObject jsonObject = new JSONObject(movieSetObjectWriter.writeValueAsString(movieSet));
+      JSONObject jsonObject = new JSONObject(movieSetCodec.toJson(movieSet));
       LOGGER.info("Dumping MovieSet:\n" + jsonObject.toString(4));
     }
-    catch (JsonProcessingException e) {
+    catch (IOException e) {
       LOGGER.error("Cannot parse JSON!", e);
     }
   }
 
+  /**
+   * get the store of the directory fingerprints (for the incremental update of the data sources)
+   * 
+   * @return the directory fingerprint store
+   */
+  public DirectoryFingerprintStore getDirectoryFingerprints() {
+    return directoryFingerprints;
+  }
+
   void persistMovie(Movie movie) throws Exception {
-    String newValue = movieObjectWriter.writeValueAsString(movie);
-    String oldValue = movieMap.get(movie.getDbId());
+    // nothing changed since the last persist
+    if (!movie.isDirty()) {
+      return;
+    }
+
+    persistenceQueue.enqueue(movie, movieWriter);
+  }
+
+  private void writeMovie(Movie movie) throws Exception {
+    // modifications while encoding keep the entity dirty
+    long modifications = movie.getModificationCount();
+    // a movie with released details has to be encoded with its details from the database
+    Object newValue = movieDetailCache != null ? movieDetailCache.encode(movie) : movieCodec.encode(movie);
+    Object oldValue = movieMap.get(movie.getDbId());
 
-    if (!StringUtils.equals(newValue, oldValue)) {
+    if (!movieCodec.isEqual(newValue, oldValue)) {
       // write movie to DB
       movieMap.put(movie.getDbId(), newValue);
     }
+    movie.clearDirty(modifications);
   }
 
   void removeMovieFromDb(Movie movie) throws Exception {
+    persistenceQueue.discard(movie);
+    if (movieDetailCache != null) {
+      // load the details before they are gone from the database
+      movieDetailCache.remove(movie);
+    }
     movieMap.remove(movie.getDbId());
+    if (movie.getPathNIO() != null) {
+      // the folder has to be walked again on the next update
+      directoryFingerprints.invalidate(movie.getPathNIO());
+    }
+    // a re-added movie has to be persisted completely
+    movie.setDirty();
   }
 
   void persistMovieSet(MovieSet movieSet) throws Exception {
-    String newValue = movieSetObjectWriter.writeValueAsString(movieSet);
-    String oldValue = movieMap.get(movieSet.getDbId());
-    if (!StringUtils.equals(newValue, oldValue)) {
+    // nothing changed since the last persist
+    if (!movieSet.isDirty()) {
+      return;
+    }
+
+    persistenceQueue.enqueue(movieSet, movieSetWriter);
+  }
+
+  private void writeMovieSet(MovieSet movieSet) throws Exception {
+    // modifications while encoding keep the entity dirty
+    long modifications = movieSet.getModificationCount();
+    Object newValue = movieSetCodec.encode(movieSet);
+    Object oldValue = movieSetMap.get(movieSet.getDbId());
+    if (!movieSetCodec.isEqual(newValue, oldValue)) {
       movieSetMap.put(movieSet.getDbId(), newValue);
     }
+    movieSet.clearDirty(modifications);
   }
 
   void removeMovieSetFromDb(MovieSet movieSet) throws Exception {
+    persistenceQueue.discard(movieSet);
     movieSetMap.remove(movieSet.getDbId());
+    movieSet.setDirty();
   }
 
   @Override
@@ -24,9 +24,11 @@ import java.nio.file.Paths;
 import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,6 +38,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.LanguageStyle;
 import org.tinymediamanager.core.MediaFileType;
@@ -219,6 +222,18 @@ public class MovieRenamer {
     LOGGER.debug("path expression: " + MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerPathname());
     LOGGER.debug("file expression: " + MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerFilename());
 
+    // the cache keys of the artwork (by the path inside the movie folder) - the cached images are taken over by the renamed files
+    Map<Path, String> cacheKeys = new HashMap<>();
+    List<Path> originalGraphics = new ArrayList<>();
+    if (Globals.settings.isImageCache()) {
+      for (MediaFile gfx : movie.getMediaFiles()) {
+        if (gfx.isGraphic()) {
+          cacheKeys.put(getArtworkKey(movie, gfx), ImageCache.getCacheKey(gfx.getFileAsPath()));
+          originalGraphics.add(gfx.getFileAsPath());
+        }
+      }
+    }
+
     String newPathname = createDestinationForFoldername(MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerPathname(), movie);
     String oldPathname = movie.getPathNIO().toString();
 
@@ -429,6 +444,7 @@ public class MovieRenamer {
         fanartRenamed = true;
         boolean ok = copyFile(mf.getFileAsPath(), newMF.getFileAsPath());
         if (ok) {
+          ImageCache.remapCachedImage(cacheKeys.get(getArtworkKey(movie, mf)), newMF.getFileAsPath());
           needed.add(newMF);
         }
       }
@@ -495,6 +511,9 @@ public class MovieRenamer {
       for (MediaFile newMF : newMFs) {
         boolean ok = copyFile(other.getFileAsPath(), newMF.getFileAsPath());
         if (ok) {
+          if (other.isGraphic()) {
+            ImageCache.remapCachedImage(cacheKeys.get(getArtworkKey(movie, other)), newMF.getFileAsPath());
+          }
           needed.add(newMF);
         }
         else {
@@ -509,15 +528,6 @@ public class MovieRenamer {
     // ######################################################################
     needed.addAll(movie.getMediaFiles(MediaFileType.SUBTITLE));
 
-    // ######################################################################
-    // ## invalidade image cache
-    // ######################################################################
-    for (MediaFile gfx : movie.getMediaFiles()) {
-      if (gfx.isGraphic()) {
-        ImageCache.invalidateCachedImage(gfx.getFileAsPath());
-      }
-    }
-
     // remove duplicate MediaFiles
     Set<MediaFile> newMFs = new LinkedHashSet<>(needed);
     needed.clear();
@@ -582,12 +592,31 @@ public class MovieRenamer {
       }
     }
 
+    // the renamed/moved artwork is cached by its new path
+    for (Path original : originalGraphics) {
+      if (!Files.exists(original)) {
+        ImageCache.removeCacheKey(original);
+      }
+    }
+
     if (downloadMissingArtworks) {
       LOGGER.debug("Yay - movie upgrade :) download missing artworks");
       MovieArtworkHelper.downloadMissingArtwork(movie);
     }
   }
 
+  /**
+   * get the key of an artwork file for remapping its cached image: the path inside the movie folder (which is kept when the folder is renamed) or
+   * the absolute path for artwork outside of the movie folder
+   */
+  private static Path getArtworkKey(Movie movie, MediaFile mf) {
+    Path file = mf.getFileAsPath();
+    if (file.startsWith(movie.getPathNIO())) {
+      return movie.getPathNIO().relativize(file);
+    }
+    return file.toAbsolutePath();
+  }
+
   /**
    * generates renamed filename(s) per MF
    * 
@@ -37,6 +37,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.ImageCache;
+import org.tinymediamanager.core.ImageCacheIndex;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
@@ -526,7 +527,10 @@ public class MovieSetArtworkHelper {
       String filename = ImageCache.getMD5(urlToArtwork);
 
       try {
-        writeImage(bytes, ImageCache.getCacheDir().resolve(filename + ".jpg"));
+        Path cachedFile = ImageCache.getCacheFile(filename + ".jpg");
+        Files.createDirectories(cachedFile.getParent());
+        writeImage(bytes, cachedFile);
+        ImageCacheIndex.getInstance().added(cachedFile);
       }
       catch (Exception e) {
         LOGGER.warn("error in image fetcher", e);
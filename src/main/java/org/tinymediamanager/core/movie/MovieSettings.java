@@ -101,6 +101,9 @@ public class MovieSettings extends AbstractModelObject {
   private final static String             UI_FILTERS                               = "uiFilters";
   private final static String             STORE_UI_FILTERS                         = "storeUiFilters";
   private final static String             MOVIE_SKIP_FOLDERS                       = "movieSkipFolders";
+  private final static String             INCREMENTAL_UPDATE                       = "incrementalUpdate";
+  private final static String             UPDATE_THREADS                           = "updateThreads";
+  private final static String             UPDATE_THREADS_NETWORK                   = "updateThreadsNetwork";
 
   @XmlElementWrapper(name = MOVIE_DATA_SOURCE)
   @XmlElement(name = PATH)
@@ -143,6 +146,9 @@ public class MovieSettings extends AbstractModelObject {
   // data sources / NFO settings
   private boolean                         detectMovieMultiDir                      = false;
   private boolean                         buildImageCacheOnImport                  = false;
+  private boolean                         incrementalUpdate                        = false;
+  private int                             updateThreads                            = 3;
+  private int                             updateThreadsNetwork                     = 2;
   private MovieConnectors                 movieConnector                           = MovieConnectors.KODI;
   private CertificationStyle              movieCertificationStyle                  = CertificationStyle.LARGE;
 
@@ -693,6 +699,54 @@ public class MovieSettings extends AbstractModelObject {
     firePropertyChange(BUILD_IMAGE_CACHE_ON_IMPORT, oldValue, newValue);
   }
 
+  public boolean isIncrementalUpdate() {
+    return incrementalUpdate;
+  }
+
+  /**
+   * Should the update of the data sources skip unchanged folders (detected by the stored directory fingerprints)?
+   * 
+   * @param newValue
+   *          true/false
+   */
+  public void setIncrementalUpdate(boolean newValue) {
+    boolean oldValue = this.incrementalUpdate;
+    this.incrementalUpdate = newValue;
+    firePropertyChange(INCREMENTAL_UPDATE, oldValue, newValue);
+  }
+
+  public int getUpdateThreads() {
+    return updateThreads;
+  }
+
+  /**
+   * the count of parallel threads for updating a data source on a local drive
+   * 
+   * @param newValue
+   *          the thread count
+   */
+  public void setUpdateThreads(int newValue) {
+    int oldValue = this.updateThreads;
+    this.updateThreads = newValue;
+    firePropertyChange(UPDATE_THREADS, oldValue, newValue);
+  }
+
+  public int getUpdateThreadsNetwork() {
+    return updateThreadsNetwork;
+  }
+
+  /**
+   * the count of parallel threads for updating a data source on a network share (NFS, SMB, ...)
+   * 
+   * @param newValue
+   *          the thread count
+   */
+  public void setUpdateThreadsNetwork(int newValue) {
+    int oldValue = this.updateThreadsNetwork;
+    this.updateThreadsNetwork = newValue;
+    firePropertyChange(UPDATE_THREADS_NETWORK, oldValue, newValue);
+  }
+
   public boolean isMovieRenamerCreateMoviesetForSingleMovie() {
     return movieRenamerCreateMoviesetForSingleMovie;
   }
@@ -74,6 +74,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.EntityDetailCache;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Utils;
@@ -190,6 +191,10 @@ public class Movie extends MediaEntity {
   private Date                                  lastWatched                = null;
   private List<MediaGenres>                     genresForAccess            = new CopyOnWriteArrayList<>();
 
+  // summary of the released details (for the table and the filters)
+  private boolean                               summaryHasPlot             = false;
+  private boolean                               summaryHasTrailer          = false;
+
   /**
    * Instantiates a new movie. To initialize the propertychangesupport after loading
    */
@@ -341,7 +346,9 @@ public class Movie extends MediaEntity {
    * @return true/false
    */
   public Boolean getHasMetadata() {
-    if (!plot.isEmpty() && !(year.isEmpty() || year.equals("0"))) {
+    // the summary is set before the details are released
+    boolean hasPlot = !plot.isEmpty() || (!isDetailsLoaded() && summaryHasPlot);
+    if (hasPlot && !(year.isEmpty() || year.equals("0"))) {
       return true;
     }
     return false;
@@ -372,7 +379,8 @@ public class Movie extends MediaEntity {
    * @return the checks for trailer
    */
   public Boolean getHasTrailer() {
-    if (trailer != null && trailer.size() > 0) {
+    boolean hasTrailer = !trailer.isEmpty() || (!isDetailsLoaded() && summaryHasTrailer);
+    if (hasTrailer) {
       return true;
     }
 
@@ -419,6 +427,41 @@ public class Movie extends MediaEntity {
     }
   }
 
+  @Override
+  protected void takeOwnershipOfNestedObjects() {
+    super.takeOwnershipOfNestedObjects();
+    for (MovieActor actor : actors) {
+      actor.setOwner(this);
+    }
+    for (MovieProducer producer : producers) {
+      producer.setOwner(this);
+    }
+    for (MovieTrailer movieTrailer : trailer) {
+      movieTrailer.setOwner(this);
+    }
+  }
+
+  @Override
+  public void releaseDetails(EntityDetailCache<?> cache) {
+    summaryHasPlot = !plot.isEmpty();
+    summaryHasTrailer = !trailer.isEmpty();
+    super.releaseDetails(cache);
+    tagline = "";
+    actors = new CopyOnWriteArrayList<>();
+    producers = new CopyOnWriteArrayList<>();
+    trailer = new CopyOnWriteArrayList<>();
+  }
+
+  @Override
+  public void takeDetails(MediaEntity source) {
+    Movie movie = (Movie) source;
+    tagline = movie.tagline;
+    actors = movie.actors;
+    producers = movie.producers;
+    trailer = movie.trailer;
+    super.takeDetails(source);
+  }
+
   /**
    * Adds the actor.
    * 
@@ -431,6 +474,7 @@ public class Movie extends MediaEntity {
       obj.setEntityRoot(getPathNIO());
     }
 
+    loadDetailsForModification();
     actors.add(obj);
     firePropertyChange(ACTORS, null, this.getActors());
   }
@@ -441,7 +485,13 @@ public class Movie extends MediaEntity {
    * @return the trailers
    */
   public List<MovieTrailer> getTrailer() {
-    return this.trailer;
+    pinDetails();
+    try {
+      return this.trailer;
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -451,6 +501,7 @@ public class Movie extends MediaEntity {
    *          the obj
    */
   public void addTrailer(MovieTrailer obj) {
+    loadDetailsForModification();
     trailer.add(obj);
     firePropertyChange(TRAILER, null, trailer);
   }
@@ -459,6 +510,7 @@ public class Movie extends MediaEntity {
    * Removes the all trailers.
    */
   public void removeAllTrailers() {
+    loadDetailsForModification();
     trailer.clear();
     firePropertyChange(TRAILER, null, trailer);
   }
@@ -614,6 +666,7 @@ public class Movie extends MediaEntity {
   /** set subtitles */
   public void setSubtitles(boolean sub) {
     this.subtitles = sub;
+    propertyModified();
   }
 
   /**
@@ -653,7 +706,13 @@ public class Movie extends MediaEntity {
    * @return the actors
    */
   public List<MovieActor> getActors() {
-    return this.actors;
+    pinDetails();
+    try {
+      return this.actors;
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -731,7 +790,13 @@ public class Movie extends MediaEntity {
    * @return the tagline
    */
   public String getTagline() {
-    return tagline;
+    pinDetails();
+    try {
+      return tagline;
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -771,6 +836,7 @@ public class Movie extends MediaEntity {
    *          the obj
    */
   public void removeActor(MovieActor obj) {
+    loadDetailsForModification();
     actors.remove(obj);
     firePropertyChange(ACTORS, null, this.getActors());
   }
@@ -794,6 +860,7 @@ public class Movie extends MediaEntity {
   public void setExtraThumbs(List<String> extraThumbs) {
     this.extraThumbs.clear();
     this.extraThumbs.addAll(extraThumbs);
+    propertyModified();
   }
 
   /**
@@ -815,6 +882,7 @@ public class Movie extends MediaEntity {
   public void setExtraFanarts(List<String> extraFanarts) {
     this.extraFanarts.clear();
     this.extraFanarts.addAll(extraFanarts);
+    propertyModified();
   }
 
   /**
@@ -1128,8 +1196,8 @@ public class Movie extends MediaEntity {
 
     md.setTitle(title);
     md.setOriginalTitle(originalTitle);
-    md.setTagline(tagline);
-    md.setPlot(plot);
+    md.setTagline(getTagline());
+    md.setPlot(getPlot());
     try {
       md.setYear(Integer.parseInt(year));
     }
@@ -1177,6 +1245,7 @@ public class Movie extends MediaEntity {
    */
   @JsonSetter
   public void setActors(List<MovieActor> newActors) {
+    loadDetailsForModification();
     // two way sync of actors
 
     // first remove unused
@@ -1275,6 +1344,7 @@ public class Movie extends MediaEntity {
    *          the new tagline
    */
   public void setTagline(String newValue) {
+    loadDetailsForModification();
     String oldValue = this.tagline;
     this.tagline = newValue;
     firePropertyChange("tagline", oldValue, newValue);
@@ -1640,6 +1710,7 @@ public class Movie extends MediaEntity {
    */
   public void setMultiMovieDir(boolean multiDir) {
     this.multiMovieDir = multiDir;
+    propertyModified();
   }
 
   /**
@@ -1723,6 +1794,7 @@ public class Movie extends MediaEntity {
    */
   public void setDisc(boolean isDisc) {
     this.isDisc = isDisc;
+    propertyModified();
   }
 
   /**
@@ -1944,6 +2016,7 @@ public class Movie extends MediaEntity {
 
   public void setLastWatched(Date lastWatched) {
     this.lastWatched = lastWatched;
+    propertyModified();
   }
 
   @Override
@@ -2030,18 +2103,21 @@ public class Movie extends MediaEntity {
       obj.setEntityRoot(getPathNIO());
     }
 
+    loadDetailsForModification();
     producers.add(obj);
 
     firePropertyChange(PRODUCERS, null, producers);
   }
 
   public void removeProducer(MovieProducer obj) {
+    loadDetailsForModification();
     producers.remove(obj);
     firePropertyChange(PRODUCERS, null, producers);
   }
 
   @JsonSetter
   public void setProducers(List<MovieProducer> newProducers) {
+    loadDetailsForModification();
     // two way sync of producers
     // first remove unused
     for (int i = producers.size() - 1; i >= 0; i--) {
@@ -2088,7 +2164,13 @@ public class Movie extends MediaEntity {
   }
 
   public List<MovieProducer> getProducers() {
-    return this.producers;
+    pinDetails();
+    try {
+      return this.producers;
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -2102,6 +2184,7 @@ public class Movie extends MediaEntity {
 
   public void setStacked(boolean stacked) {
     this.stacked = stacked;
+    propertyModified();
   }
 
   /**
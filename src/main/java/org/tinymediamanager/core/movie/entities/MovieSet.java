@@ -171,7 +171,8 @@ public class MovieSet extends MediaEntity {
     if (StringUtils.isBlank(artworkFilename)) {
       final String artworkUrl = getArtworkUrl(type);
       if (StringUtils.isNotBlank(artworkUrl)) {
-        Path artworkFile = ImageCache.getCacheDir().resolve(ImageCache.getMD5(artworkUrl));
+        // the artwork is cached as jpg (see MovieSetArtworkHelper)
+        Path artworkFile = ImageCache.getCacheFile(ImageCache.getMD5(artworkUrl) + ".jpg");
         if (Files.exists(artworkFile)) {
           artworkFilename = artworkFile.toAbsolutePath().toString();
         }
@@ -23,6 +23,7 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaInfoPool;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
@@ -45,7 +46,7 @@ public class MovieReloadMediaInformationTask extends TmmThreadPool {
   public MovieReloadMediaInformationTask(List<Movie> movies) {
     super(BUNDLE.getString("movie.updatemediainfo"));
     moviesToReload = new ArrayList<>(movies);
-    initThreadPool(1, "reloadMI");
+    initThreadPool(MediaInfoPool.getThreadCount(), "reloadMI");
   }
 
   @Override
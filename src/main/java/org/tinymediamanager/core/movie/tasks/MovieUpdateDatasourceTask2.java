@@ -15,33 +15,29 @@
  */
 package org.tinymediamanager.core.movie.tasks;
 
-import static java.nio.file.FileVisitResult.CONTINUE;
-import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
-import static java.nio.file.FileVisitResult.TERMINATE;
-
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,8 +48,12 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.DirectoryFingerprint;
+import org.tinymediamanager.core.DirectoryFingerprintStore;
+import org.tinymediamanager.core.DirectoryListing;
 import org.tinymediamanager.core.ImageCacheTask;
 import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaInfoPool;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Message;
@@ -69,6 +69,7 @@ import org.tinymediamanager.core.movie.connector.MovieToMpNfoConnector;
 import org.tinymediamanager.core.movie.connector.MovieToXbmcNfoConnector;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieTrailer;
+import org.tinymediamanager.core.threading.PipelineStage;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -89,12 +90,18 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   private static final Logger         LOGGER         = LoggerFactory.getLogger(MovieUpdateDatasourceTask2.class);
   private static final ResourceBundle BUNDLE         = ResourceBundle.getBundle("messages", new UTF8Control());                                  //$NON-NLS-1$
 
-  private static long                 preDir         = 0;
-  private static long                 postDir        = 0;
-  private static long                 visFile        = 0;
-  private static long                 preDirAll      = 0;
-  private static long                 postDirAll     = 0;
-  private static long                 visFileAll     = 0;
+  // statistics of this run; the folders are walked by several threads
+  private final AtomicLong            preDir         = new AtomicLong(0);
+  private final AtomicLong            postDir        = new AtomicLong(0);
+  private final AtomicLong            visFile        = new AtomicLong(0);
+  private final AtomicLong            preDirAll      = new AtomicLong(0);
+  private final AtomicLong            postDirAll     = new AtomicLong(0);
+  private final AtomicLong            visFileAll     = new AtomicLong(0);
+  private final AtomicLong            fsCalls        = new AtomicLong(0);
+
+  // thread counts overriding the settings for this run (0 = take the settings)
+  private static volatile int         localThreads   = 0;
+  private static volatile int         shareThreads   = 0;
 
   // skip well-known, but unneeded folders (UPPERCASE)
   private static final List<String>   skipFolders    = Arrays.asList(".", "..", "CERTIFICATE", "BACKUP", "PLAYLIST", "CLPINF", "SSIF", "AUXDATA",
@@ -104,10 +111,25 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   private static final String         skipRegex      = "^[.][\\w@]+.*";
   private static Pattern              video3DPattern = Pattern.compile("(?i)[ ._\\(\\[-]3D[ ._\\)\\]-]?");
 
+  // the maximum count of waiting folders/files per stage
+  private static final int            PARSE_QUEUE    = 100;
+  private static final int            MI_QUEUE       = 500;
+
   private List<String>                dataSources;
   private List<Movie>                 movieFolders   = new ArrayList<>();
+  private Set<Path>                   changedFolders = new HashSet<>();
   private MovieList                   movieList;
-  private HashSet<Path>               filesFound     = new HashSet<>();
+  private Set<Path>                   filesFound     = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+  // every directory is listed only once per datasource; the workers take the listings of the walk
+  private Map<Path, DirectoryListing> listings       = new ConcurrentHashMap<>();
+  // directories which could not be listed (e.g. an unreachable share); the cleanup does not remove anything below them
+  private Set<Path>                   unreachable    = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+  // folders which could not be parsed; their fingerprints are not stored
+  private Set<Path>                   failedFolders  = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+  // the stages of the update pipeline (walk -> parse -> mediainfo)
+  private Set<PipelineStage>          stages         = Collections.newSetFromMap(new ConcurrentHashMap<PipelineStage, Boolean>());
+  private PipelineStage               mediainfoStage;
+  private Set<MediaFile>              queuedFiles    = Collections.newSetFromMap(new ConcurrentHashMap<MediaFile, Boolean>());
 
   public MovieUpdateDatasourceTask2() {
     super(BUNDLE.getString("update.datasource"));
@@ -122,6 +144,27 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     dataSources.add(datasource);
   }
 
+  /**
+   * update only the given (changed) folders in the root of the data source
+   * 
+   * @param datasource
+   *          the data source
+   * @param folders
+   *          the changed folders; if the data source itself is in this list, the whole data source will be updated
+   */
+  public MovieUpdateDatasourceTask2(String datasource, Collection<Path> folders) {
+    this(datasource);
+    Path dsAsPath = Paths.get(datasource).toAbsolutePath();
+    for (Path folder : folders) {
+      if (folder.toAbsolutePath().equals(dsAsPath)) {
+        // update the whole data source
+        changedFolders.clear();
+        break;
+      }
+      changedFolders.add(folder.toAbsolutePath());
+    }
+  }
+
   public MovieUpdateDatasourceTask2(List<Movie> movies) {
     super(BUNDLE.getString("update.datasource"));
     movieList = MovieList.getInstance();
@@ -138,117 +181,51 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.nonespecified"));
       return;
     }
-    preDir = 0;
-    postDir = 0;
-    visFile = 0;
-    preDirAll = 0;
-    postDirAll = 0;
-    visFileAll = 0;
-
-    // get existing movie folders
-    List<Path> existing = new ArrayList<>();
-    for (Movie movie : movieList.getMovies()) {
-      existing.add(movie.getPathNIO());
-    }
-
     try {
       StopWatch stopWatch = new StopWatch();
       stopWatch.start();
-      List<Path> imageFiles = new ArrayList<>();
+      final List<Path> imageFiles = Collections.synchronizedList(new ArrayList<Path>());
 
-      if (movieFolders.isEmpty()) {
-        for (String ds : dataSources) {
-          LOGGER.info("Start UDS on datasource: " + ds);
-          initThreadPool(3, "update");
-          setTaskName(BUNDLE.getString("update.datasource") + " '" + ds + "'");
-          publishState();
-
-          Path dsAsPath = Paths.get(ds);
-
-          // first of all check if the DS is available; we can take the
-          // Files.exist here:
-          // if the DS exists (and we have access to read it): Files.exist = true
-          if (!Files.exists(dsAsPath)) {
-            // error - continue with next datasource
-            MessageManager.instance
-                .pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.unavailable", new String[] { ds }));
-            continue;
-          }
+      // the mediainfo stage runs alongside the walking and parsing; every parsed movie is handed over immediately
+      mediainfoStage = createStage("mediainfo", MediaInfoPool.getThreadCount(), MI_QUEUE);
 
-          // just check datasource folder, parse NEW folders first
-          List<Path> newMovieDirs = new ArrayList<>();
-          List<Path> existingMovieDirs = new ArrayList<>();
-          List<Path> rootList = listFilesAndDirs(dsAsPath);
-
-          // when there is _nothing_ found in the ds root, it might be offline -
-          // skip further processing;
-          // not in Windows since that won't happen there
-          if (rootList.isEmpty() && !Platform.isWindows()) {
-            // error - continue with next datasource
-            MessageManager.instance
-                .pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.unavailable", new String[] { ds }));
-            continue;
-          }
-
-          List<Path> rootFiles = new ArrayList<>();
-          for (Path path : rootList) {
-            if (Files.isDirectory(path)) {
-              if (existing.contains(path)) {
-                existingMovieDirs.add(path);
-              }
-              else {
-                newMovieDirs.add(path);
-              }
-            }
-            else {
-              rootFiles.add(path);
-            }
-          }
-          rootList.clear();
-          for (Path path : newMovieDirs) {
-            searchAndParse(dsAsPath.toAbsolutePath(), path, Integer.MAX_VALUE);
-          }
-          for (Path path : existingMovieDirs) {
-            searchAndParse(dsAsPath.toAbsolutePath(), path, Integer.MAX_VALUE);
-          }
-          if (rootFiles.size() > 0) {
-            submitTask(new parseMultiMovieDirTask(dsAsPath.toAbsolutePath(), dsAsPath.toAbsolutePath(), rootFiles));
-          }
-
-          waitForCompletionOrCancel();
-          newMovieDirs.clear();
-          existingMovieDirs.clear();
-          rootFiles.clear();
-
-          if (cancel) {
-            break;
-          }
-
-          // cleanup
-          cleanup(ds);
-
-          // mediainfo
-          gatherMediainfo(ds);
-
-          if (cancel) {
-            break;
-          }
+      if (movieFolders.isEmpty()) {
+        setTaskName(BUNDLE.getString("update.datasource"));
+        publishState();
 
-          // build image cache on import
-          if (MovieModuleManager.MOVIE_SETTINGS.isBuildImageCacheOnImport()) {
-            for (Movie movie : movieList.getMovies()) {
-              if (!dsAsPath.equals(Paths.get(movie.getDataSource()))) {
-                // check only movies matching datasource
-                continue;
+        // datasources on different devices are updated concurrently; the ones on the same device one after another
+        List<List<String>> lanes = getDatasourceLanes();
+        PipelineStage walkStage = createStage("walk", lanes.size(), lanes.size());
+        for (final List<String> lane : lanes) {
+          walkStage.submit(new Runnable() {
+            @Override
+            public void run() {
+              for (String ds : lane) {
+                if (cancel) {
+                  break;
+                }
+                try {
+                  updateDatasource(ds, imageFiles);
+                }
+                catch (InterruptedException e) {
+                  LOGGER.error("update of datasource " + ds + " interrupted");
+                  break;
+                }
               }
-              imageFiles.addAll(movie.getImagesToCache());
             }
-          }
-        } // END datasource loop
+          });
+        }
+        awaitStage(walkStage);
+        LOGGER.debug(walkStage.getStatistics());
       }
       else {
         LOGGER.info("Start UDS for selected movies");
-        initThreadPool(3, "update");
+        // the slowest data source of the selected movies limits the thread count
+        int threads = Integer.MAX_VALUE;
+        for (String ds : getDatasources(movieFolders)) {
+          threads = Math.min(threads, getUpdateThreads(Paths.get(ds)));
+        }
+        PipelineStage parseStage = createStage("update", threads, PARSE_QUEUE);
         setTaskName(BUNDLE.getString("update.datasource"));
         publishState();
 
@@ -261,17 +238,25 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
         for (Map.Entry<Path, String> entry : folder.entrySet()) {
           Path dir = entry.getKey();
           String ds = entry.getValue();
-          submitTask(new FindMovieTask(dir, Paths.get(ds)));
+          submitParseTask(parseStage, dir, new FindMovieTask(dir, Paths.get(ds)));
         }
-        waitForCompletionOrCancel();
+        awaitStage(parseStage);
+        LOGGER.debug(parseStage.getStatistics());
 
         // cleanup
         cleanup(movieFolders);
+        listings.clear();
 
         // mediainfo
         gatherMediainfo(movieFolders);
       }
 
+      // wait for the mediainfo of all parsed movies
+      setTaskName(BUNDLE.getString("update.mediainfo"));
+      publishState();
+      awaitStage(mediainfoStage);
+      LOGGER.debug(mediainfoStage.getStatistics());
+
       if (imageFiles.size() > 0) {
         ImageCacheTask task = new ImageCacheTask(imageFiles);
         TmmTaskManager.getInstance().addUnnamedTask(task);
@@ -287,12 +272,13 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
       LOGGER.debug("FilesFound " + filesFound.size());
       LOGGER.debug("moviesFound " + movieList.getMovieCount());
-      LOGGER.debug("PreDir " + preDir);
-      LOGGER.debug("PostDir " + postDir);
-      LOGGER.debug("VisFile " + visFile);
-      LOGGER.debug("PreDirAll " + preDirAll);
-      LOGGER.debug("PostDirAll " + postDirAll);
-      LOGGER.debug("VisFileAll " + visFileAll);
+      LOGGER.debug("PreDir " + preDir.get());
+      LOGGER.debug("PostDir " + postDir.get());
+      LOGGER.debug("VisFile " + visFile.get());
+      LOGGER.debug("PreDirAll " + preDirAll.get());
+      LOGGER.debug("PostDirAll " + postDirAll.get());
+      LOGGER.debug("VisFileAll " + visFileAll.get());
+      LOGGER.debug("FsCalls " + fsCalls.get());
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -300,6 +286,340 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     }
   }
 
+  /**
+   * update a single datasource: the directories are walked and handed over to the parsers; the parsed movies are handed over to the mediainfo
+   * stage (which is not awaited here)
+   * 
+   * @param ds
+   *          the datasource
+   * @param imageFiles
+   *          the collected images to cache
+   * @throws InterruptedException
+   *           interrupted while waiting for the parsers
+   */
+  private void updateDatasource(String ds, List<Path> imageFiles) throws InterruptedException {
+    LOGGER.info("Start UDS on datasource: " + ds);
+    Path dsAsPath = Paths.get(ds);
+    setTaskName(BUNDLE.getString("update.datasource") + " '" + ds + "'");
+    publishState();
+
+    // first of all check if the DS is available; we can take the
+    // Files.exist here:
+    // if the DS exists (and we have access to read it): Files.exist = true
+    fsCalls.incrementAndGet();
+    if (!Files.exists(dsAsPath)) {
+      // error - continue with next datasource
+      MessageManager.instance
+          .pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.unavailable", new String[] { ds }));
+      return;
+    }
+
+    // just check datasource folder, parse NEW folders first
+    List<Path> newMovieDirs = new ArrayList<>();
+    List<Path> existingMovieDirs = new ArrayList<>();
+    Map<Path, BasicFileAttributes> rootList = new LinkedHashMap<>();
+    if (changedFolders.isEmpty()) {
+      DirectoryListing rootListing = getListing(dsAsPath);
+      if (rootListing != null) {
+        for (Map.Entry<Path, BasicFileAttributes> entry : rootListing.getEntries().entrySet()) {
+          if (!isSkipped(entry.getKey())) {
+            rootList.put(entry.getKey(), entry.getValue());
+          }
+          else {
+            LOGGER.debug("Skipping: " + entry.getKey());
+          }
+        }
+      }
+    }
+    else {
+      // only the changed folders (which still exist)
+      for (Path folder : changedFolders) {
+        try {
+          fsCalls.incrementAndGet();
+          rootList.put(folder.toAbsolutePath(), Files.readAttributes(folder, BasicFileAttributes.class));
+        }
+        catch (IOException e) {
+          // removed in the meantime
+        }
+      }
+    }
+
+    // when there is _nothing_ found in the ds root, it might be offline -
+    // skip further processing;
+    // not in Windows since that won't happen there
+    if (changedFolders.isEmpty() && rootList.isEmpty() && !Platform.isWindows()) {
+      // error - continue with next datasource
+      MessageManager.instance
+          .pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.unavailable", new String[] { ds }));
+      return;
+    }
+
+    // folders which are unchanged since the last update will not be walked/parsed again
+    DirectoryFingerprintStore fingerprints = null;
+    if (MovieModuleManager.MOVIE_SETTINGS.isIncrementalUpdate()) {
+      fingerprints = MovieModuleManager.getInstance().getDirectoryFingerprints();
+    }
+    List<Path> rootDirs = new ArrayList<>();
+    Set<Path> unchangedMovieDirs = new HashSet<>();
+
+    List<Path> rootFiles = new ArrayList<>();
+    Map<Path, BasicFileAttributes> rootDirAttributes = new HashMap<>();
+    for (Map.Entry<Path, BasicFileAttributes> entry : rootList.entrySet()) {
+      Path path = entry.getKey();
+      if (entry.getValue() != null && entry.getValue().isDirectory()) {
+        rootDirAttributes.put(path, entry.getValue());
+        rootDirs.add(path);
+        if (fingerprints != null && isUnchanged(fingerprints, path, entry.getValue())) {
+          unchangedMovieDirs.add(path);
+        }
+        // hashed lookup in the path index of the movie list
+        else if (!movieList.getMoviesByPath(path).isEmpty()) {
+          existingMovieDirs.add(path);
+        }
+        else {
+          newMovieDirs.add(path);
+        }
+      }
+      else {
+        rootFiles.add(path);
+      }
+    }
+    rootList.clear();
+    if (!unchangedMovieDirs.isEmpty()) {
+      LOGGER.info("skipping " + unchangedMovieDirs.size() + " unchanged folders");
+      addUnchangedMovies(dsAsPath, unchangedMovieDirs);
+    }
+
+    // the walk hands over the movie folders to the parsers while it is still running
+    PipelineStage parseStage = createStage("update", getUpdateThreads(dsAsPath), PARSE_QUEUE);
+    Map<Path, Map<Path, DirectoryFingerprint>> walkedDirs = new HashMap<>();
+    for (Path path : newMovieDirs) {
+      walkedDirs.put(path, searchAndParse(dsAsPath.toAbsolutePath(), path, rootDirAttributes.get(path), Integer.MAX_VALUE, parseStage));
+    }
+    for (Path path : existingMovieDirs) {
+      walkedDirs.put(path, searchAndParse(dsAsPath.toAbsolutePath(), path, rootDirAttributes.get(path), Integer.MAX_VALUE, parseStage));
+    }
+    if (rootFiles.size() > 0) {
+      submitParseTask(parseStage, dsAsPath.toAbsolutePath(),
+          new parseMultiMovieDirTask(dsAsPath.toAbsolutePath(), dsAsPath.toAbsolutePath(), rootFiles));
+    }
+
+    awaitStage(parseStage);
+    LOGGER.debug(ds + " - " + parseStage.getStatistics());
+    newMovieDirs.clear();
+    existingMovieDirs.clear();
+    rootFiles.clear();
+    rootDirAttributes.clear();
+
+    if (cancel) {
+      removeListings(dsAsPath.toAbsolutePath());
+      return;
+    }
+
+    // remember the fingerprints of all walked folders for the next update
+    if (fingerprints != null) {
+      // the store is shared by the datasources which are updated concurrently
+      synchronized (fingerprints) {
+        for (Map.Entry<Path, Map<Path, DirectoryFingerprint>> entry : walkedDirs.entrySet()) {
+          // a folder which has not been parsed completely will be walked and parsed again on the next update
+          Path folder = entry.getKey().toAbsolutePath();
+          if (isUnreachable(folder, true) || hasFailed(folder)) {
+            fingerprints.remove(folder);
+          }
+          else {
+            fingerprints.replace(entry.getKey(), entry.getValue());
+          }
+        }
+        if (changedFolders.isEmpty()) {
+          fingerprints.retain(dsAsPath, rootDirs);
+        }
+      }
+    }
+    walkedDirs.clear();
+
+    // the cleanup decides from the listings of the walk
+    if (changedFolders.isEmpty()) {
+      // cleanup
+      cleanup(ds);
+      removeListings(dsAsPath.toAbsolutePath());
+
+      // mediainfo for all movies which have not been handed over by the parsers
+      gatherMediainfo(getMoviesForDatasource(dsAsPath));
+    }
+    else {
+      // cleanup and mediainfo only for the movies in the changed folders
+      cleanup(getMoviesInFolders(dsAsPath, changedFolders));
+      removeListings(dsAsPath.toAbsolutePath());
+      gatherMediainfo(getMoviesInFolders(dsAsPath, changedFolders));
+    }
+
+    if (isUnreachable(dsAsPath.toAbsolutePath(), true)) {
+      // partially unreachable: the movies in the unreachable folders have been kept
+      LOGGER.warn("datasource " + ds + " is partially unreachable");
+      MessageManager.instance.pushMessage(
+          new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.partiallyunavailable", new String[] { ds }));
+    }
+
+    if (fingerprints != null) {
+      synchronized (fingerprints) {
+        fingerprints.commit();
+      }
+    }
+
+    if (cancel) {
+      return;
+    }
+
+    // build image cache on import
+    if (MovieModuleManager.MOVIE_SETTINGS.isBuildImageCacheOnImport()) {
+      for (Movie movie : changedFolders.isEmpty() ? getMoviesForDatasource(dsAsPath) : getMoviesInFolders(dsAsPath, changedFolders)) {
+        imageFiles.addAll(movie.getImagesToCache());
+      }
+    }
+  }
+
+  /**
+   * group the datasources by their device (file store): the datasources on different devices are updated concurrently, the ones on the same
+   * device one after another
+   * 
+   * @return the datasources per device
+   */
+  private List<List<String>> getDatasourceLanes() {
+    Map<Object, List<String>> lanes = new LinkedHashMap<>();
+    for (String ds : dataSources) {
+      Object device;
+      try {
+        fsCalls.incrementAndGet();
+        device = Files.getFileStore(Paths.get(ds));
+      }
+      catch (IOException e) {
+        // not available; this will be reported by the update of the datasource
+        device = ds;
+      }
+      List<String> lane = lanes.get(device);
+      if (lane == null) {
+        lane = new ArrayList<>();
+        lanes.put(device, lane);
+      }
+      lane.add(ds);
+    }
+    return new ArrayList<>(lanes.values());
+  }
+
+  private PipelineStage createStage(String name, int threads, int queueSize) {
+    PipelineStage stage = new PipelineStage(name, threads, queueSize);
+    stages.add(stage);
+    if (cancel) {
+      stage.cancel();
+    }
+    return stage;
+  }
+
+  private void awaitStage(PipelineStage stage) throws InterruptedException {
+    stage.awaitCompletion();
+    stage.shutdown();
+    stages.remove(stage);
+  }
+
+  /**
+   * hand over a folder to the parsers
+   * 
+   * @param stage
+   *          the parse stage
+   * @param folder
+   *          the folder to parse
+   * @param task
+   *          the parse task
+   */
+  private void submitParseTask(PipelineStage stage, final Path folder, final Callable<Object> task) {
+    addWorkUnit();
+    stage.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          task.call();
+        }
+        catch (Exception e) {
+          LOGGER.error("parsing crashed", e);
+          failedFolders.add(folder.toAbsolutePath());
+        }
+        finally {
+          workUnitDone();
+        }
+      }
+    });
+  }
+
+  private synchronized void addWorkUnit() {
+    workUnits++;
+  }
+
+  private synchronized void workUnitDone() {
+    progressDone++;
+    callback(null);
+  }
+
+  /**
+   * drop the cached listings of the given datasource
+   * 
+   * @param datasource
+   *          the datasource
+   */
+  private void removeListings(Path datasource) {
+    for (Path dir : new ArrayList<>(listings.keySet())) {
+      if (dir.startsWith(datasource)) {
+        listings.remove(dir);
+      }
+    }
+  }
+
+  @Override
+  public void cancel() {
+    super.cancel();
+    for (PipelineStage stage : stages) {
+      stage.cancel();
+    }
+  }
+
+  /**
+   * override the thread counts of the settings for this run (e.g. from the command line); the settings are not changed
+   * 
+   * @param local
+   *          the thread count for local data sources (0 = take the settings)
+   * @param share
+   *          the thread count for network shares (0 = take the settings)
+   */
+  public static void setUpdateThreads(int local, int share) {
+    localThreads = local;
+    shareThreads = share;
+  }
+
+  /**
+   * get the count of parallel update threads for the given data source: network shares get slow on many parallel requests, local drives do not
+   * 
+   * @param datasource
+   *          the data source
+   * @return the thread count
+   */
+  private static int getUpdateThreads(Path datasource) {
+    int threads;
+    if (Utils.isNetworkShare(datasource)) {
+      threads = shareThreads > 0 ? shareThreads : MovieModuleManager.MOVIE_SETTINGS.getUpdateThreadsNetwork();
+    }
+    else {
+      threads = localThreads > 0 ? localThreads : MovieModuleManager.MOVIE_SETTINGS.getUpdateThreads();
+    }
+    return Math.max(threads, 1);
+  }
+
+  private static Set<String> getDatasources(List<Movie> movies) {
+    Set<String> datasources = new HashSet<>();
+    for (Movie movie : movies) {
+      datasources.add(movie.getDataSource());
+    }
+    return datasources;
+  }
+
   /**
    * ThreadpoolWorker to work off ONE possible movie from root datasource directory
    * 
@@ -358,7 +678,10 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   }
 
   private void parseMovieDirectory(Path movieDir, Path dataSource) {
-    List<Path> movieDirList = listFilesAndDirs(movieDir);
+    DirectoryListing listing = getListing(movieDir);
+    if (listing == null) {
+      return;
+    }
     ArrayList<Path> files = new ArrayList<>();
     ArrayList<Path> dirs = new ArrayList<>(); // FIXME: what for....?
     HashSet<String> normalizedVideoFiles = new HashSet<>(); // just for
@@ -370,8 +693,13 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     Path movieRoot = movieDir; // root set to current dir - might be adjusted by
                                // disc folders
 
-    for (Path path : movieDirList) {
-      if (Utils.isRegularFile(path)) {
+    for (Map.Entry<Path, BasicFileAttributes> entry : listing.getEntries().entrySet()) {
+      Path path = entry.getKey();
+      BasicFileAttributes attributes = entry.getValue();
+      if (attributes == null || isSkipped(path)) {
+        continue;
+      }
+      if (Utils.isRegularFile(attributes)) {
         files.add(path.toAbsolutePath());
 
         // do not construct a fully MF yet
@@ -395,7 +723,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
           }
         }
       }
-      else if (Files.isDirectory(path)) {
+      else if (attributes.isDirectory()) {
         dirs.add(path.toAbsolutePath());
       }
     }
@@ -559,16 +887,16 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     }
 
     Movie movie = movieList.getMovieByPath(movieDir);
-    HashSet<Path> allFiles = getAllFilesRecursive(movieDir, 3); // need 3 (was
-                                                                // 2) because
-                                                                // extracted BD
+    HashSet<Path> allFiles = listAllFilesRecursive(movieDir, 3); // need 3 (was
+                                                                 // 2) because
+                                                                 // extracted BD
     filesFound.add(movieDir.toAbsolutePath()); // our global cache
     filesFound.addAll(allFiles); // our global cache
 
     // convert to MFs (we need it anyways at the end)
     ArrayList<MediaFile> mfs = new ArrayList<>();
     for (Path file : allFiles) {
-      mfs.add(new MediaFile(file));
+      mfs.add(createMediaFile(file));
     }
     allFiles.clear();
 
@@ -698,6 +1026,9 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
     movie.reEvaluateStacking();
     movie.saveToDb();
+
+    // start the mediainfo right away
+    queueMediainfo(movie);
   }
 
   /**
@@ -709,7 +1040,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
    *          the movie folder
    */
   private void createMultiMovieFromDir(Path dataSource, Path movieDir) {
-    List<Path> allFiles = listFilesOnly(movieDir);
+    List<Path> allFiles = getFiles(movieDir);
     createMultiMovieFromDir(dataSource, movieDir, allFiles);
   }
 
@@ -734,7 +1065,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     // convert to MFs
     ArrayList<MediaFile> mfs = new ArrayList<>();
     for (Path file : allFiles) {
-      mfs.add(new MediaFile(file));
+      mfs.add(createMediaFile(file));
     }
     // allFiles.clear(); // might come handy
 
@@ -879,6 +1210,9 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     for (Movie m : movieList.getMoviesByPath(movieDir)) {
       m.reEvaluateStacking();
       m.saveToDb();
+
+      // start the mediainfo right away
+      queueMediainfo(m);
     }
   }
 
@@ -981,41 +1315,163 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
         }
 
       } // end new MF found
+      else {
+        // a changed file gets its media information gathered again
+        current.get(current.indexOf(mf)).resetIfChanged(mf);
+      }
     } // end MF loop
   }
 
+  /**
+   * get all movies of the given datasource in one pass over the movie list; the path of every distinct datasource string is only parsed once
+   * 
+   * @param datasource
+   *          the datasource
+   * @return all movies of this datasource
+   */
+  private List<Movie> getMoviesForDatasource(Path datasource) {
+    List<Movie> movies = new ArrayList<>();
+    Map<String, Boolean> matchingDatasources = new HashMap<>();
+    for (Movie movie : new ArrayList<>(movieList.getMovies())) {
+      Boolean matches = matchingDatasources.get(movie.getDataSource());
+      if (matches == null) {
+        matches = datasource.equals(Paths.get(movie.getDataSource()));
+        matchingDatasources.put(movie.getDataSource(), matches);
+      }
+      if (matches) {
+        movies.add(movie);
+      }
+    }
+    return movies;
+  }
+
+  /**
+   * get all movies of the given datasource which are in (or below) the given folders
+   * 
+   * @param datasource
+   *          the datasource
+   * @param folders
+   *          the folders in the root of the datasource
+   * @return all movies in these folders
+   */
+  private List<Movie> getMoviesInFolders(Path datasource, Set<Path> folders) {
+    List<Movie> movies = new ArrayList<>();
+    for (Movie movie : getMoviesForDatasource(datasource)) {
+      for (Path parent = movie.getPathNIO(); parent != null; parent = parent.getParent()) {
+        if (folders.contains(parent)) {
+          movies.add(movie);
+          break;
+        }
+      }
+    }
+    return movies;
+  }
+
+  /**
+   * add all movies (and their files) in the unchanged folders to the found files, without walking these folders again
+   * 
+   * @param datasource
+   *          the data source
+   * @param unchangedDirs
+   *          the unchanged folders in the root of the data source
+   */
+  private void addUnchangedMovies(Path datasource, Set<Path> unchangedDirs) {
+    for (Movie movie : getMoviesInFolders(datasource, unchangedDirs)) {
+      filesFound.add(movie.getPathNIO());
+      for (MediaFile mf : movie.getMediaFiles()) {
+        filesFound.add(mf.getFileAsPath());
+      }
+    }
+  }
+
+  /**
+   * checks if the given file/folder (which has not been found by the walk) is really gone. The decision is taken from the listing of its parent
+   * directory: the directories of the walk have been listed already, any other directory is listed once for all its files (instead of a file system
+   * call per file). Nothing below an unreachable directory is gone.
+   * 
+   * @param path
+   *          the file/folder
+   * @return true if it does not exist anymore
+   */
+  private boolean isGone(Path path) {
+    path = path.toAbsolutePath();
+    Path parent = path.getParent();
+    if (parent == null || isUnreachable(parent, false)) {
+      return false;
+    }
+    DirectoryListing listing = getListing(parent);
+    if (listing == null) {
+      // the parent does not exist anymore - or it is unreachable
+      return !unreachable.contains(parent);
+    }
+    return !listing.getEntries().containsKey(path);
+  }
+
+  /**
+   * checks if the given directory could not be listed in this update
+   * 
+   * @param dir
+   *          the directory
+   * @param below
+   *          true: check the directories below the given one; false: check the given one and its parents
+   * @return true if it is unreachable
+   */
+  private boolean isUnreachable(Path dir, boolean below) {
+    if (below) {
+      for (Path unreachableDir : unreachable) {
+        if (unreachableDir.startsWith(dir)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    for (Path parent = dir; parent != null; parent = parent.getParent()) {
+      if (unreachable.contains(parent)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * checks if the given directory or any directory below could not be parsed in this update
+   * 
+   * @param dir
+   *          the directory
+   * @return true if the parsing of any folder failed
+   */
+  private boolean hasFailed(Path dir) {
+    for (Path failedFolder : failedFolders) {
+      if (failedFolder.startsWith(dir)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /*
    * cleanup database - remove orphaned movies/files
    */
   private void cleanup(String datasource) {
     setTaskName(BUNDLE.getString("update.cleanup"));
-    setTaskDescription(null);
-    setProgressDone(0);
-    setWorkUnits(0);
     publishState();
 
     LOGGER.info("removing orphaned movies/files...");
     List<Movie> moviesToRemove = new ArrayList<>();
-    for (int i = movieList.getMovies().size() - 1; i >= 0; i--) {
+    for (Movie movie : getMoviesForDatasource(Paths.get(datasource))) {
       if (cancel) {
         break;
       }
-      Movie movie = movieList.getMovies().get(i);
-
-      // check only movies matching datasource
-      if (!Paths.get(datasource).equals(Paths.get(movie.getDataSource()))) {
-        continue;
-      }
 
       Path movieDir = movie.getPathNIO();
       if (!filesFound.contains(movieDir)) {
-        // dir is not in hashset - check with exists to be sure it is not here
-        if (!Files.exists(movieDir)) {
+        // dir is not in hashset - check with the listing of its parent to be sure it is not here
+        if (isGone(movieDir)) {
           LOGGER.debug("movie directory '" + movieDir + "' not found, removing from DB...");
           moviesToRemove.add(movie);
         }
         else {
-          // can be; MMD and/or dir=DS root
+          // can be; MMD and/or dir=DS root (or unreachable)
           LOGGER.warn("dir " + movieDir + " not in hashset, but on hdd!");
         }
       }
@@ -1027,12 +1483,12 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
         List<MediaFile> mediaFiles = new ArrayList<>(movie.getMediaFiles());
         for (MediaFile mf : mediaFiles) {
           if (!filesFound.contains(mf.getFileAsPath())) {
-            if (!mf.exists()) {
+            if (isGone(mf.getFileAsPath())) {
               LOGGER.debug("removing orphaned file from DB: " + mf.getFileAsPath());
               movie.removeFromMediaFiles(mf);
             }
             else {
-              // hmm...this should not happen
+              // hmm...this should not happen (or unreachable)
               LOGGER.warn("file " + mf.getFileAsPath() + " not in hashset, but on hdd!");
             }
           }
@@ -1054,9 +1510,6 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
   private void cleanup(List<Movie> movies) {
     setTaskName(BUNDLE.getString("update.cleanup"));
-    setTaskDescription(null);
-    setProgressDone(0);
-    setWorkUnits(0);
     publishState();
 
     LOGGER.info("removing orphaned movies/files...");
@@ -1070,13 +1523,13 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
       Path movieDir = movie.getPathNIO();
       if (!filesFound.contains(movieDir)) {
-        // dir is not in hashset - check with exists to be sure it is not here
-        if (!Files.exists(movieDir)) {
+        // dir is not in hashset - check with the listing of its parent to be sure it is not here
+        if (isGone(movieDir)) {
           LOGGER.debug("movie directory '" + movieDir + "' not found, removing from DB...");
           moviesToRemove.add(movie);
         }
         else {
-          // can be; MMD and/or dir=DS root
+          // can be; MMD and/or dir=DS root (or unreachable)
           LOGGER.warn("dir " + movieDir + " not in hashset, but on hdd!");
         }
       }
@@ -1088,12 +1541,12 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
         List<MediaFile> mediaFiles = new ArrayList<>(movie.getMediaFiles());
         for (MediaFile mf : mediaFiles) {
           if (!filesFound.contains(mf.getFileAsPath())) {
-            if (!mf.exists()) {
+            if (isGone(mf.getFileAsPath())) {
               LOGGER.debug("removing orphaned file from DB: " + mf.getFileAsPath());
               movie.removeFromMediaFiles(mf);
             }
             else {
-              // hmm...this should not happen
+              // hmm...this should not happen (or unreachable)
               LOGGER.warn("file " + mf.getFileAsPath() + " not in hashset, but on hdd!");
             }
           }
@@ -1116,53 +1569,42 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   /*
    * gather mediainfo for ungathered movies
    */
-  private void gatherMediainfo(String datasource) {
-    // start MI
-    setTaskName(BUNDLE.getString("update.mediainfo"));
-    publishState();
-
-    initThreadPool(1, "mediainfo");
-
+  private void gatherMediainfo(List<Movie> movies) {
     LOGGER.info("getting Mediainfo...");
-    for (int i = movieList.getMovies().size() - 1; i >= 0; i--) {
+    for (Movie movie : movies) {
       if (cancel) {
         break;
       }
-      Movie movie = movieList.getMovies().get(i);
-
-      // check only movies matching datasource
-      if (!Paths.get(datasource).equals(Paths.get(movie.getDataSource()))) {
-        continue;
-      }
-
-      for (MediaFile mf : new ArrayList<>(movie.getMediaFiles())) {
-        if (StringUtils.isBlank(mf.getContainerFormat())) {
-          submitTask(new MediaFileInformationFetcherTask(mf, movie, false));
-        }
-      }
+      queueMediainfo(movie);
     }
-    waitForCompletionOrCancel();
   }
 
-  private void gatherMediainfo(List<Movie> movies) {
-    // start MI
-    setTaskName(BUNDLE.getString("update.mediainfo"));
-    publishState();
-
-    initThreadPool(1, "mediainfo");
-
-    LOGGER.info("getting Mediainfo...");
-    for (Movie movie : movies) {
-      if (cancel) {
-        break;
-      }
-      for (MediaFile mf : new ArrayList<>(movie.getMediaFiles())) {
-        if (StringUtils.isBlank(mf.getContainerFormat())) {
-          submitTask(new MediaFileInformationFetcherTask(mf, movie, false));
-        }
+  /**
+   * hand over all ungathered media files of the movie to the mediainfo stage (every file only once)
+   * 
+   * @param movie
+   *          the movie
+   */
+  private void queueMediainfo(final Movie movie) {
+    for (final MediaFile mf : new ArrayList<>(movie.getMediaFiles())) {
+      if (StringUtils.isBlank(mf.getContainerFormat()) && queuedFiles.add(mf)) {
+        addWorkUnit();
+        mediainfoStage.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              // the movie could have been removed by the cleanup in the meantime - do not persist it again
+              if (movieList.getMoviesByPath(movie.getPathNIO()).contains(movie)) {
+                new MediaFileInformationFetcherTask(mf, movie, false).call();
+              }
+            }
+            finally {
+              workUnitDone();
+            }
+          }
+        });
       }
     }
-    waitForCompletionOrCancel();
   }
 
   /**
@@ -1223,190 +1665,284 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   }
 
   /**
-   * simple NIO File.listFiles() replacement<br>
-   * returns ONLY regular files (NO folders, NO hidden) in specified dir, filtering against our badwords (NOT recursive)
+   * get the listing of the given directory; every directory is listed only once per datasource update
    * 
    * @param directory
-   *          the folder to list the files for
-   * @return list of files&folders
+   *          the directory to list
+   * @return the listing or null if the directory could not be read
    */
-  public static List<Path> listFilesOnly(Path directory) {
-    List<Path> fileNames = new ArrayList<>();
-    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
-      for (Path path : directoryStream) {
-        if (Utils.isRegularFile(path)) {
-          String fn = path.getFileName().toString().toUpperCase(Locale.ROOT);
-          if (!skipFolders.contains(fn) && !fn.matches(skipRegex)
-              && !MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(path.toFile().getAbsolutePath())) {
-            fileNames.add(path.toAbsolutePath());
-          }
-          else {
-            LOGGER.debug("Skipping: " + path);
-          }
-        }
+  private DirectoryListing getListing(Path directory) {
+    directory = directory.toAbsolutePath();
+    DirectoryListing listing = listings.get(directory);
+    if (listing == null) {
+      try {
+        listing = DirectoryListing.list(directory, fsCalls);
+      }
+      catch (NoSuchFileException e) {
+        // removed in the meantime
+        return null;
+      }
+      catch (IOException e) {
+        LOGGER.error("" + e);
+        unreachable.add(directory);
+        return null;
+      }
+      DirectoryListing existing = listings.putIfAbsent(directory, listing);
+      if (existing != null) {
+        listing = existing;
       }
     }
-    catch (IOException ex) {
+    return listing;
+  }
+
+  /**
+   * check the fingerprints of the given folder; the listings of the folder and its sub folders are kept for walking the folder if it has been
+   * changed
+   */
+  private boolean isUnchanged(DirectoryFingerprintStore fingerprints, Path folder, BasicFileAttributes attributes) {
+    DirectoryListing listing = getListing(folder);
+    if (listing == null) {
+      return false;
     }
-    return fileNames;
+    return fingerprints.isUnchanged(folder, DirectoryFingerprint.of(attributes, listing), new DirectoryFingerprintStore.ListingProvider() {
+      @Override
+      public DirectoryListing getListing(Path directory) throws IOException {
+        DirectoryListing subListing = MovieUpdateDatasourceTask2.this.getListing(directory);
+        if (subListing == null) {
+          throw new IOException("could not list " + directory);
+        }
+        return subListing;
+      }
+    });
   }
 
   /**
-   * simple NIO File.listFiles() replacement<br>
-   * returns all files & folders in specified dir, filtering against our skip folders (NOT recursive)
+   * returns ONLY regular files (NO folders, NO hidden) in specified dir, filtering against our badwords (NOT recursive)
    * 
    * @param directory
-   *          the folder to list the items for
-   * @return list of files&folders
+   *          the folder to list the files for
+   * @return list of files
    */
-  public static List<Path> listFilesAndDirs(Path directory) {
+  private List<Path> getFiles(Path directory) {
     List<Path> fileNames = new ArrayList<>();
-    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
-      for (Path path : directoryStream) {
-        String fn = path.getFileName().toString().toUpperCase(Locale.ROOT);
-        if (!skipFolders.contains(fn) && !fn.matches(skipRegex)
-            && !MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(path.toFile().getAbsolutePath())) {
-          fileNames.add(path.toAbsolutePath());
+    DirectoryListing listing = getListing(directory);
+    if (listing != null) {
+      for (Path path : listing.getFiles()) {
+        if (!isSkipped(path)) {
+          fileNames.add(path);
         }
         else {
           LOGGER.debug("Skipping: " + path);
         }
       }
     }
-    catch (IOException ex) {
-    }
     return fileNames;
   }
 
-  // **************************************
-  // gets all files recursive,
-  // **************************************
-  public static HashSet<Path> getAllFilesRecursive(Path folder, int deep) {
-    folder = folder.toAbsolutePath();
-    AllFilesRecursive visitor = new AllFilesRecursive();
-    try {
-      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), deep, visitor);
-    }
-    catch (IOException e) {
-      // can not happen, since we overrided visitFileFailed, which throws no
-      // exception ;)
+  /**
+   * create the MediaFile with the size and date from the listing of its directory (if it has been listed)
+   * 
+   * @param file
+   *          the file
+   * @return the MediaFile
+   */
+  private MediaFile createMediaFile(Path file) {
+    DirectoryListing listing = listings.get(file.getParent());
+    BasicFileAttributes attributes = listing != null ? listing.getAttributes(file) : null;
+    if (attributes != null) {
+      return new MediaFile(file, attributes);
     }
-    return visitor.fFound;
+    return new MediaFile(file);
   }
 
-  private static class AllFilesRecursive extends SimpleFileVisitor<Path> {
-    private HashSet<Path> fFound = new HashSet<>();
+  private static boolean isSkipped(Path path) {
+    String fn = path.getFileName().toString().toUpperCase(Locale.ROOT);
+    return skipFolders.contains(fn) || fn.matches(skipRegex)
+        || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(path.toFile().getAbsolutePath());
+  }
 
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
-      visFileAll++;
-      if (Utils.isRegularFile(attr) && !file.getFileName().toString().matches(skipRegex)) {
-        fFound.add(file.toAbsolutePath());
-      }
-      // System.out.println("(" + attr.size() + "bytes)");
-      // System.out.println("(" + attr.creationTime() + " date)");
-      return CONTINUE;
-    }
+  // **************************************
+  // gets all files recursive from the (cached) listings
+  // **************************************
+  private HashSet<Path> listAllFilesRecursive(Path folder, int deep) {
+    HashSet<Path> found = new HashSet<>();
+    collectFiles(folder.toAbsolutePath(), deep, found, new HashSet<>());
+    return found;
+  }
 
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      preDirAll++;
-      // getFilename returns null on DS root!
-      if (dir.getFileName() != null
-          && (Files.exists(dir.resolve(".tmmignore")) || Files.exists(dir.resolve("tmmignore")) || Files.exists(dir.resolve(".nomedia"))
-              || skipFolders.contains(dir.getFileName().toString().toUpperCase(Locale.ROOT)) || dir.getFileName().toString().matches(skipRegex))
-          || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(dir.toFile().getAbsolutePath())) {
-        LOGGER.debug("Skipping dir: " + dir);
-        return SKIP_SUBTREE;
-      }
-      return CONTINUE;
+  private void collectFiles(Path dir, int deep, HashSet<Path> found, Set<Object> ancestors) {
+    preDirAll.incrementAndGet();
+    // getFilename returns null on DS root!
+    if (dir.getFileName() != null
+        && (skipFolders.contains(dir.getFileName().toString().toUpperCase(Locale.ROOT)) || dir.getFileName().toString().matches(skipRegex))
+        || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(dir.toFile().getAbsolutePath())) {
+      LOGGER.debug("Skipping dir: " + dir);
+      return;
     }
-
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-      postDirAll++;
-      return CONTINUE;
+    DirectoryListing listing = getListing(dir);
+    if (listing == null) {
+      return;
+    }
+    if (dir.getFileName() != null && listing.hasIgnoreMarker()) {
+      LOGGER.debug("Skipping dir: " + dir);
+      return;
     }
 
-    // If there is some error accessing the file, let the user know.
-    // If you don't override this method and an error occurs, an IOException is
-    // thrown.
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) {
-      LOGGER.error("" + exc);
-      return CONTINUE;
+    for (Map.Entry<Path, BasicFileAttributes> entry : listing.getEntries().entrySet()) {
+      Path path = entry.getKey();
+      BasicFileAttributes attr = entry.getValue();
+      if (attr == null) {
+        LOGGER.error("could not read attributes of " + path);
+      }
+      else if (attr.isDirectory() && deep > 1) {
+        // following links can produce loops
+        Object fileKey = attr.fileKey();
+        if (fileKey != null && !ancestors.add(fileKey)) {
+          LOGGER.error("file system loop detected: " + path);
+          continue;
+        }
+        collectFiles(path, deep - 1, found, ancestors);
+        if (fileKey != null) {
+          ancestors.remove(fileKey);
+        }
+      }
+      else {
+        visFileAll.incrementAndGet();
+        if (Utils.isRegularFile(attr) && !path.getFileName().toString().matches(skipRegex)) {
+          found.add(path);
+        }
+      }
     }
+    postDirAll.incrementAndGet();
   }
 
   // **************************************
   // gets all files recursive,
   // detects movieRootDir (in case of stacked/disc folder)
   // and starts parsing directory immediately
+  // returns the fingerprints of all walked directories
   // **************************************
-  public void searchAndParse(Path datasource, Path folder, int deep) {
-    folder = folder.toAbsolutePath();
-    SearchAndParseVisitor visitor = new SearchAndParseVisitor(datasource);
-    try {
-      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), deep, visitor);
-    }
-    catch (IOException e) {
-      // can not happen, since we override visitFileFailed, which throws no
-      // exception ;)
+  public Map<Path, DirectoryFingerprint> searchAndParse(Path datasource, Path folder, BasicFileAttributes attributes, int deep,
+      PipelineStage parseStage) {
+    SearchAndParseWalker walker = new SearchAndParseWalker(datasource, parseStage);
+    if (attributes != null) {
+      walker.walk(folder.toAbsolutePath(), attributes, deep);
     }
+    return walker.fingerprints;
   }
 
-  private class SearchAndParseVisitor implements FileVisitor<Path> {
-    private Path              datasource;
-    private ArrayList<String> unstackedRoot = new ArrayList<>(); // only for
-                                                                 // folder
-                                                                 // stacking
-    private HashSet<Path>     videofolders  = new HashSet<>();   // all found
-                                                                 // video
-                                                                 // folders
-
-    protected SearchAndParseVisitor(Path datasource) {
+  /**
+   * walks the directory tree from the listings; every directory is listed once and the attributes of the listing are used for everything else
+   */
+  private class SearchAndParseWalker {
+    private Path                            datasource;
+    // the parsers for the found movie folders
+    private PipelineStage                   parseStage;
+    // only for folder stacking
+    private HashSet<String>                 unstackedRoot = new HashSet<>();
+    // all found video folders
+    private HashSet<Path>                   videofolders  = new HashSet<>();
+    // all parents of video folders
+    private HashSet<Path>                   videoParents  = new HashSet<>();
+    // fingerprints of all walked folders
+    private Map<Path, DirectoryFingerprint> fingerprints  = new HashMap<>();
+    // the file keys of all directories on the current path (following links can produce loops)
+    private Set<Object>                     ancestors     = new HashSet<>();
+
+    protected SearchAndParseWalker(Path datasource, PipelineStage parseStage) {
       this.datasource = datasource;
+      this.parseStage = parseStage;
     }
 
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
-      visFile++;
+    /**
+     * walk the given directory
+     * 
+     * @return false if the walk has been cancelled
+     */
+    private boolean walk(Path dir, BasicFileAttributes attrs, int deep) {
+      preDir.incrementAndGet();
+      // take the modification time _before_ listing the directory; a change while walking will be detected on the next update
+      DirectoryFingerprint fingerprint = new DirectoryFingerprint(attrs.lastModifiedTime().toMillis());
+      fingerprints.put(dir, fingerprint);
+
+      if (isSkipped(dir)) {
+        LOGGER.debug("Skipping dir: " + dir);
+        fingerprint.setNotCounted();
+        return true;
+      }
+      DirectoryListing listing = getListing(dir);
+      if (listing == null) {
+        return true;
+      }
+      // the ignore markers are taken from the listing
+      if (listing.hasIgnoreMarker()) {
+        LOGGER.debug("Skipping dir: " + dir);
+        fingerprint.setNotCounted();
+        return true;
+      }
+
+      Object fileKey = attrs.fileKey();
+      if (fileKey != null) {
+        ancestors.add(fileKey);
+      }
+      try {
+        for (Map.Entry<Path, BasicFileAttributes> entry : listing.getEntries().entrySet()) {
+          Path path = entry.getKey();
+          BasicFileAttributes attr = entry.getValue();
+          fingerprint.addEntry(attr);
+          if (attr == null) {
+            LOGGER.error("could not read attributes of " + path);
+          }
+          else if (attr.isDirectory() && deep > 1) {
+            if (attr.fileKey() != null && ancestors.contains(attr.fileKey())) {
+              LOGGER.error("file system loop detected: " + path);
+            }
+            else if (!walk(path, attr, deep - 1)) {
+              return false;
+            }
+          }
+          else {
+            visitFile(path, attr);
+          }
+        }
+      }
+      finally {
+        if (fileKey != null) {
+          ancestors.remove(fileKey);
+        }
+      }
+
+      return postVisitDirectory(dir);
+    }
+
+    private void visitFile(Path file, BasicFileAttributes attr) {
+      visFile.incrementAndGet();
       if (Utils.isRegularFile(attr) && !file.getFileName().toString().matches(skipRegex)) {
         // check for video?
         if (Globals.settings.getVideoFileType().contains("." + FilenameUtils.getExtension(file.toString()).toLowerCase(Locale.ROOT))) {
           if (file.getParent().getFileName().toString().equals("STREAM")) {
-            return CONTINUE; // BD folder has an additional parent video folder
-                             // - ignore it here
+            return; // BD folder has an additional parent video folder
+                    // - ignore it here
           }
 
           // check if file is a VIDEO type - only scan those folders (and not extras/trailer folders)!
           MediaFile mf = new MediaFile(file);
-          if (mf.getType() == MediaFileType.VIDEO) {
-            videofolders.add(file.getParent());
+          if (mf.getType() == MediaFileType.VIDEO && videofolders.add(file.getParent())) {
+            // remember all parents, to detect a movie a level deeper with a single lookup
+            for (Path parent = file.getParent().getParent(); parent != null; parent = parent.getParent()) {
+              if (!videoParents.add(parent)) {
+                break; // all further parents are already in the set
+              }
+            }
           }
         }
       }
-      return CONTINUE;
     }
 
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      preDir++;
-      String fn = dir.getFileName().toString().toUpperCase(Locale.ROOT);
-      if (skipFolders.contains(fn) || fn.matches(skipRegex) || Files.exists(dir.resolve(".tmmignore")) || Files.exists(dir.resolve("tmmignore"))
-          || Files.exists(dir.resolve(".nomedia"))
-          || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(dir.toFile().getAbsolutePath())) {
-        LOGGER.debug("Skipping dir: " + dir);
-        return SKIP_SUBTREE;
-      }
-      return CONTINUE;
-    }
-
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-      postDir++;
+    private boolean postVisitDirectory(Path dir) {
+      postDir.incrementAndGet();
       if (cancel) {
-        return TERMINATE;
+        return false;
       }
 
       if (this.videofolders.contains(dir)) {
@@ -1430,30 +1966,16 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
           // check if any existing movie has already the same (sub)dir
           // IF we already have a movie a level deeper, we HAVE TO treat this folder as MMD!
           // we always start to parse from deepest level down to root, so they should be all already populated
-          for (Path sub : this.videofolders) {
-            if (sub.equals(dir)) {
-              continue; // don't check ourself ;)
-            }
-            if (sub.startsWith(dir)) {
-              // ka-ching! parse this now as MMD and return
-              List<Path> rootFiles = listFilesOnly(dir); // get all files and dirs
-              submitTask(new parseMultiMovieDirTask(datasource.toAbsolutePath(), dir, rootFiles));
-              return CONTINUE;
-            }
+          if (this.videoParents.contains(dir)) {
+            // ka-ching! parse this now as MMD and return
+            List<Path> rootFiles = getFiles(dir); // get all files
+            submitParseTask(parseStage, dir, new parseMultiMovieDirTask(datasource.toAbsolutePath(), dir, rootFiles));
+            return true;
           }
-          submitTask(new FindMovieTask(dir, datasource));
+          submitParseTask(parseStage, dir, new FindMovieTask(dir, datasource));
         }
       }
-      return CONTINUE;
-    }
-
-    // If there is some error accessing the file, let the user know.
-    // If you don't override this method and an error occurs, an IOException is
-    // thrown.
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) {
-      LOGGER.error("" + exc);
-      return CONTINUE;
+      return true;
     }
   }
 }
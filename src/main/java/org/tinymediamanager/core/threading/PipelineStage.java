@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class PipelineStage. One stage of a processing pipeline: a fixed count of worker threads fed by a bounded queue. Submitting to a full queue
+ * blocks the producer, so a fast stage cannot run away from a slow one. Every stage measures its throughput.
+ *
+ * @author Manuel Laggner
+ */
+public class PipelineStage {
+  private static final Logger      LOGGER    = LoggerFactory.getLogger(PipelineStage.class);
+
+  private final String             name;
+  private final int                threads;
+  private final ThreadPoolExecutor executor;
+  private final long               startTime = System.nanoTime();
+  private final AtomicLong         busyTime  = new AtomicLong(0);
+  private final Object             lock      = new Object();
+
+  private long                     submitted = 0;
+  private long                     completed = 0;
+  private volatile boolean         cancelled = false;
+
+  /**
+   * create a new stage
+   *
+   * @param name
+   *          the name of the stage (for the thread names and the statistics)
+   * @param threads
+   *          the count of worker threads
+   * @param queueSize
+   *          the maximum count of waiting tasks
+   */
+  public PipelineStage(String name, int threads, int queueSize) {
+    this.name = name;
+    this.threads = threads;
+    this.executor = new ThreadPoolExecutor(threads, threads, // fixed thread count
+        2, TimeUnit.SECONDS, // time to wait before closing idle workers
+        new ArrayBlockingQueue<Runnable>(queueSize), // our bounded queue
+        new TmmThreadPool.TmmThreadFactory(name), // our thread settings
+        new BlockWhenFull() // producers wait for free space in the queue
+    );
+  }
+
+  /**
+   * submit a task to this stage; blocks while the queue is full
+   *
+   * @param task
+   *          the task
+   */
+  public void submit(final Runnable task) {
+    if (cancelled) {
+      return;
+    }
+    synchronized (lock) {
+      submitted++;
+    }
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          long start = System.nanoTime();
+          try {
+            if (!cancelled) {
+              task.run();
+            }
+          }
+          catch (Exception e) {
+            LOGGER.error("stage " + name + ": task crashed", e);
+          }
+          finally {
+            busyTime.addAndGet(System.nanoTime() - start);
+            taskFinished(1);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      // shut down or interrupted while waiting
+      taskFinished(1);
+    }
+  }
+
+  private void taskFinished(long count) {
+    synchronized (lock) {
+      completed += count;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * wait until all submitted tasks have been processed
+   *
+   * @throws InterruptedException
+   *           interrupted while waiting
+   */
+  public void awaitCompletion() throws InterruptedException {
+    synchronized (lock) {
+      while (completed < submitted) {
+        lock.wait();
+      }
+    }
+  }
+
+  /**
+   * discard all waiting tasks; the running ones will finish
+   */
+  public void cancel() {
+    cancelled = true;
+    List<Runnable> discarded = new ArrayList<>();
+    executor.getQueue().drainTo(discarded);
+    // the discarded wrappers will never run
+    taskFinished(discarded.size());
+  }
+
+  /**
+   * stop the worker threads after the submitted tasks have been processed
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * get the count of processed tasks
+   *
+   * @return the count of processed tasks
+   */
+  public long getCompletedCount() {
+    synchronized (lock) {
+      return completed;
+    }
+  }
+
+  /**
+   * get the throughput statistics of this stage: processed tasks, tasks per second and how busy the worker threads have been
+   *
+   * @return the statistics as a loggable string
+   */
+  public String getStatistics() {
+    double seconds = (System.nanoTime() - startTime) / 1000000000d;
+    double busy = seconds > 0 ? busyTime.get() / 1000000000d / (seconds * threads) * 100 : 0;
+    long count = getCompletedCount();
+    return String.format(Locale.ROOT, "stage %s: %d tasks in %.1fs (%.1f/s, %d threads %.0f%% busy)", name, count, seconds,
+        seconds > 0 ? count / seconds : 0, threads, busy);
+  }
+
+  /**
+   * puts the task into the queue when it is full (waits for free space)
+   */
+  private static class BlockWhenFull implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("stage has been shut down");
+      }
+      try {
+        executor.getQueue().put(r);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException(e);
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -178,6 +179,41 @@ public class TmmTaskManager implements TmmTaskListener {
     downloadExecutor.execute(task);
   }
 
+  /**
+   * schedule a periodic task (like maintenance tasks) in the scheduler of tmm. The task will be stopped when tmm shuts down
+   * 
+   * @param task
+   *          the task to be scheduled
+   * @param initialDelay
+   *          the delay before the first run
+   * @param delay
+   *          the delay between the end of a run and the start of the next one
+   * @param unit
+   *          the time unit of the delays
+   * @return the future to cancel the task
+   */
+  public ScheduledFuture<?> scheduleTask(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+    return scheduler.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+  }
+
+  /**
+   * is there any task running or queued?
+   * 
+   * @return true if tmm is idle
+   */
+  public boolean isIdle() {
+    if (!runningTasks.isEmpty()) {
+      return false;
+    }
+    if (mainTaskExecutor.getActiveCount() > 0 || !mainTaskExecutor.getQueue().isEmpty()) {
+      return false;
+    }
+    if (imageDownloadExecutor != null && imageDownloadExecutor.getActiveCount() > 0) {
+      return false;
+    }
+    return true;
+  }
+
   /**
    * cancel all open and running image downloads
    */
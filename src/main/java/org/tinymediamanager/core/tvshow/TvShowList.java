@@ -30,7 +30,10 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -42,10 +45,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.Constants;
+import org.tinymediamanager.core.EntityCodec;
+import org.tinymediamanager.core.MediaEntityIndex;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ParallelEntityLoader;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
@@ -60,25 +66,23 @@ import org.tinymediamanager.scraper.entities.MediaLanguages;
 import org.tinymediamanager.scraper.entities.MediaType;
 import org.tinymediamanager.scraper.mediaprovider.ITvShowMetadataProvider;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-
 /**
  * The Class TvShowList.
  * 
  * @author Manuel Laggner
  */
 public class TvShowList extends AbstractModelObject {
-  private static final Logger    LOGGER   = LoggerFactory.getLogger(TvShowList.class);
-  private static TvShowList      instance = null;
+  private static final Logger            LOGGER   = LoggerFactory.getLogger(TvShowList.class);
+  private static TvShowList              instance = null;
 
-  private final List<TvShow>     tvShowList;
-  private final List<String>     tvShowTagsObservable;
-  private final List<String>     episodeTagsObservable;
-  private final List<String>     videoCodecsObservable;
-  private final List<String>     audioCodecsObservable;
+  private final List<TvShow>             tvShowList;
+  private final List<String>             tvShowTagsObservable;
+  private final List<String>             episodeTagsObservable;
+  private final List<String>             videoCodecsObservable;
+  private final List<String>             audioCodecsObservable;
+  private final MediaEntityIndex<TvShow> tvShowIndex;
 
-  private PropertyChangeListener propertyChangeListener;
+  private PropertyChangeListener         propertyChangeListener;
 
   /**
    * Instantiates a new TvShowList.
@@ -90,6 +94,7 @@ public class TvShowList extends AbstractModelObject {
     episodeTagsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     videoCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     audioCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
+    tvShowIndex = new MediaEntityIndex<>(Constants.IMDB, Constants.TMDB, Constants.TVDB);
 
     // the tag listener: its used to always have a full list of all tags used in tmm
     propertyChangeListener = new PropertyChangeListener() {
@@ -163,6 +168,7 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
 
     tvShowList.add(newValue);
+    tvShowIndex.add(newValue);
     newValue.addPropertyChangeListener(propertyChangeListener);
     firePropertyChange(TV_SHOWS, null, tvShowList);
     firePropertyChange(ADDED_TV_SHOW, null, newValue);
@@ -198,6 +204,7 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
+    tvShowIndex.remove(tvShow);
 
     try {
       TvShowModuleManager.getInstance().removeTvShowFromDb(tvShow);
@@ -223,6 +230,7 @@ public class TvShowList extends AbstractModelObject {
     tvShow.deleteFilesSafely();
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
+    tvShowIndex.remove(tvShow);
 
     try {
       TvShowModuleManager.getInstance().removeTvShowFromDb(tvShow);
@@ -261,76 +269,76 @@ public class TvShowList extends AbstractModelObject {
   }
 
   public TvShow lookupTvShow(UUID uuid) {
-    for (TvShow tvShow : tvShowList) {
-      if (tvShow.getDbId().equals(uuid)) {
-        return tvShow;
-      }
-    }
-    return null;
+    return tvShowIndex.getById(uuid);
+  }
+
+  /**
+   * Gets a list of TV shows with the given provider id.
+   * 
+   * @param providerId
+   *          the provider id (imdb, tmdb or tvdb)
+   * @param id
+   *          the id
+   * @return the TV show list
+   */
+  public List<TvShow> getTvShowsByProviderId(String providerId, Object id) {
+    return tvShowIndex.getByProviderId(providerId, id);
   }
 
   /**
    * Load tv shows from database.
    */
-  void loadTvShowsFromDatabase(MVMap<UUID, String> tvShowMap, ObjectMapper objectMapper) {
+  void loadTvShowsFromDatabase(MVMap<UUID, Object> tvShowMap, EntityCodec<TvShow> tvShowCodec) {
     // load all TV shows from the database
-    ObjectReader tvShowObjectReader = objectMapper.readerFor(TvShow.class);
+    ParallelEntityLoader<TvShow> loader = new ParallelEntityLoader<>(tvShowCodec, "TV show");
+    List<TvShow> tvShows = loader.load(tvShowMap);
 
-    for (UUID uuid : new ArrayList<>(tvShowMap.keyList())) {
-      try {
-        TvShow tvShow = tvShowObjectReader.readValue(tvShowMap.get(uuid));
-        tvShow.setDbId(uuid);
-
-        // for performance reasons we add tv shows directly
-        tvShowList.add(tvShow);
-      }
-      catch (Exception e) {
-        LOGGER.warn("problem decoding TV show json string: " + e.getMessage());
-        LOGGER.info("dropping corrupt TV show");
-        tvShowMap.remove(uuid);
-      }
-    }
+    // for performance reasons we add tv shows directly (in one batch)
+    tvShowList.addAll(tvShows);
+    tvShowIndex.addAll(tvShows);
     LOGGER.info("found " + tvShowList.size() + " TV shows in database");
   }
 
   /**
    * Load episodes from database.
    */
-  void loadEpisodesFromDatabase(MVMap<UUID, String> episodesMap, ObjectMapper objectMapper) {
+  void loadEpisodesFromDatabase(MVMap<UUID, Object> episodesMap, EntityCodec<TvShowEpisode> episodeCodec) {
     List<UUID> orphanedEpisodes = new ArrayList<>();
 
     // load all episodes from the database
-    ObjectReader episodeObjectReader = objectMapper.readerFor(TvShowEpisode.class);
+    ParallelEntityLoader<TvShowEpisode> loader = new ParallelEntityLoader<>(episodeCodec, "episode");
     int episodeCount = 0;
 
-    for (UUID uuid : new ArrayList<>(episodesMap.keyList())) {
-      try {
-        TvShowEpisode episode = episodeObjectReader.readValue(episodesMap.get(uuid));
-        episode.setDbId(uuid);
-
-        // check for orphaned episodes
-        boolean found = false;
-
-        // and assign it the the right TV show
-        for (TvShow tvShow : tvShowList) {
-          if (tvShow.getDbId().equals(episode.getTvShowDbId())) {
-            episodeCount++;
-            episode.setTvShow(tvShow);
-            tvShow.addEpisode(episode);
-            found = true;
-            break;
-          }
-        }
+    // build an index of all TV shows, so we can link the episodes in one pass
+    Map<UUID, TvShow> tvShowIndex = new HashMap<>(tvShowList.size() * 2);
+    for (TvShow tvShow : tvShowList) {
+      tvShowIndex.put(tvShow.getDbId(), tvShow);
+    }
 
-        if (!found) {
-          orphanedEpisodes.add(uuid);
-        }
+    // collect the episodes per TV show to add them in one batch
+    Map<TvShow, List<TvShowEpisode>> episodesPerTvShow = new LinkedHashMap<>();
+    for (TvShowEpisode episode : loader.load(episodesMap)) {
+      // and assign it the the right TV show
+      TvShow tvShow = tvShowIndex.get(episode.getTvShowDbId());
+
+      // check for orphaned episodes
+      if (tvShow == null) {
+        orphanedEpisodes.add(episode.getDbId());
+        continue;
       }
-      catch (Exception e) {
-        LOGGER.warn("problem decoding episode json string: " + e.getMessage());
-        LOGGER.info("dropping corrupt episode");
-        episodesMap.remove(uuid);
+
+      episodeCount++;
+      episode.setTvShow(tvShow);
+      List<TvShowEpisode> episodes = episodesPerTvShow.get(tvShow);
+      if (episodes == null) {
+        episodes = new ArrayList<>();
+        episodesPerTvShow.put(tvShow, episodes);
       }
+      episodes.add(episode);
+    }
+
+    for (Map.Entry<TvShow, List<TvShowEpisode>> entry : episodesPerTvShow.entrySet()) {
+      entry.getKey().addEpisodes(entry.getValue());
     }
 
     // remove orphaned episodes
@@ -715,12 +723,9 @@ public class TvShowList extends AbstractModelObject {
    * @return the TV show by path
    */
   public TvShow getTvShowByPath(Path path) {
-    ArrayList<TvShow> tvShows = new ArrayList<>(tvShowList);
-    // iterate over all tv shows and check whether this path is being owned by one
-    for (TvShow tvShow : tvShows) {
-      if (tvShow.getPathNIO().compareTo(path.toAbsolutePath()) == 0) {
-        return tvShow;
-      }
+    List<TvShow> tvShows = tvShowIndex.getByPath(path);
+    if (!tvShows.isEmpty()) {
+      return tvShows.get(0);
     }
 
     return null;
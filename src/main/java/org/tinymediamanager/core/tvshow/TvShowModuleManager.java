@@ -15,12 +15,13 @@
  */
 package org.tinymediamanager.core.tvshow;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.TimeZone;
+import java.util.ArrayList;
+import java.util.Set;
 import java.util.UUID;
 
-import org.apache.commons.lang3.StringUtils;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.json.JSONArray;
@@ -28,20 +29,21 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.UpgradeTasks;
 import org.tinymediamanager.core.Constants;
-import org.tinymediamanager.core.CustomNullStringSerializerProvider;
+import org.tinymediamanager.core.DatabaseCompactor;
+import org.tinymediamanager.core.DatasourceMonitor;
+import org.tinymediamanager.core.EntityCodec;
+import org.tinymediamanager.core.EntityDetailCache;
 import org.tinymediamanager.core.ITmmModule;
-import org.tinymediamanager.core.NullKeySerializer;
+import org.tinymediamanager.core.PersistenceQueue;
+import org.tinymediamanager.core.PersistenceQueue.EntityWriter;
 import org.tinymediamanager.core.Settings;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 import org.tinymediamanager.core.tvshow.entities.TvShowEpisode;
-
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.MapperFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import org.tinymediamanager.core.tvshow.tasks.TvShowUpdateDatasourceTask2;
 
 /**
  * The class TvShowModuleManager. Used to manage the tv show module
@@ -49,21 +51,28 @@ import com.fasterxml.jackson.databind.ObjectWriter;
  * @author Manuel Laggner
  */
 public class TvShowModuleManager implements ITmmModule {
-  public static final TvShowSettings SETTINGS     = Globals.settings.getTvShowSettings();
+  public static final TvShowSettings       SETTINGS     = Globals.settings.getTvShowSettings();
+
+  private static final String              MODULE_TITLE = "TV show management";
+  private static final String              TV_SHOW_DB   = "tvshows.db";
+  private static final Logger              LOGGER       = LoggerFactory.getLogger(TvShowModuleManager.class);
+  private static TvShowModuleManager       instance;
 
-  private static final String        MODULE_TITLE = "TV show management";
-  private static final String        TV_SHOW_DB   = "tvshows.db";
-  private static final Logger        LOGGER       = LoggerFactory.getLogger(TvShowModuleManager.class);
-  private static TvShowModuleManager instance;
+  private boolean                          enabled;
+  private MVStore                          mvStore;
+  private EntityCodec<TvShow>              tvShowCodec;
+  private EntityCodec<TvShowEpisode>       episodeCodec;
 
-  private boolean                    enabled;
-  private MVStore                    mvStore;
-  private ObjectMapper               objectMapper;
-  private ObjectWriter               tvShowObjectWriter;
-  private ObjectWriter               episodeObjectWriter;
+  private MVMap<UUID, Object>              tvShowMap;
+  private MVMap<UUID, Object>              episodeMap;
 
-  private MVMap<UUID, String>        tvShowMap;
-  private MVMap<UUID, String>        episodeMap;
+  private PersistenceQueue                 persistenceQueue;
+  private DatabaseCompactor                compactor;
+  private DatasourceMonitor                datasourceMonitor;
+  private EntityWriter<TvShow>             tvShowWriter;
+  private EntityWriter<TvShowEpisode>      episodeWriter;
+
+  private EntityDetailCache<TvShowEpisode> episodeDetailCache;
 
   private TvShowModuleManager() {
     enabled = false;
@@ -96,36 +105,88 @@ public class TvShowModuleManager implements ITmmModule {
             LOGGER.error("Error in the background thread of the persistent cache", e);
           }
         }).autoCommitBufferSize(4096).open();
-    mvStore.setAutoCommitDelay(2000); // 2 sec
+    mvStore.setAutoCommitDelay(0); // commits are done by the persistence queue
     mvStore.setRetentionTime(0);
     mvStore.setReuseSpace(true);
 
-    // configure JSON
-    objectMapper = new ObjectMapper();
-    objectMapper.configure(MapperFeature.AUTO_DETECT_GETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_IS_GETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_SETTERS, false);
-    objectMapper.configure(MapperFeature.AUTO_DETECT_FIELDS, false);
-    objectMapper.setTimeZone(TimeZone.getDefault());
-    objectMapper.setSerializationInclusion(Include.NON_DEFAULT);
-    objectMapper.setSerializerProvider(new CustomNullStringSerializerProvider());
-    objectMapper.getSerializerProvider().setNullKeySerializer(new NullKeySerializer());
-
-    tvShowObjectWriter = objectMapper.writerFor(TvShow.class);
-    episodeObjectWriter = objectMapper.writerFor(TvShowEpisode.class);
+    // configure JSON/binary codecs
+    boolean binary = Globals.settings.isBinaryDatabase();
+    tvShowCodec = new EntityCodec<>(TvShow.class, binary);
+    episodeCodec = new EntityCodec<>(TvShowEpisode.class, binary);
 
     tvShowMap = mvStore.openMap("tvshows");
     episodeMap = mvStore.openMap("episodes");
 
-    TvShowList.getInstance().loadTvShowsFromDatabase(tvShowMap, objectMapper);
-    TvShowList.getInstance().loadEpisodesFromDatabase(episodeMap, objectMapper);
+    // migrate the stored entities if the database format has been changed
+    MVMap<String, String> meta = mvStore.openMap("meta");
+    UpgradeTasks.migrateDatabaseFormat(tvShowMap, tvShowCodec, meta);
+    UpgradeTasks.migrateDatabaseFormat(episodeMap, episodeCodec, meta);
+    mvStore.commit();
+
+    // all writes are done through the write-behind queue which commits explicitly
+    persistenceQueue = new PersistenceQueue("tvshows", mvStore);
+    tvShowWriter = new EntityWriter<TvShow>() {
+      @Override
+      public void write(TvShow tvShow) throws Exception {
+        writeTvShow(tvShow);
+      }
+    };
+    episodeWriter = new EntityWriter<TvShowEpisode>() {
+      @Override
+      public void write(TvShowEpisode episode) throws Exception {
+        writeEpisode(episode);
+      }
+    };
+
+    TvShowList.getInstance().loadTvShowsFromDatabase(tvShowMap, tvShowCodec);
+    TvShowList.getInstance().loadEpisodesFromDatabase(episodeMap, episodeCodec);
     TvShowList.getInstance().initDataAfterLoading();
+
+    // keep only the details of the recently used episodes in memory
+    if (Globals.settings.getDetailCacheSize() > 0) {
+      episodeDetailCache = new EntityDetailCache<>(episodeMap, episodeCodec, Globals.settings.getDetailCacheSize());
+      for (TvShow tvShow : TvShowList.getInstance().getTvShows()) {
+        episodeDetailCache.releaseAll(tvShow.getEpisodes());
+      }
+    }
+
+    // compact the database incrementally while tmm is idle
+    compactor = new DatabaseCompactor("tvshows", mvStore);
+    compactor.start();
+
+    // update changed folders automatically
+    if (Globals.settings.isMonitorDatasources()) {
+      datasourceMonitor = new DatasourceMonitor("tvshows", SETTINGS.getTvShowDataSource(), Globals.settings.getDatasourcePollInterval(),
+          new DatasourceMonitor.ChangeListener() {
+            @Override
+            public void foldersChanged(String datasource, Set<Path> folders) {
+              if (folders.contains(Paths.get(datasource).toAbsolutePath())) {
+                TmmTaskManager.getInstance().addMainTask(new TvShowUpdateDatasourceTask2(datasource));
+              }
+              else {
+                TmmTaskManager.getInstance().addMainTask(new TvShowUpdateDatasourceTask2(new ArrayList<>(folders)));
+              }
+            }
+          });
+      datasourceMonitor.start();
+    }
+
     enabled = true;
   }
 
   @Override
   public void shutDown() throws Exception {
-    mvStore.compactMoveChunks();
+    if (datasourceMonitor != null) {
+      datasourceMonitor.stop();
+    }
+    // write all pending changes
+    persistenceQueue.shutdown();
+    if (episodeDetailCache != null) {
+      LOGGER.info("episode detail cache: " + episodeDetailCache.getStatistics());
+    }
+
+    // fast exit: only compact if the database is heavily fragmented
+    compactor.compactOnExit();
     mvStore.close();
 
     enabled = false;
@@ -151,45 +212,84 @@ public class TvShowModuleManager implements ITmmModule {
    */
   public void dump(TvShow tvshow) {
     try {
-      JSONObject show = new JSONObject(tvShowObjectWriter.writeValueAsString(tvshow));
+      JSONObject show = new JSONObject(tvShowCodec.toJson(tvshow));
       JSONArray episodes = new JSONArray();
       for (TvShowEpisode ep : tvshow.getEpisodes()) {
-        JSONObject epJson = new JSONObject(episodeObjectWriter.writeValueAsString(ep));
-        episodes.put(epJson);
+        ep.pinDetails();
+        try {
+          episodes.put(new JSONObject(episodeCodec.toJson(ep)));
+        }
+        finally {
+          ep.unpinDetails();
+        }
       }
       show.put("episodes", episodes);
       LOGGER.info("Dumping TvShow:\n" + show.toString(4));
     }
-    catch (JsonProcessingException e) {
+    catch (IOException e) {
       LOGGER.error("Cannot parse JSON!", e);
     }
   }
 
   void persistTvShow(TvShow tvShow) throws Exception {
-    String newValue = tvShowObjectWriter.writeValueAsString(tvShow);
-    String oldValue = tvShowMap.get(tvShow.getDbId());
+    // nothing changed since the last persist
+    if (!tvShow.isDirty()) {
+      return;
+    }
+
+    persistenceQueue.enqueue(tvShow, tvShowWriter);
+  }
 
-    if (!StringUtils.equals(newValue, oldValue)) {
+  private void writeTvShow(TvShow tvShow) throws Exception {
+    // modifications while encoding keep the entity dirty
+    long modifications = tvShow.getModificationCount();
+    Object newValue = tvShowCodec.encode(tvShow);
+    Object oldValue = tvShowMap.get(tvShow.getDbId());
+
+    if (!tvShowCodec.isEqual(newValue, oldValue)) {
       // write to DB
       tvShowMap.put(tvShow.getDbId(), newValue);
     }
+    tvShow.clearDirty(modifications);
   }
 
   void removeTvShowFromDb(TvShow tvShow) throws Exception {
+    persistenceQueue.discard(tvShow);
     tvShowMap.remove(tvShow.getDbId());
+    // a re-added TV show has to be persisted completely
+    tvShow.setDirty();
   }
 
   void persistEpisode(TvShowEpisode episode) throws Exception {
-    String newValue = episodeObjectWriter.writeValueAsString(episode);
-    String oldValue = episodeMap.get(episode.getDbId());
+    // nothing changed since the last persist
+    if (!episode.isDirty()) {
+      return;
+    }
+
+    persistenceQueue.enqueue(episode, episodeWriter);
+  }
+
+  private void writeEpisode(TvShowEpisode episode) throws Exception {
+    // modifications while encoding keep the entity dirty
+    long modifications = episode.getModificationCount();
+    // an episode with released details has to be encoded with its details from the database
+    Object newValue = episodeDetailCache != null ? episodeDetailCache.encode(episode) : episodeCodec.encode(episode);
+    Object oldValue = episodeMap.get(episode.getDbId());
 
-    if (!StringUtils.equals(newValue, oldValue)) {
+    if (!episodeCodec.isEqual(newValue, oldValue)) {
       episodeMap.put(episode.getDbId(), newValue);
     }
+    episode.clearDirty(modifications);
   }
 
   void removeEpisodeFromDb(TvShowEpisode episode) throws Exception {
+    persistenceQueue.discard(episode);
+    if (episodeDetailCache != null) {
+      // load the details before they are gone from the database
+      episodeDetailCache.remove(episode);
+    }
     episodeMap.remove(episode.getDbId());
+    episode.setDirty();
   }
 
   @Override
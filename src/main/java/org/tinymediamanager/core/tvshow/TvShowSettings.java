@@ -54,6 +54,8 @@ public class TvShowSettings extends AbstractModelObject {
   private final static String      ENTRY                       = "entry";
   private final static String      TV_SHOW_SKIP_FOLDERS        = "tvShowSkipFolders";
   private final static String      TV_SHOW_SUBTITLE_SCRAPERS   = "tvShowSubtitleScrapers";
+  private final static String      UPDATE_THREADS              = "updateThreads";
+  private final static String      UPDATE_THREADS_NETWORK      = "updateThreadsNetwork";
 
   @XmlElementWrapper(name = TV_SHOW_DATA_SOURCE)
   @XmlElement(name = PATH)
@@ -91,6 +93,8 @@ public class TvShowSettings extends AbstractModelObject {
   private LanguageStyle            tvShowRenamerLanguageStyle  = LanguageStyle.ISO3T;
   private boolean                  syncTrakt                   = false;
   private boolean                  dvdOrder                    = false;
+  private int                      updateThreads               = 3;
+  private int                      updateThreadsNetwork        = 2;
 
   public TvShowSettings() {
   }
@@ -224,6 +228,38 @@ public class TvShowSettings extends AbstractModelObject {
     firePropertyChange(BUILD_IMAGE_CACHE_ON_IMPORT, oldValue, newValue);
   }
 
+  public int getUpdateThreads() {
+    return updateThreads;
+  }
+
+  /**
+   * the count of parallel threads for updating a data source on a local drive
+   * 
+   * @param newValue
+   *          the thread count
+   */
+  public void setUpdateThreads(int newValue) {
+    int oldValue = this.updateThreads;
+    this.updateThreads = newValue;
+    firePropertyChange(UPDATE_THREADS, oldValue, newValue);
+  }
+
+  public int getUpdateThreadsNetwork() {
+    return updateThreadsNetwork;
+  }
+
+  /**
+   * the count of parallel threads for updating a data source on a network share (NFS, SMB, ...)
+   * 
+   * @param newValue
+   *          the thread count
+   */
+  public void setUpdateThreadsNetwork(int newValue) {
+    int oldValue = this.updateThreadsNetwork;
+    this.updateThreadsNetwork = newValue;
+    firePropertyChange(UPDATE_THREADS_NETWORK, oldValue, newValue);
+  }
+
   public boolean isAsciiReplacement() {
     return asciiReplacement;
   }
@@ -57,6 +57,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
@@ -160,6 +161,14 @@ public class TvShow extends MediaEntity {
     return MEDIA_FILE_COMPARATOR;
   }
 
+  @Override
+  protected void takeOwnershipOfNestedObjects() {
+    super.takeOwnershipOfNestedObjects();
+    for (TvShowActor actor : actors) {
+      actor.setOwner(this);
+    }
+  }
+
   /**
    * Initialize after loading.
    */
@@ -289,6 +298,45 @@ public class TvShow extends MediaEntity {
     firePropertyChange(EPISODE_COUNT, oldValue, episodes.size());
   }
 
+  /**
+   * Adds a batch of episodes (e.g. while loading from the database). The episode list will be sorted only once and only one event per type will be
+   * fired
+   * 
+   * @param episodesToAdd
+   *          the episodes to add
+   */
+  public void addEpisodes(List<TvShowEpisode> episodesToAdd) {
+    if (episodesToAdd == null || episodesToAdd.isEmpty()) {
+      return;
+    }
+
+    int oldValue = episodes.size();
+
+    // group the episodes per season to add them to the seasons in one batch too
+    Map<TvShowSeason, List<TvShowEpisode>> episodesPerSeason = new HashMap<>();
+    for (TvShowEpisode episode : episodesToAdd) {
+      episode.addPropertyChangeListener(propertyChangeListener);
+      TvShowSeason season = getSeasonForEpisode(episode);
+      List<TvShowEpisode> seasonEpisodes = episodesPerSeason.get(season);
+      if (seasonEpisodes == null) {
+        seasonEpisodes = new ArrayList<>();
+        episodesPerSeason.put(season, seasonEpisodes);
+      }
+      seasonEpisodes.add(episode);
+    }
+
+    for (Entry<TvShowSeason, List<TvShowEpisode>> entry : episodesPerSeason.entrySet()) {
+      entry.getKey().addEpisodes(entry.getValue());
+    }
+
+    // one batch add and one sort: the readers of the CopyOnWriteArrayList never see an empty list
+    episodes.addAll(episodesToAdd);
+    Utils.sortList(episodes);
+
+    firePropertyChange(ADDED_EPISODE, null, episodesToAdd.get(episodesToAdd.size() - 1));
+    firePropertyChange(EPISODE_COUNT, oldValue, episodes.size());
+  }
+
   /**
    * Gets the episode count.
    * 
@@ -1283,6 +1331,7 @@ public class TvShow extends MediaEntity {
 
   public void setLastWatched(Date lastWatched) {
     this.lastWatched = lastWatched;
+    propertyModified();
   }
 
   /**
@@ -1310,6 +1359,7 @@ public class TvShow extends MediaEntity {
    */
   public void setSeasonPosterUrl(int season, String url) {
     seasonPosterUrlMap.put(season, url);
+    propertyModified();
   }
 
   /**
@@ -56,6 +56,7 @@ public class TvShowActor extends Person {
   @Deprecated
   public void setThumb(String thumb) {
     this.thumb = thumb;
+    propertyModified();
   }
 
 }
@@ -59,6 +59,7 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.EntityDetailCache;
 import org.tinymediamanager.core.MediaEntityImageFetcherTask;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
@@ -134,6 +135,9 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   private TvShow                             tvShow                = null;
   private Date                               lastWatched           = null;
 
+  // summary of the released details (for the table and the filters)
+  private boolean                            summaryHasPlot        = false;
+
   /**
    * Instantiates a new tv show episode. To initialize the propertychangesupport after loading
    */
@@ -229,7 +233,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     title = new String(source.title);
     originalTitle = new String(source.originalTitle);
     year = new String(source.year);
-    plot = new String(source.plot);
+    plot = new String(source.getPlot());
     rating = source.rating;
 
     for (Entry<MediaFileType, String> entry : source.artworkUrlMap.entrySet()) {
@@ -256,7 +260,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     watched = source.watched;
     votes = source.votes;
     subtitles = source.subtitles;
-    actors.addAll(source.actors);
+    actors.addAll(source.getGuests());
   }
 
   public Date getFirstAired() {
@@ -299,6 +303,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    */
   public void setDisc(boolean disc) {
     this.disc = disc;
+    propertyModified();
   }
 
   /**
@@ -312,6 +317,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
 
   public void setMultiEpisode(boolean multiEpisode) {
     this.multiEpisode = multiEpisode;
+    propertyModified();
   }
 
   /**
@@ -462,6 +468,27 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     Utils.removeEmptyStringsFromList(tags);
   }
 
+  @Override
+  protected void takeOwnershipOfNestedObjects() {
+    super.takeOwnershipOfNestedObjects();
+    for (TvShowActor actor : actors) {
+      actor.setOwner(this);
+    }
+  }
+
+  @Override
+  public void releaseDetails(EntityDetailCache<?> cache) {
+    summaryHasPlot = !plot.isEmpty();
+    super.releaseDetails(cache);
+    actors = new CopyOnWriteArrayList<>();
+  }
+
+  @Override
+  public void takeDetails(MediaEntity source) {
+    actors = ((TvShowEpisode) source).actors;
+    super.takeDetails(source);
+  }
+
   /**
    * Write thumb image.
    */
@@ -686,6 +713,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
       obj.setEntityRoot(getPathNIO());
     }
 
+    loadDetailsForModification();
     actors.add(obj);
     firePropertyChange(ACTORS, null, this.getActors());
   }
@@ -700,14 +728,18 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     if (tvShow != null) {
       allActors.addAll(tvShow.getActors());
     }
-    allActors.addAll(actors);
+    allActors.addAll(getGuests());
     return allActors;
   }
 
   public List<TvShowActor> getGuests() {
-    List<TvShowActor> allActors = new ArrayList<>();
-    allActors.addAll(actors);
-    return allActors;
+    pinDetails();
+    try {
+      return new ArrayList<>(actors);
+    }
+    finally {
+      unpinDetails();
+    }
   }
 
   /**
@@ -717,6 +749,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    *          the obj
    */
   public void removeActor(TvShowActor obj) {
+    loadDetailsForModification();
     actors.remove(obj);
 
     firePropertyChange(ACTORS, null, this.getActors());
@@ -730,6 +763,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    */
   @JsonSetter
   public void setActors(List<TvShowActor> newActors) {
+    loadDetailsForModification();
     // two way sync of actors
     List<TvShowActor> tvShowActors = new ArrayList<>();
 
@@ -790,6 +824,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
 
   public void setLastWatched(Date lastWatched) {
     this.lastWatched = lastWatched;
+    propertyModified();
   }
 
   /**
@@ -990,6 +1025,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
 
   public void setSubtitles(boolean sub) {
     this.subtitles = sub;
+    propertyModified();
   }
 
   public int getRuntimeFromMediaFiles() {
@@ -1036,7 +1072,8 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
    */
   @Override
   public boolean isScraped() {
-    if (!scraped && !plot.isEmpty() && firstAired != null && getSeason() > -1 && getEpisode() > -1) {
+    boolean hasPlot = !plot.isEmpty() || (!isDetailsLoaded() && summaryHasPlot);
+    if (!scraped && hasPlot && firstAired != null && getSeason() > -1 && getEpisode() > -1) {
       return true;
     }
     return scraped;
@@ -77,6 +77,16 @@ public class TvShowSeason extends AbstractModelObject implements Comparable<TvSh
     firePropertyChange(ADDED_EPISODE, null, episodes);
   }
 
+  public void addEpisodes(List<TvShowEpisode> episodesToAdd) {
+    // one batch add and one sort: the readers of the CopyOnWriteArrayList never see an empty list
+    episodes.addAll(episodesToAdd);
+    Utils.sortList(episodes);
+    for (TvShowEpisode episode : episodesToAdd) {
+      episode.addPropertyChangeListener(listener);
+    }
+    firePropertyChange(ADDED_EPISODE, null, episodes);
+  }
+
   public void removeEpisode(TvShowEpisode episode) {
     episodes.remove(episode);
     episode.removePropertyChangeListener(listener);
@@ -23,6 +23,7 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaInfoPool;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
@@ -68,7 +69,7 @@ public class TvShowReloadMediaInformationTask extends TmmThreadPool {
       // update MediaInfo
       start();
 
-      initThreadPool(1, "reloadMI");
+      initThreadPool(MediaInfoPool.getThreadCount(), "reloadMI");
       for (TvShow show : tvShows) {
         if (cancel) {
           break;
@@ -15,26 +15,26 @@
  */
 package org.tinymediamanager.core.tvshow.tasks;
 
-import static java.nio.file.FileVisitResult.CONTINUE;
-import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
-
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
-import java.nio.file.FileVisitOption;
-import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.EnumSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,7 +44,9 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.DirectoryListing;
 import org.tinymediamanager.core.MediaFileInformationFetcherTask;
+import org.tinymediamanager.core.MediaInfoPool;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Message;
@@ -86,14 +88,23 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
 
   private static final Pattern        seasonPattern = Pattern.compile("(?i)season([0-9]{0,2}|-specials)-poster\\..{2,4}");
 
-  private static long                 preDir        = 0;
-  private static long                 postDir       = 0;
-  private static long                 visFile       = 0;
+  // locks for parsing a single TV show; a lock is removed when the last parser of the show has finished
+  private static final Map<Path, ShowLock> showLocks = new HashMap<>();
+
+  // statistics of this run; the shows are parsed by several threads
+  private final AtomicLong            preDir        = new AtomicLong(0);
+  private final AtomicLong            postDir       = new AtomicLong(0);
+  private final AtomicLong            visFile       = new AtomicLong(0);
+  private final AtomicLong            fsCalls       = new AtomicLong(0);
+
+  // thread counts overriding the settings for this run (0 = take the settings)
+  private static volatile int         localThreads  = 0;
+  private static volatile int         shareThreads  = 0;
 
   private List<String>                dataSources;
   private List<Path>                  tvShowFolders = new ArrayList<>();
   private TvShowList                  tvShowList;
-  private HashSet<Path>               filesFound    = new HashSet<>();
+  private Set<Path>                   filesFound    = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
 
   /**
    * Instantiates a new scrape task - to update all datasources
@@ -140,10 +151,6 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.nonespecified"));
       return;
     }
-    preDir = 0;
-    postDir = 0;
-    visFile = 0;
-
     try {
       StopWatch stopWatch = new StopWatch();
       stopWatch.start();
@@ -168,6 +175,7 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
           // Files.exist here:
           // if the DS exists (and we have access to read it): Files.exist =
           // true
+          fsCalls.incrementAndGet();
           if (!Files.exists(dsAsPath)) {
             // error - continue with next datasource
             LOGGER.warn("Datasource not available/empty " + ds);
@@ -176,11 +184,10 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
             continue;
           }
 
-          initThreadPool(3, "update"); // FIXME: more threads result in
-                                       // duplicate tree entries :/
+          initThreadPool(getUpdateThreads(dsAsPath), "update");
           List<Path> newTvShowDirs = new ArrayList<>();
           List<Path> existingTvShowDirs = new ArrayList<>();
-          List<Path> rootList = listFilesAndDirs(dsAsPath);
+          Map<Path, BasicFileAttributes> rootList = listFilesAndDirsWithAttributes(dsAsPath);
 
           // when there is _nothing_ found in the ds root, it might be offline -
           // skip further processing
@@ -192,8 +199,9 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
             continue;
           }
 
-          for (Path path : rootList) {
-            if (Files.isDirectory(path)) {
+          for (Map.Entry<Path, BasicFileAttributes> entry : rootList.entrySet()) {
+            Path path = entry.getKey();
+            if (entry.getValue() != null && entry.getValue().isDirectory()) {
               if (existing.contains(path)) {
                 existingTvShowDirs.add(path);
               }
@@ -230,13 +238,23 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
         } // end forech datasource
       }
       else {
-        initThreadPool(3, "update");
+        // the slowest data source of the selected TV shows limits the thread count
+        int threads = Integer.MAX_VALUE;
+        for (Path path : tvShowFolders) {
+          threads = Math.min(threads, getUpdateThreads(path.getParent()));
+        }
+        initThreadPool(threads, "update");
         // update selected TV shows
         for (Path path : tvShowFolders) {
           // first of all check if the DS is available; we can take the
           // Files.exist here:
           // if the DS exists (and we have access to read it): Files.exist =
           // true
+          if (!Files.exists(path) && Files.exists(path.getParent())) {
+            // the TV show folder has been removed - will be cleaned up afterwards
+            LOGGER.info("TV show folder " + path.toAbsolutePath().toString() + " has been removed");
+            continue;
+          }
           if (!Files.exists(path)) {
             // error - continue with next datasource
             LOGGER.warn("Datasource not available/empty " + path.toAbsolutePath().toString());
@@ -255,7 +273,7 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
       }
 
       LOGGER.info("getting Mediainfo...");
-      initThreadPool(1, "mediainfo");
+      initThreadPool(MediaInfoPool.getThreadCount(), "mediainfo");
       setTaskName(BUNDLE.getString("update.mediainfo"));
       setTaskDescription(null);
       setProgressDone(0);
@@ -294,12 +312,10 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
       LOGGER.debug("FilesFound " + filesFound.size());
       LOGGER.debug("tvShowsFound " + tvShowList.getTvShowCount());
       LOGGER.debug("episodesFound " + tvShowList.getEpisodeCount());
-      LOGGER.debug("PreDir " + preDir);
-      LOGGER.debug("PostDir " + postDir);
-      LOGGER.debug("VisFile " + visFile);
-      preDir = 0;
-      postDir = 0;
-      visFile = 0;
+      LOGGER.debug("PreDir " + preDir.get());
+      LOGGER.debug("PostDir " + postDir.get());
+      LOGGER.debug("VisFile " + visFile.get());
+      LOGGER.debug("FsCalls " + fsCalls.get());
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
@@ -307,6 +323,71 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
     }
   }
 
+  /**
+   * override the thread counts of the settings for this run (e.g. from the command line); the settings are not changed
+   * 
+   * @param local
+   *          the thread count for local data sources (0 = take the settings)
+   * @param share
+   *          the thread count for network shares (0 = take the settings)
+   */
+  public static void setUpdateThreads(int local, int share) {
+    localThreads = local;
+    shareThreads = share;
+  }
+
+  /**
+   * get the count of parallel update threads for the given data source: network shares get slow on many parallel requests, local drives do not
+   * 
+   * @param datasource
+   *          the data source
+   * @return the thread count
+   */
+  private static int getUpdateThreads(Path datasource) {
+    int threads;
+    if (Utils.isNetworkShare(datasource)) {
+      threads = shareThreads > 0 ? shareThreads : TvShowModuleManager.SETTINGS.getUpdateThreadsNetwork();
+    }
+    else {
+      threads = localThreads > 0 ? localThreads : TvShowModuleManager.SETTINGS.getUpdateThreads();
+    }
+    return Math.max(threads, 1);
+  }
+
+  private static ShowLock acquireShowLock(Path showDir) {
+    Path key = showDir.toAbsolutePath().normalize();
+    synchronized (showLocks) {
+      ShowLock lock = showLocks.get(key);
+      if (lock == null) {
+        lock = new ShowLock(key);
+        showLocks.put(key, lock);
+      }
+      lock.users++;
+      return lock;
+    }
+  }
+
+  private static void releaseShowLock(ShowLock lock) {
+    synchronized (showLocks) {
+      lock.users--;
+      if (lock.users == 0) {
+        showLocks.remove(lock.key);
+      }
+    }
+  }
+
+  /**
+   * the lock for parsing a single TV show; counts the parsers using it
+   */
+  private static class ShowLock {
+    private final Path key;
+    private int        users = 0;
+
+    private ShowLock(Path key) {
+      this.key = key;
+    }
+  }
+
   private void cleanupShows() {
     setTaskName(BUNDLE.getString("update.cleanup"));
     setTaskDescription(null);
@@ -463,28 +544,40 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
       name = name.replaceAll("\\-G\\d+", "-G" + uniqueId);
       Thread.currentThread().setName(name);
 
+      // never parse the same TV show in parallel (e.g. the same folder from an automatic and a manual update)
+      ShowLock lock = acquireShowLock(showDir);
+      try {
+        synchronized (lock) {
+          return parseShowDirectory();
+        }
+      }
+      finally {
+        releaseShowLock(lock);
+      }
+    }
+
+    private String parseShowDirectory() throws Exception {
       LOGGER.info("start parsing " + showDir);
       if (showDir.getFileName().toString().matches(skipRegex)) {
         LOGGER.debug("Skipping dir: " + showDir);
         return "";
       }
 
-      HashSet<Path> allFiles = getAllFilesRecursive(showDir, Integer.MAX_VALUE);
+      Map<Path, BasicFileAttributes> allFiles = getAllFilesRecursive(showDir, Integer.MAX_VALUE);
       if (allFiles != null && allFiles.isEmpty()) {
         LOGGER.info("skip empty directory " + showDir);
         return "";
       }
       filesFound.add(showDir.toAbsolutePath()); // our global cache
-      filesFound.addAll(allFiles); // our global cache
+      filesFound.addAll(allFiles.keySet()); // our global cache
 
-      // convert to MFs (we need it anyways at the end)
+      // convert to MFs (we need it anyways at the end); size and date are taken from the listing
       ArrayList<MediaFile> mfs = new ArrayList<>();
-      for (Path file : allFiles) {
-        if (!file.getFileName().toString().matches(skipRegex)) {
-          mfs.add(new MediaFile(file));
+      for (Map.Entry<Path, BasicFileAttributes> entry : allFiles.entrySet()) {
+        if (!entry.getKey().getFileName().toString().matches(skipRegex)) {
+          mfs.add(new MediaFile(entry.getKey(), entry.getValue()));
         }
       }
-      allFiles.clear();
 
       if (getMediaFiles(mfs, MediaFileType.VIDEO).size() == 0) {
         LOGGER.info("no video file found in directory " + showDir);
@@ -500,7 +593,7 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
       MediaFile showNFO = new MediaFile(showDir.resolve("tvshow.nfo"), MediaFileType.NFO); // fixate
       if (tvShow == null) {
         // tvShow did not exist - try to parse a NFO file in parent folder
-        if (Files.exists(showNFO.getFileAsPath())) {
+        if (allFiles.containsKey(showNFO.getFileAsPath())) {
           tvShow = TvShowToXbmcNfoConnector.getData(showNFO.getFileAsPath().toFile());
         }
         if (tvShow == null) {
@@ -953,63 +1046,91 @@ public class TvShowUpdateDatasourceTask2 extends TmmThreadPool {
     return fileNames;
   }
 
-  // **************************************
-  // gets all files recursive,
-  // **************************************
-  public static HashSet<Path> getAllFilesRecursive(Path folder, int deep) {
-    folder = folder.toAbsolutePath();
-    AllFilesRecursive visitor = new AllFilesRecursive();
+  /**
+   * returns all files & folders in specified dir together with their attributes from the listing (NOT recursive)
+   * 
+   * @param directory
+   *          the folder to list the items for
+   * @return files&folders with their attributes (null if they could not be read)
+   */
+  private Map<Path, BasicFileAttributes> listFilesAndDirsWithAttributes(Path directory) {
+    Map<Path, BasicFileAttributes> fileNames = new LinkedHashMap<>();
     try {
-      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), deep, visitor);
+      for (Map.Entry<Path, BasicFileAttributes> entry : DirectoryListing.list(directory, fsCalls).getEntries().entrySet()) {
+        Path path = entry.getKey();
+        String fn = path.getFileName().toString().toUpperCase(Locale.ROOT);
+        if (!skipFolders.contains(fn) && !fn.matches(skipRegex)
+            && !TvShowModuleManager.SETTINGS.getTvShowSkipFolders().contains(path.toFile().getAbsolutePath())) {
+          fileNames.put(path, entry.getValue());
+        }
+        else {
+          LOGGER.debug("Skipping: " + path);
+        }
+      }
     }
-    catch (IOException e) {
-      // can not happen, since we overrided visitFileFailed, which throws no
-      // exception ;)
+    catch (IOException ex) {
     }
-    return visitor.fFound;
+    return fileNames;
   }
 
-  private static class AllFilesRecursive extends SimpleFileVisitor<Path> {
-    private HashSet<Path> fFound = new HashSet<>();
+  // **************************************
+  // gets all files recursive,
+  // every directory is listed once; the attributes of the listing are returned
+  // **************************************
+  public Map<Path, BasicFileAttributes> getAllFilesRecursive(Path folder, int deep) {
+    Map<Path, BasicFileAttributes> found = new LinkedHashMap<>();
+    collectFiles(folder.toAbsolutePath(), deep, found, new HashSet<>());
+    return found;
+  }
 
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
-      visFile++;
-      if (Utils.isRegularFile(attr) && !file.getFileName().toString().matches(skipRegex)) {
-        fFound.add(file.toAbsolutePath());
-      }
-      // System.out.println("(" + attr.size() + "bytes)");
-      // System.out.println("(" + attr.creationTime() + " date)");
-      return CONTINUE;
+  private void collectFiles(Path dir, int deep, Map<Path, BasicFileAttributes> found, Set<Object> ancestors) {
+    preDir.incrementAndGet();
+    // getFilename returns null on DS root!
+    if (dir.getFileName() != null
+        && (skipFolders.contains(dir.getFileName().toString().toUpperCase(Locale.ROOT)) || dir.getFileName().toString().matches(skipRegex))
+        || TvShowModuleManager.SETTINGS.getTvShowSkipFolders().contains(dir.toFile().getAbsolutePath())) {
+      LOGGER.debug("Skipping dir: " + dir);
+      return;
     }
-
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      preDir++;
-      // getFilename returns null on DS root!
-      if (dir.getFileName() != null
-          && (Files.exists(dir.resolve(".tmmignore")) || Files.exists(dir.resolve("tmmignore")) || Files.exists(dir.resolve(".nomedia"))
-              || skipFolders.contains(dir.getFileName().toString().toUpperCase(Locale.ROOT)) || dir.getFileName().toString().matches(skipRegex))
-          || TvShowModuleManager.SETTINGS.getTvShowSkipFolders().contains(dir.toFile().getAbsolutePath())) {
-        LOGGER.debug("Skipping dir: " + dir);
-        return SKIP_SUBTREE;
-      }
-      return CONTINUE;
+    DirectoryListing listing;
+    try {
+      listing = DirectoryListing.list(dir, fsCalls);
     }
-
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-      postDir++;
-      return CONTINUE;
+    catch (IOException e) {
+      LOGGER.error("" + e);
+      return;
+    }
+    // the ignore markers are taken from the listing
+    if (dir.getFileName() != null && listing.hasIgnoreMarker()) {
+      LOGGER.debug("Skipping dir: " + dir);
+      return;
     }
 
-    // If there is some error accessing the file, let the user know.
-    // If you don't override this method and an error occurs, an IOException is
-    // thrown.
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) {
-      LOGGER.error("" + exc);
-      return CONTINUE;
+    for (Map.Entry<Path, BasicFileAttributes> entry : listing.getEntries().entrySet()) {
+      Path path = entry.getKey();
+      BasicFileAttributes attr = entry.getValue();
+      if (attr == null) {
+        LOGGER.error("could not read attributes of " + path);
+      }
+      else if (attr.isDirectory() && deep > 1) {
+        // following links can produce loops
+        Object fileKey = attr.fileKey();
+        if (fileKey != null && !ancestors.add(fileKey)) {
+          LOGGER.error("file system loop detected: " + path);
+          continue;
+        }
+        collectFiles(path, deep - 1, found, ancestors);
+        if (fileKey != null) {
+          ancestors.remove(fileKey);
+        }
+      }
+      else {
+        visFile.incrementAndGet();
+        if (Utils.isRegularFile(attr) && !path.getFileName().toString().matches(skipRegex)) {
+          found.put(path, attr);
+        }
+      }
     }
+    postDir.incrementAndGet();
   }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.thirdparty;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.github.stephenc.javaisotools.loopfs.iso9660.Iso9660FileEntry;
+import com.github.stephenc.javaisotools.loopfs.iso9660.Iso9660FileSystem;
+
+/**
+ * The class IsoReadAheadCache. Reads the files of an ISO image in big blocks and keeps the last blocks in memory. MediaInfo requests the data of a
+ * stream in small pieces and jumps back and forth (headers, indices); with this cache every part of the image is read only once per probe, even if
+ * the image is on a network share. One cache is shared by all the probes of an image.
+ *
+ * @author Manuel Laggner
+ */
+public class IsoReadAheadCache {
+  private static final int                    BLOCK_SIZE = 1024 * 1024;
+  private static final int                    MAX_BLOCKS = 16;
+
+  private final Iso9660FileSystem             image;
+  private final LinkedHashMap<String, byte[]> blocks;
+  private long                                bytesRead  = 0;
+
+  public IsoReadAheadCache(Iso9660FileSystem image) {
+    this.image = image;
+    // access order - the least recently used block is dropped
+    this.blocks = new LinkedHashMap<String, byte[]>(MAX_BLOCKS + 1, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+        return size() > MAX_BLOCKS;
+      }
+    };
+  }
+
+  /**
+   * get a source for MediaInfo which reads the given entry of the image through this cache
+   *
+   * @param entry
+   *          the entry of the image
+   * @return the source for {@link MediaInfo#openBuffered(MediaInfo.BufferSource, long, String, long)}
+   */
+  public MediaInfo.BufferSource getSource(final Iso9660FileEntry entry) {
+    return new MediaInfo.BufferSource() {
+      @Override
+      public int read(long position, byte[] buffer, int length) throws IOException {
+        return IsoReadAheadCache.this.read(entry, position, buffer, length);
+      }
+    };
+  }
+
+  private synchronized int read(Iso9660FileEntry entry, long position, byte[] buffer, int length) throws IOException {
+    int copied = 0;
+    while (copied < length && position + copied < entry.getSize()) {
+      long pos = position + copied;
+      byte[] block = getBlock(entry, pos / BLOCK_SIZE);
+      int offset = (int) (pos % BLOCK_SIZE);
+      if (offset >= block.length) {
+        break;
+      }
+      int count = Math.min(length - copied, block.length - offset);
+      System.arraycopy(block, offset, buffer, copied, count);
+      copied += count;
+    }
+    return copied;
+  }
+
+  private byte[] getBlock(Iso9660FileEntry entry, long index) throws IOException {
+    String key = entry.getPath() + ":" + index;
+    byte[] block = blocks.get(key);
+    if (block == null) {
+      long start = index * BLOCK_SIZE;
+      int length = (int) Math.min(BLOCK_SIZE, entry.getSize() - start);
+      block = new byte[length];
+      int filled = 0;
+      while (filled < length) {
+        int read = image.readBytes(entry, start + filled, block, filled, length - filled);
+        if (read <= 0) {
+          break;
+        }
+        filled += read;
+      }
+      if (filled < length) {
+        byte[] shortened = new byte[filled];
+        System.arraycopy(block, 0, shortened, 0, filled);
+        block = shortened;
+      }
+      bytesRead += filled;
+      blocks.put(key, block);
+    }
+    return block;
+  }
+
+  /**
+   * get the count of bytes which have been read from the image
+   *
+   * @return the count of bytes
+   */
+  public synchronized long getBytesRead() {
+    return bytesRead;
+  }
+}
@@ -17,7 +17,10 @@ package org.tinymediamanager.thirdparty;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
@@ -38,7 +41,8 @@ import com.sun.jna.WString;
  */
 public class MediaInfo implements Closeable {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfo.class);
+  private static final Logger LOGGER      = LoggerFactory.getLogger(MediaInfo.class);
+  private static final int    BUFFER_SIZE = 64 * 1024;
 
   /**
    * the internal pointer handle of mediainfo<br>
@@ -138,6 +142,78 @@ public class MediaInfo implements Closeable {
     return MediaInfoLibrary.INSTANCE.Open_Buffer_Finalize(handle);
   }
 
+  /**
+   * Open a file by feeding it through the buffer interface: only the parts of the file which MediaInfo asks for are read (the seek requests are
+   * honoured) and reading stops after the given count of bytes.
+   * 
+   * @param file
+   *          the file
+   * @param maxBytes
+   *          the maximum count of bytes to read from the file
+   * @return the count of bytes read or -1 if MediaInfo could not be initialized
+   * @throws IOException
+   *           the file could not be read
+   */
+  public long openBuffered(Path file, long maxBytes) throws IOException {
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      BufferSource source = new BufferSource() {
+        @Override
+        public int read(long position, byte[] buffer, int length) throws IOException {
+          return channel.read(ByteBuffer.wrap(buffer, 0, length), position);
+        }
+      };
+      return openBuffered(source, channel.size(), file.toAbsolutePath().toString(), maxBytes);
+    }
+  }
+
+  /**
+   * Open a stream by feeding it through the buffer interface (see {@link #openBuffered(Path, long)})
+   * 
+   * @param source
+   *          the source of the stream
+   * @param size
+   *          the size of the stream
+   * @param fileName
+   *          the file name of the stream (for the formats which are detected by the extension)
+   * @param maxBytes
+   *          the maximum count of bytes to read from the stream
+   * @return the count of bytes read or -1 if MediaInfo could not be initialized
+   * @throws IOException
+   *           the stream could not be read
+   */
+  public long openBuffered(BufferSource source, long size, String fileName, long maxBytes) throws IOException {
+    if (!openBufferInit(size, 0)) {
+      return -1;
+    }
+    option("File_FileName", fileName);
+
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long pos = 0;
+    long bytesRead = 0;
+    while (bytesRead < maxBytes && pos < size) {
+      int read = source.read(pos, buffer, (int) Math.min(BUFFER_SIZE, Math.min(maxBytes - bytesRead, size - pos)));
+      if (read <= 0) {
+        break;
+      }
+      bytesRead += read;
+      pos += read;
+
+      int status = openBufferContinue(buffer, read);
+      if ((status & 8) == 8) { // Status.Finalized
+        break;
+      }
+
+      // MediaInfo wants to go elsewhere (e.g. the index at the end of the file)
+      long goTo = openBufferContinueGoToGet();
+      if (goTo != -1) {
+        pos = goTo;
+        openBufferInit(size, pos);
+      }
+    }
+    openBufferFinalize();
+    return bytesRead;
+  }
+
   /**
    * Inform.
    * 
@@ -480,6 +556,26 @@ public class MediaInfo implements Closeable {
     }
   }
 
+  /**
+   * A stream which is fed to MediaInfo through the buffer interface.
+   */
+  public interface BufferSource {
+    /**
+     * read from the given position of the stream
+     * 
+     * @param position
+     *          the position in the stream
+     * @param buffer
+     *          the buffer to fill (starting at index 0)
+     * @param length
+     *          the maximum count of bytes to read
+     * @return the count of bytes read; 0 or -1 at the end of the stream
+     * @throws IOException
+     *           the stream could not be read
+     */
+    int read(long position, byte[] buffer, int length) throws IOException;
+  }
+
   /**
    * The Enum StreamKind.
    * 
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.ui;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.imgscalr.Scalr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ImageCache;
+
+/**
+ * The class ImageMemoryCache. Keeps the decoded and scaled images of the image components in memory, so selecting a movie again (or scrolling
+ * through the table) does not read and decode its artwork again:
+ * <ul>
+ * <li>the images are stored by their file, the modification time of the file and the display size</li>
+ * <li>the least recently used images are dropped when the images need more memory than the budget (an eighth of the heap)</li>
+ * <li>the images are soft referenced - the garbage collector may drop them before the heap runs out</li>
+ * <li>the artwork of the neighbouring rows can be prefetched in a background thread</li>
+ * </ul>
+ *
+ * @author Manuel Laggner
+ */
+public class ImageMemoryCache {
+  private static final Logger            LOGGER   = LoggerFactory.getLogger(ImageMemoryCache.class);
+  private static final ImageMemoryCache  INSTANCE = new ImageMemoryCache(Runtime.getRuntime().maxMemory() / 8);
+
+  private final long                     maxWeight;
+  private final Map<String, CachedImage> images;
+  private final ThreadPoolExecutor       prefetcher;
+  private long                           weight   = 0;
+  private long                           hits     = 0;
+  private long                           misses   = 0;
+
+  ImageMemoryCache(long maxWeight) {
+    this.maxWeight = maxWeight;
+    // access order - the least recently used image comes first
+    this.images = new LinkedHashMap<>(64, 0.75f, true);
+    this.prefetcher = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new PrefetchThreadFactory());
+    this.prefetcher.allowCoreThreadTimeOut(true);
+  }
+
+  public static ImageMemoryCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * get the key of the given image file in the given size; the modification time is part of the key, so a changed file is loaded again
+   *
+   * @param file
+   *          the image file
+   * @param size
+   *          the display size
+   * @return the key or null if the file does not exist
+   */
+  public static String getKey(Path file, Dimension size) {
+    try {
+      return file.toAbsolutePath() + "|" + Files.getLastModifiedTime(file).toMillis() + "|" + size.width + "x" + size.height;
+    }
+    catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * get the key of the given image url in the given size
+   *
+   * @param url
+   *          the image url
+   * @param size
+   *          the display size
+   * @return the key
+   */
+  public static String getKey(String url, Dimension size) {
+    return url + "|" + size.width + "x" + size.height;
+  }
+
+  /**
+   * get an image from the cache
+   *
+   * @param key
+   *          the key of the image
+   * @return the image or null if it is not cached (or has been dropped)
+   */
+  public synchronized BufferedImage get(String key) {
+    if (key == null) {
+      return null;
+    }
+    CachedImage cached = images.get(key);
+    BufferedImage image = cached != null ? cached.image.get() : null;
+    if (image == null) {
+      if (cached != null) {
+        // dropped by the garbage collector
+        remove(key);
+      }
+      misses++;
+      return null;
+    }
+    hits++;
+    return image;
+  }
+
+  /**
+   * put an image into the cache; the least recently used images are dropped if the cache is full
+   *
+   * @param key
+   *          the key of the image
+   * @param image
+   *          the image
+   */
+  public synchronized void put(String key, BufferedImage image) {
+    if (key == null || image == null) {
+      return;
+    }
+    long imageWeight = 4L * image.getWidth() * image.getHeight();
+    if (imageWeight > maxWeight) {
+      return;
+    }
+    remove(key);
+    images.put(key, new CachedImage(image, imageWeight));
+    weight += imageWeight;
+
+    Iterator<Map.Entry<String, CachedImage>> iterator = images.entrySet().iterator();
+    while (weight > maxWeight && iterator.hasNext()) {
+      weight -= iterator.next().getValue().weight;
+      iterator.remove();
+    }
+  }
+
+  private void remove(String key) {
+    CachedImage old = images.remove(key);
+    if (old != null) {
+      weight -= old.weight;
+    }
+  }
+
+  /**
+   * get the given image in the given size; the image is loaded (from the image cache if activated) and scaled if it is not in memory yet. Must not
+   * be called in the EDT
+   *
+   * @param imagePath
+   *          the path of the image
+   * @param size
+   *          the display size
+   * @param useCache
+   *          load the image from the image cache
+   * @return the scaled image or null if it could not be loaded
+   */
+  public BufferedImage loadImage(String imagePath, Dimension size, boolean useCache) {
+    if (StringUtils.isBlank(imagePath) || size.width <= 0 || size.height <= 0) {
+      return null;
+    }
+    Path original = Paths.get(imagePath);
+    String key = getKey(original, size);
+    if (key == null) {
+      return null;
+    }
+    BufferedImage image = get(key);
+    if (image != null) {
+      return image;
+    }
+
+    Path file = null;
+    if (useCache) {
+      file = ImageCache.getCachedFile(original);
+    }
+    if (file == null) {
+      file = original;
+    }
+    if (!Files.exists(file)) {
+      return null;
+    }
+
+    try {
+      image = Scalr.resize(ImageCache.createImage(file, size.width), Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.width, size.height,
+          Scalr.OP_ANTIALIAS);
+      put(key, image);
+      return image;
+    }
+    catch (Exception e) {
+      return null;
+    }
+  }
+
+  /**
+   * load the given images in the background (e.g. the artwork of the neighbouring rows). The pending prefetches of the same owner are discarded
+   *
+   * @param owner
+   *          the requesting component
+   * @param imagePaths
+   *          the paths of the images
+   * @param size
+   *          the display size
+   * @param useCache
+   *          load the images from the image cache
+   */
+  public void prefetch(Object owner, List<String> imagePaths, Dimension size, boolean useCache) {
+    Iterator<Runnable> iterator = prefetcher.getQueue().iterator();
+    while (iterator.hasNext()) {
+      Runnable runnable = iterator.next();
+      if (runnable instanceof Prefetch && ((Prefetch) runnable).owner == owner) {
+        iterator.remove();
+      }
+    }
+    for (String imagePath : imagePaths) {
+      if (StringUtils.isNotBlank(imagePath)) {
+        prefetcher.execute(new Prefetch(owner, imagePath, new Dimension(size), useCache));
+      }
+    }
+  }
+
+  public synchronized String getStatistics() {
+    return images.size() + " images, " + weight / (1024 * 1024) + " MB, " + hits + " hits, " + misses + " misses";
+  }
+
+  private static class CachedImage {
+    private final SoftReference<BufferedImage> image;
+    private final long                         weight;
+
+    private CachedImage(BufferedImage image, long weight) {
+      this.image = new SoftReference<>(image);
+      this.weight = weight;
+    }
+  }
+
+  private class Prefetch implements Runnable {
+    private final Object    owner;
+    private final String    imagePath;
+    private final Dimension size;
+    private final boolean   useCache;
+
+    private Prefetch(Object owner, String imagePath, Dimension size, boolean useCache) {
+      this.owner = owner;
+      this.imagePath = imagePath;
+      this.size = size;
+      this.useCache = useCache;
+    }
+
+    @Override
+    public void run() {
+      try {
+        loadImage(imagePath, size, useCache);
+      }
+      catch (Exception e) {
+        LOGGER.trace("could not prefetch " + imagePath + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * the prefetch thread is a daemon with a low priority - the visible images are loaded first
+   */
+  private static class PrefetchThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread t = new Thread(r, "tmmpool-image-prefetch");
+      t.setDaemon(true);
+      t.setPriority(Thread.MIN_PRIORITY);
+      return t;
+    }
+  }
+}
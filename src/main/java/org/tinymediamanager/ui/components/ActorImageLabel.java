@@ -100,7 +100,7 @@ public class ActorImageLabel extends ImageLabel {
       actorWorker = new ActorImageLoader(actor);
       actorWorker.execute();
     }
-    else if (isShowing() && scaledImage == null && StringUtils.isNotBlank(imageUrl)) {
+    else if (isShowing() && scaledImage == null && StringUtils.isNotBlank(imageUrl) && (worker == null || worker.isDone())) {
       worker = new ImageFetcher(this.getSize());
       worker.execute();
       return;
@@ -145,7 +145,8 @@ public class ActorImageLabel extends ImageLabel {
 
     @Override
     protected void done() {
-      if (isCancelled()) {
+      // another actor has been set in the meantime
+      if (isCancelled() || actorWorker != this) {
         return;
       }
 
@@ -28,9 +28,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.List;
 import java.util.ResourceBundle;
 
 import javax.swing.JLabel;
@@ -40,6 +38,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.imgscalr.Scalr;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.scraper.http.Url;
+import org.tinymediamanager.ui.ImageMemoryCache;
 import org.tinymediamanager.ui.MainWindow;
 import org.tinymediamanager.ui.TmmFontHelper;
 import org.tinymediamanager.ui.UTF8Control;
@@ -314,6 +313,10 @@ public class ImageLabel extends JLabel {
   }
 
   private void recreateScaledImageIfNeeded(int originalWidth, int originalHeight, int newWidth, int newHeight) {
+    // a worker is already loading the image
+    if (worker != null && !worker.isDone()) {
+      return;
+    }
     if ((newWidth * 0.8f > originalWidth) || (originalWidth > newWidth * 1.2f) || (newHeight * 0.8f > originalHeight)
         || (originalHeight > newHeight * 1.2f) && newWidth > 10) {
       if (StringUtils.isNotBlank(imagePath)) {
@@ -355,6 +358,18 @@ public class ImageLabel extends JLabel {
     this.useCache = useCache;
   }
 
+  /**
+   * load the given images in the background (in the size of this label), e.g. the artwork of the neighbouring rows in the table
+   * 
+   * @param imagePaths
+   *          the paths of the images
+   */
+  public void prefetch(List<String> imagePaths) {
+    if (getWidth() > 0 && getHeight() > 0) {
+      ImageMemoryCache.getInstance().prefetch(this, imagePaths, getSize(), useCache);
+    }
+  }
+
   /*
    * inner class for downloading online images
    */
@@ -368,9 +383,15 @@ public class ImageLabel extends JLabel {
     @Override
     protected BufferedImage doInBackground() throws Exception {
       try {
-        Url url = new Url(imageUrl);
-        return Scalr.resize(ImageCache.createImage(url.getBytes()), Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, newSize.width, newSize.height,
-            Scalr.OP_ANTIALIAS);
+        String key = ImageMemoryCache.getKey(imageUrl, newSize);
+        BufferedImage image = ImageMemoryCache.getInstance().get(key);
+        if (image == null) {
+          Url url = new Url(imageUrl);
+          image = Scalr.resize(ImageCache.createImage(url.getBytes(), newSize.width), Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, newSize.width,
+              newSize.height, Scalr.OP_ANTIALIAS);
+          ImageMemoryCache.getInstance().put(key, image);
+        }
+        return image;
       }
       catch (Exception e) {
         imageUrl = "";
@@ -380,7 +401,8 @@ public class ImageLabel extends JLabel {
 
     @Override
     protected void done() {
-      if (isCancelled()) {
+      // a newer worker has been started in the meantime
+      if (isCancelled() || worker != this) {
         return;
       }
 
@@ -409,33 +431,17 @@ public class ImageLabel extends JLabel {
 
     @Override
     protected BufferedImage doInBackground() throws Exception {
-      Path file = null;
-
-      if (useCache) {
-        file = ImageCache.getCachedFile(Paths.get(imagePath));
-      }
-
-      if (file == null) {
-        file = Paths.get(imagePath);
-      }
-
-      if (file != null && Files.exists(file)) {
-        try {
-          return Scalr.resize(ImageCache.createImage(file), Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, newSize.width, newSize.height,
-              Scalr.OP_ANTIALIAS);
-        }
-        catch (Exception e) {
-          return null;
-        }
-      }
-      else {
+      if (isCancelled()) {
         return null;
       }
+      // decoded images are shared by all image labels
+      return ImageMemoryCache.getInstance().loadImage(imagePath, newSize, useCache);
     }
 
     @Override
     protected void done() {
-      if (isCancelled()) {
+      // a newer worker has been started in the meantime
+      if (isCancelled() || worker != this) {
         return;
       }
 
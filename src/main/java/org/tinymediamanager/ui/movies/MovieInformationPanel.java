@@ -78,6 +78,9 @@ public class MovieInformationPanel extends JPanel {
   /** The Constant serialVersionUID. */
   private static final long           serialVersionUID = -8527284262749511617L;
 
+  /** The count of rows before and after the selected movie whose artwork is prefetched. */
+  private static final int            PREFETCH_COUNT   = 2;
+
   /** The split pane vertical. */
   private JSplitPane                  splitPaneVertical;
 
@@ -354,6 +357,18 @@ public class MovieInformationPanel extends JPanel {
             lblMovieBackground.setImagePath(movie.getArtworkFilename(MediaFileType.FANART));
             lblMoviePoster.setImagePath(movie.getArtworkFilename(MediaFileType.POSTER));
 
+            // prefetch the artwork of the neighbouring rows - scrolling through the table shows them instantly
+            if (source instanceof MovieSelectionModel) {
+              List<String> posters = new ArrayList<>();
+              List<String> fanarts = new ArrayList<>();
+              for (Movie neighbour : ((MovieSelectionModel) source).getNeighbouringMovies(PREFETCH_COUNT)) {
+                posters.add(neighbour.getArtworkFilename(MediaFileType.POSTER));
+                fanarts.add(neighbour.getArtworkFilename(MediaFileType.FANART));
+              }
+              lblMoviePoster.prefetch(posters);
+              lblMovieBackground.prefetch(fanarts);
+            }
+
             synchronized (mediaFiles) {
               mediaFiles.clear();
               for (MediaFile mediafile : movie.getMediaFiles()) {
@@ -17,6 +17,7 @@ package org.tinymediamanager.ui.movies;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +56,9 @@ public class MovieSelectionModel extends AbstractModelObject implements ListSele
   /** The selection model. */
   private DefaultEventSelectionModel<Movie> selectionModel;
 
+  /** The movies in the order of the table. */
+  private EventList<Movie>                  movieList;
+
   /** The matcher editor. */
   private MovieMatcherEditor                matcherEditor;
 
@@ -79,6 +83,7 @@ public class MovieSelectionModel extends AbstractModelObject implements ListSele
    */
   public MovieSelectionModel(SortedList<Movie> sortedList, EventList<Movie> source, MovieMatcherEditor matcher) {
     this.sortedList = sortedList;
+    this.movieList = source;
     this.selectionModel = new DefaultEventSelectionModel<>(source);
     this.selectionModel.addListSelectionListener(this);
     this.matcherEditor = matcher;
@@ -210,6 +215,40 @@ public class MovieSelectionModel extends AbstractModelObject implements ListSele
     return selectedMovies;
   }
 
+  /**
+   * Gets the movies next to the selected movie in the table (e.g. to prefetch their artwork).
+   * 
+   * @param count
+   *          the count of movies before and after the selected movie
+   * @return the neighbouring movies (the next ones first)
+   */
+  public List<Movie> getNeighbouringMovies(int count) {
+    List<Movie> neighbours = new ArrayList<>();
+    if (movieList == null) {
+      return neighbours;
+    }
+
+    movieList.getReadWriteLock().readLock().lock();
+    try {
+      int index = selectionModel.getLeadSelectionIndex();
+      if (index < 0 || index >= movieList.size()) {
+        return neighbours;
+      }
+      for (int i = 1; i <= count; i++) {
+        if (index + i < movieList.size()) {
+          neighbours.add(movieList.get(index + i));
+        }
+        if (index - i >= 0) {
+          neighbours.add(movieList.get(index - i));
+        }
+      }
+    }
+    finally {
+      movieList.getReadWriteLock().readLock().unlock();
+    }
+    return neighbours;
+  }
+
   /**
    * Sets the selected movies.
    * 
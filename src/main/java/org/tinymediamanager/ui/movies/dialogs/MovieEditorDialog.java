@@ -1078,7 +1078,7 @@ public class MovieEditorDialog extends TmmDialog {
         }
       }
       for (String id : removeIds) {
-        movieToEdit.getIds().remove(id);
+        movieToEdit.removeId(id);
       }
 
       Object certification = cbCertification.getSelectedItem();
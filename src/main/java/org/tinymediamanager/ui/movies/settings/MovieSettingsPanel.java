@@ -105,6 +105,7 @@ public class MovieSettingsPanel extends ScrollablePanel {
   private JCheckBox                            chckbxSaveUiFilter;
   private JList<String>                        listIgnore;
   private JCheckBox                            chckbxRename;
+  private JCheckBox                            chckbxIncrementalUpdate;
   private JComboBox<CertificationStyleWrapper> cbCertificationStyle;
 
   /**
@@ -339,6 +340,10 @@ public class MovieSettingsPanel extends ScrollablePanel {
     });
     panelIgnoreButtons.add(btnRemoveIgnore, "1, 3");
 
+    chckbxIncrementalUpdate = new JCheckBox(BUNDLE.getString("Settings.incrementalupdate")); //$NON-NLS-1$
+    chckbxIncrementalUpdate.setToolTipText(BUNDLE.getString("Settings.incrementalupdate.desc")); //$NON-NLS-1$
+    panelMovieDataSources.add(chckbxIncrementalUpdate, "2, 6, 5, 1");
+
     JPanel panel = new JPanel();
     panelMovieDataSources.add(panel, "2, 8, 13, 1, fill, fill");
     panel.setLayout(new FormLayout(
@@ -632,6 +637,11 @@ public class MovieSettingsPanel extends ScrollablePanel {
     AutoBinding<MovieSettings, Boolean, JCheckBox, Boolean> autoBinding_2 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
         settingsBeanProperty_2, chckbxRename, jCheckBoxBeanProperty);
     autoBinding_2.bind();
+    //
+    BeanProperty<MovieSettings, Boolean> settingsBeanProperty_18 = BeanProperty.create("incrementalUpdate");
+    AutoBinding<MovieSettings, Boolean, JCheckBox, Boolean> autoBinding_16 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
+        settingsBeanProperty_18, chckbxIncrementalUpdate, jCheckBoxBeanProperty);
+    autoBinding_16.bind();
   }
 
   /*
@@ -15,6 +15,7 @@
  */
 package org.tinymediamanager.ui.panels;
 
+import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Point;
 import java.awt.event.HierarchyEvent;
@@ -37,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.ui.ImageMemoryCache;
 import org.tinymediamanager.ui.MainWindow;
 import org.tinymediamanager.ui.WrapLayout;
 
@@ -50,17 +52,18 @@ import com.jgoodies.forms.layout.RowSpec;
  * @author Manuel Laggner
  */
 public class ImagePanel extends JPanel implements HierarchyListener {
-  private static final long   serialVersionUID = -5344085698387374260L;
-  private static final Logger LOGGER           = LoggerFactory.getLogger(ImagePanel.class);
-  private List<MediaFile>     mediaFiles       = null;
-  private ImageLoader         activeWorker     = null;
+  private static final long      serialVersionUID = -5344085698387374260L;
+  private static final Logger    LOGGER           = LoggerFactory.getLogger(ImagePanel.class);
+  private static final Dimension THUMB_SIZE       = new Dimension(300, 100);
+  private List<MediaFile>        mediaFiles       = null;
+  private ImageLoader            activeWorker     = null;
 
   /**
    * UI components
    */
 
-  private JPanel              panelImages;
-  private JScrollPane         scrollPane;
+  private JPanel                 panelImages;
+  private JScrollPane            scrollPane;
 
   public ImagePanel(List<MediaFile> mediaFiles) {
     this.mediaFiles = mediaFiles;
@@ -133,12 +136,18 @@ public class ImagePanel extends JPanel implements HierarchyListener {
             if (file == null) {
               file = mediaFile.getFileAsPath();
             }
-            LOGGER.debug("loading " + file);
-            BufferedImage bufferedImage = ImageCache.createImage(file);
-            Point size = ImageCache.calculateSize(300, 100, bufferedImage.getWidth(), bufferedImage.getHeight(), true);
-            // BufferedImage img = Scaling.scale(bufferedImage, size.x, size.y);
-            BufferedImage img = Scalr.resize(bufferedImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.x, size.y, Scalr.OP_ANTIALIAS);
-            bufferedImage = null;
+            // the thumbnails are shared with the other image components
+            String key = ImageMemoryCache.getKey(file, THUMB_SIZE);
+            BufferedImage img = ImageMemoryCache.getInstance().get(key);
+            if (img == null) {
+              LOGGER.debug("loading " + file);
+              BufferedImage bufferedImage = ImageCache.createImage(file, THUMB_SIZE.width);
+              Point size = ImageCache.calculateSize(THUMB_SIZE.width, THUMB_SIZE.height, bufferedImage.getWidth(), bufferedImage.getHeight(), true);
+              // BufferedImage img = Scaling.scale(bufferedImage, size.x, size.y);
+              img = Scalr.resize(bufferedImage, Scalr.Method.QUALITY, Scalr.Mode.AUTOMATIC, size.x, size.y, Scalr.OP_ANTIALIAS);
+              bufferedImage = null;
+              ImageMemoryCache.getInstance().put(key, img);
+            }
 
             if (isCancelled()) {
               return null;
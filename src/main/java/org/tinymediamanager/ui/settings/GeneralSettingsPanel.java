@@ -58,6 +58,7 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.ImageCache.CacheType;
+import org.tinymediamanager.core.ImageCacheEncoder.TransparentFormat;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
@@ -98,6 +99,7 @@ public class GeneralSettingsPanel extends ScrollablePanel {
   private JTextField                  tfProxyUsername;
   private JPasswordField              tfProxyPassword;
   private JComboBox                   cbImageCacheQuality;
+  private JComboBox                   cbImageCacheFormat;
   private JCheckBox                   chckbxImageCache;
   private JComboBox                   cbLanguage;
   private JTextField                  tfMediaPlayer;
@@ -349,6 +351,7 @@ public class GeneralSettingsPanel extends ScrollablePanel {
         new ColumnSpec[] { FormSpecs.RELATED_GAP_COLSPEC, FormSpecs.DEFAULT_COLSPEC, FormSpecs.RELATED_GAP_COLSPEC, ColumnSpec.decode("default:grow"),
             FormSpecs.RELATED_GAP_COLSPEC, },
         new RowSpec[] { FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC, FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+            FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC, FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
             FormSpecs.RELATED_GAP_ROWSPEC, }));
 
     chckbxImageCache = new JCheckBox(BUNDLE.getString("Settings.imagecache"));//$NON-NLS-1$
@@ -360,6 +363,16 @@ public class GeneralSettingsPanel extends ScrollablePanel {
     cbImageCacheQuality = new JComboBox(ImageCache.CacheType.values());
     panelCache.add(cbImageCacheQuality, "4, 4, fill, default");
 
+    JLabel lblImageCacheFormat = new JLabel(BUNDLE.getString("Settings.imagecacheformat"));//$NON-NLS-1$
+    panelCache.add(lblImageCacheFormat, "2, 6, right, default");
+
+    cbImageCacheFormat = new JComboBox(TransparentFormat.values());
+    panelCache.add(cbImageCacheFormat, "4, 6, fill, default");
+
+    JLabel lblImageCacheFormatHint = new JLabel(BUNDLE.getString("Settings.imagecacheformat.hint"));//$NON-NLS-1$
+    TmmFontHelper.changeFont(lblImageCacheFormatHint, 0.833);
+    panelCache.add(lblImageCacheFormatHint, "2, 8, 3, 1");
+
     JPanel panelAnalytics = new JPanel();
     panelAnalytics
         .setBorder(new TitledBorder(null, BUNDLE.getString("Settings.analytics.border"), TitledBorder.LEADING, TitledBorder.TOP, null, null)); //$NON-NLS-1$
@@ -589,6 +602,11 @@ public class GeneralSettingsPanel extends ScrollablePanel {
         settingsBeanProperty_7, cbImageCacheQuality, jComboBoxBeanProperty);
     autoBinding_5.bind();
     //
+    BeanProperty<Settings, TransparentFormat> settingsBeanProperty_11 = BeanProperty.create("imageCacheFormat");
+    AutoBinding<Settings, TransparentFormat, JComboBox, Object> autoBinding_12 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
+        settingsBeanProperty_11, cbImageCacheFormat, jComboBoxBeanProperty);
+    autoBinding_12.bind();
+    //
     BeanProperty<Settings, Boolean> settingsBeanProperty_9 = BeanProperty.create("imageCache");
     BeanProperty<JCheckBox, Boolean> jCheckBoxBeanProperty = BeanProperty.create("selected");
     AutoBinding<Settings, Boolean, JCheckBox, Boolean> autoBinding_7 = Bindings.createAutoBinding(UpdateStrategy.READ_WRITE, settings,
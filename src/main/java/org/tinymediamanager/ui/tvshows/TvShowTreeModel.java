@@ -163,6 +163,11 @@ public class TvShowTreeModel implements TreeModel {
    */
   private void addTvShow(TvShow tvShow) {
     synchronized (root) {
+      // the events are delivered asynchronously - the TV show may have been added already
+      if (nodeMap.get(tvShow) != null) {
+        return;
+      }
+
       DefaultMutableTreeNode tvShowNode = new TvShowTreeNode(tvShow);
       root.add(tvShowNode);
       nodeMap.put(tvShow, tvShowNode);
@@ -300,6 +305,11 @@ public class TvShowTreeModel implements TreeModel {
    */
   private void addTvShowEpisode(TvShowEpisode episode, TvShowSeason season) {
     synchronized (root) {
+      // the events are delivered asynchronously - the episode may have been added along with its TV show already
+      if (nodeMap.get(episode) != null) {
+        return;
+      }
+
       // get the tv show season node
       TvShowSeasonTreeNode parent = (TvShowSeasonTreeNode) nodeMap.get(season);
       // no parent (season) here - recreate it
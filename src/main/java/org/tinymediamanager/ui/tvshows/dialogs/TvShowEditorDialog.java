@@ -793,7 +793,7 @@ public class TvShowEditorDialog extends TmmDialog {
         }
       }
       for (String id : removeIds) {
-        tvShowToEdit.getIds().remove(id);
+        tvShowToEdit.removeId(id);
       }
       // tvShowToEdit.setImdbId(tfImdbId.getText());
       //
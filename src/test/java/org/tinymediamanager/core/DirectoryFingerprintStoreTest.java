@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.h2.mvstore.MVStore;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+/**
+ * @author Manuel Laggner
+ */
+public class DirectoryFingerprintStoreTest extends BasicTest {
+
+  @Test
+  public void testFingerprints() throws Exception {
+    deleteSettingsFolder();
+    Path datasource = Paths.get(getSettingsFolder(), "movies");
+    Path movieDir = datasource.resolve("Movie (2017)");
+    Path extrasDir = movieDir.resolve("extras");
+    Files.createDirectories(extrasDir);
+    Files.write(movieDir.resolve("movie.avi"), new byte[100]);
+    Files.write(extrasDir.resolve("extra.avi"), new byte[10]);
+
+    MVStore mvStore = new MVStore.Builder().open(); // in memory
+    DirectoryFingerprintStore store = new DirectoryFingerprintStore(mvStore.<String, String> openMap("directoryFingerprints"));
+    assertEqual(false, store.isUnchanged(movieDir));
+
+    store.replace(movieDir, walk(movieDir, extrasDir));
+    assertEqual(2, store.size());
+    assertEqual(true, store.isUnchanged(movieDir));
+
+    // a changed file size in the folder itself
+    Files.write(movieDir.resolve("movie.avi"), new byte[200]);
+    assertEqual(false, store.isUnchanged(movieDir));
+    store.replace(movieDir, walk(movieDir, extrasDir));
+    assertEqual(true, store.isUnchanged(movieDir));
+
+    // a changed sub folder
+    Files.setLastModifiedTime(extrasDir, FileTime.fromMillis(Files.getLastModifiedTime(extrasDir).toMillis() - 10000));
+    assertEqual(false, store.isUnchanged(movieDir));
+    store.replace(movieDir, walk(movieDir, extrasDir));
+    assertEqual(true, store.isUnchanged(movieDir));
+
+    // a changed file in a sub folder (without touching the modification time of the sub folder)
+    FileTime extrasModified = Files.getLastModifiedTime(extrasDir);
+    Files.write(extrasDir.resolve("extra.avi"), new byte[20]);
+    Files.setLastModifiedTime(extrasDir, extrasModified);
+    assertEqual(false, store.isUnchanged(movieDir));
+    store.replace(movieDir, walk(movieDir, extrasDir));
+    assertEqual(true, store.isUnchanged(movieDir));
+
+    // the listings are taken from the provider: every folder is listed only once and no other file system calls are made
+    final AtomicLong fsCalls = new AtomicLong(0);
+    DirectoryFingerprintStore.ListingProvider provider = new DirectoryFingerprintStore.ListingProvider() {
+      private final Map<Path, DirectoryListing> listings = new HashMap<>();
+
+      @Override
+      public DirectoryListing getListing(Path folder) throws IOException {
+        folder = folder.toAbsolutePath().normalize();
+        if (!listings.containsKey(folder)) {
+          listings.put(folder, DirectoryListing.list(folder, fsCalls));
+        }
+        return listings.get(folder);
+      }
+    };
+    DirectoryFingerprint current = DirectoryFingerprint.of(Files.readAttributes(movieDir, BasicFileAttributes.class), provider.getListing(movieDir));
+    assertEqual(true, store.isUnchanged(movieDir, current, provider));
+    assertEqual(true, store.isUnchanged(movieDir, current, provider));
+    // the movie folder (listing + 2 entries) and the extras (listing + 1 entry)
+    assertEqual(5L, fsCalls.get());
+
+    // removed movies invalidate the folder
+    store.invalidate(extrasDir);
+    assertEqual(false, store.isUnchanged(movieDir));
+    assertEqual(0, store.size());
+
+    // removed folders
+    store.replace(movieDir, walk(movieDir, extrasDir));
+    store.retain(datasource, Collections.<Path> emptyList());
+    assertEqual(0, store.size());
+
+    mvStore.close();
+  }
+
+  private Map<Path, DirectoryFingerprint> walk(Path... dirs) throws Exception {
+    Map<Path, DirectoryFingerprint> fingerprints = new HashMap<>();
+    for (Path dir : dirs) {
+      fingerprints.put(dir, DirectoryFingerprint.of(dir));
+    }
+    return fingerprints;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * @author Manuel Laggner
+ */
+public class DirectoryListingTest extends BasicTest {
+
+  @Test
+  public void testListing() throws Exception {
+    deleteSettingsFolder();
+    Path movieDir = Paths.get(getSettingsFolder(), "movies", "Movie (2017)").toAbsolutePath();
+    Files.createDirectories(movieDir.resolve("extras"));
+    Files.write(movieDir.resolve("movie.avi"), new byte[100]);
+
+    AtomicLong fsCalls = new AtomicLong();
+    DirectoryListing listing = DirectoryListing.list(movieDir, fsCalls);
+    assertEqual(false, listing.hasIgnoreMarker());
+    assertEqual(2, listing.getEntries().size());
+    assertEqual(1, listing.getFiles().size());
+    assertEqual(1, listing.getDirectories().size());
+    // one call for the listing, one per entry
+    assertEqual(3L, fsCalls.get());
+
+    // size and date are taken from the listing
+    BasicFileAttributes attributes = listing.getAttributes(movieDir.resolve("movie.avi"));
+    MediaFile mf = new MediaFile(movieDir.resolve("movie.avi"), attributes);
+    assertEqual(100L, mf.getFilesize());
+    assertEqual(attributes.lastModifiedTime().toMillis(), mf.getFiledate());
+
+    // the ignore markers are detected from the listing
+    Files.write(movieDir.resolve(".tmmignore"), new byte[0]);
+    listing = DirectoryListing.list(movieDir, null);
+    assertEqual(true, listing.hasIgnoreMarker());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieActor;
+
+/**
+ * Benchmark for the JSON and binary database formats with a synthetic 50k movie database
+ *
+ * @author Manuel Laggner
+ */
+public class ITDatabaseCodecBenchmark extends BasicTest {
+  private static final int MOVIE_COUNT = 50000;
+
+  @Test
+  public void benchmarkJson() throws Exception {
+    benchmark(false);
+  }
+
+  @Test
+  public void benchmarkBinary() throws Exception {
+    benchmark(true);
+  }
+
+  private void benchmark(boolean binary) throws Exception {
+    Path folder = Paths.get(getSettingsFolder());
+    Files.createDirectories(folder);
+    Path db = folder.resolve(binary ? "movies_binary.db" : "movies_json.db");
+    Utils.deleteFileSafely(db);
+
+    EntityCodec<Movie> codec = new EntityCodec<>(Movie.class, binary);
+    List<Movie> movies = createMovies();
+
+    // persist
+    MVStore mvStore = new MVStore.Builder().fileName(db.toString()).compressHigh().open();
+    MVMap<UUID, Object> movieMap = mvStore.openMap("movies");
+    long start = System.currentTimeMillis();
+    for (Movie movie : movies) {
+      Object newValue = codec.encode(movie);
+      Object oldValue = movieMap.get(movie.getDbId());
+      if (!codec.isEqual(newValue, oldValue)) {
+        movieMap.put(movie.getDbId(), newValue);
+      }
+    }
+    mvStore.commit();
+    long persistTime = System.currentTimeMillis() - start;
+    mvStore.close();
+
+    // load
+    mvStore = new MVStore.Builder().fileName(db.toString()).compressHigh().open();
+    movieMap = mvStore.openMap("movies");
+    start = System.currentTimeMillis();
+    List<Movie> loaded = new ParallelEntityLoader<>(codec, "movie").load(movieMap);
+    long loadTime = System.currentTimeMillis() - start;
+    mvStore.close();
+
+    assertEqual(MOVIE_COUNT, loaded.size());
+
+    System.out.println((binary ? "binary" : "JSON") + ": persist " + persistTime + " ms, load " + loadTime + " ms, size " + Files.size(db) / 1024
+        + " KiB");
+  }
+
+  private List<Movie> createMovies() {
+    List<Movie> movies = new ArrayList<>(MOVIE_COUNT);
+    for (int i = 0; i < MOVIE_COUNT; i++) {
+      Movie movie = new Movie();
+      movie.setDbId(UUID.randomUUID());
+      movie.setTitle("Movie " + i);
+      movie.setOriginalTitle("Original Movie " + i);
+      movie.setYear(Integer.toString(1950 + i % 70));
+      movie.setImdbId(String.format("tt%07d", i));
+      movie.setTmdbId(i);
+      movie.setPlot("Lorem ipsum dolor sit amet, consectetur adipiscing elit. Praesent vel lacus libero. Ut vel lacus erat. " + i);
+      movie.setPath("/media/movies/Movie " + i);
+      for (int j = 0; j < 10; j++) {
+        movie.addActor(new MovieActor("Actor " + j, "Character " + j));
+      }
+      MediaFile mf = new MediaFile(Paths.get("/media/movies/Movie " + i, "Movie " + i + ".mkv"));
+      mf.setContainerFormat("mkv");
+      mf.setVideoCodec("h264");
+      mf.setVideoWidth(1920);
+      mf.setVideoHeight(1080);
+      movie.addToMediaFiles(mf);
+      movies.add(movie);
+    }
+    return movies;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.imgscalr.Scalr;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+/**
+ * Benchmark for the full and the subsampled decoding of artwork (4K fanart as JPG, poster as PNG) scaled down to the sizes of the image cache
+ *
+ * @author Manuel Laggner
+ */
+public class ITImageDecodeBenchmark extends BasicTest {
+  private static final int WARMUP     = 3;
+  private static final int ITERATIONS = 10;
+
+  @Test
+  public void benchmarkFanart() throws Exception {
+    Path fanart = createArtwork("fanart.jpg", 3840, 2160, "jpg");
+    benchmark(fanart, 1000);
+    benchmark(fanart, 300);
+  }
+
+  @Test
+  public void benchmarkPoster() throws Exception {
+    Path poster = createArtwork("poster.png", 2000, 3000, "png");
+    benchmark(poster, 350);
+  }
+
+  private void benchmark(Path file, int width) throws Exception {
+    for (int i = 0; i < WARMUP; i++) {
+      scale(ImageCache.createImage(file), width);
+      scale(ImageCache.createImage(file, width), width);
+    }
+
+    long full = 0;
+    long subsampled = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      scale(ImageCache.createImage(file), width);
+      full += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      scale(ImageCache.createImage(file, width), width);
+      subsampled += System.nanoTime() - start;
+    }
+    System.out.println(String.format("%s -> %dpx: full decode %d ms, subsampled decode %d ms (per image)", file.getFileName(), width,
+        full / ITERATIONS / 1000000, subsampled / ITERATIONS / 1000000));
+  }
+
+  private BufferedImage scale(BufferedImage image, int width) {
+    int height = image.getHeight() * width / image.getWidth();
+    return Scalr.resize(image, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, width, height);
+  }
+
+  /**
+   * create a synthetic artwork: gradients with some noise (compresses like a photo)
+   */
+  private Path createArtwork(String filename, int width, int height, String format) throws Exception {
+    Path folder = Paths.get(getSettingsFolder(), "artwork");
+    Files.createDirectories(folder);
+    Path file = folder.resolve(filename);
+
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setPaint(new GradientPaint(0, 0, Color.DARK_GRAY, width, height, Color.ORANGE));
+    g.fillRect(0, 0, width, height);
+    g.dispose();
+    Random random = new Random(42);
+    for (int i = 0; i < width * height / 10; i++) {
+      image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xFFFFFF));
+    }
+    ImageIO.write(image, format, file.toFile());
+    return file;
+  }
+}
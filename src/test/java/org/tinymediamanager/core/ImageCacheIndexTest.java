@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.h2.mvstore.MVStore;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+/**
+ * @author Manuel Laggner
+ */
+public class ImageCacheIndexTest extends BasicTest {
+
+  @Test
+  public void testMigrationAndEviction() throws Exception {
+    deleteSettingsFolder();
+    Path cacheDir = Paths.get(getSettingsFolder(), "cache", "image").toAbsolutePath();
+    Files.createDirectories(cacheDir);
+
+    // the flat layout of older versions; the files are used in the order of their modification time
+    String[] names = { "aa11.jpg", "bb22.jpg", "cc33.png" };
+    for (int i = 0; i < names.length; i++) {
+      Path file = cacheDir.resolve(names[i]);
+      Files.write(file, new byte[1000]);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - (names.length - i) * 2 * 3600000L));
+    }
+
+    ImageCacheIndex index = new ImageCacheIndex(cacheDir, new MVStore.Builder().open());
+
+    // a lookup moves the file into its subdirectory
+    Path file = index.getFile("bb22.jpg");
+    assertEqual(cacheDir.resolve("bb").resolve("bb22.jpg"), file);
+    assertEqual(true, Files.exists(file));
+    assertEqual(false, Files.exists(cacheDir.resolve("bb22.jpg")));
+
+    // the first run of the sweeper moves and indexes the remaining files
+    index.reconcile();
+    assertEqual(true, Files.exists(cacheDir.resolve("aa").resolve("aa11.jpg")));
+    assertEqual(true, Files.exists(cacheDir.resolve("cc").resolve("cc33.png")));
+    assertEqual(3, index.size());
+    assertEqual(3000L, index.getTotalSize());
+
+    // the least recently used files are removed first
+    index.accessed(index.getFile("aa11.jpg"));
+    assertEqual(1, index.evict(2000));
+    assertEqual(true, Files.exists(cacheDir.resolve("aa").resolve("aa11.jpg")));
+    assertEqual(false, Files.exists(cacheDir.resolve("bb").resolve("bb22.jpg")));
+    assertEqual(2000L, index.getTotalSize());
+
+    // files deleted outside of tmm vanish from the index
+    Files.delete(cacheDir.resolve("cc").resolve("cc33.png"));
+    index.reconcile();
+    assertEqual(1, index.size());
+    assertEqual(1000L, index.getTotalSize());
+  }
+
+  @Test
+  public void testKeys() throws Exception {
+    deleteSettingsFolder();
+    Path cacheDir = Paths.get(getSettingsFolder(), "cache", "image").toAbsolutePath();
+    Path movieDir = Paths.get(getSettingsFolder(), "movie").toAbsolutePath();
+    Files.createDirectories(cacheDir);
+    Files.createDirectories(movieDir);
+    Path poster = movieDir.resolve("poster.jpg");
+    Files.write(poster, new byte[100]);
+
+    ImageCacheIndex index = new ImageCacheIndex(cacheDir, new MVStore.Builder().open());
+    index.putKey(poster.toString(), 100, 1, "key1");
+    index.putKey(movieDir.resolve("fanart.jpg").toString(), 100, 1, "key2");
+    index.putKey(movieDir.resolveSibling("offline").resolve("poster.jpg").toString(), 100, 1, "key3");
+
+    // the keys of deleted originals are removed on lookup; an original in an unavailable folder keeps its key
+    assertEqual("key1", index.getKey(poster.toString()));
+    assertEqual(null, index.getKey(movieDir.resolve("fanart.jpg").toString()));
+    assertEqual("key3", index.getKey(movieDir.resolveSibling("offline").resolve("poster.jpg").toString()));
+
+    // renamed originals
+    index.removeKey(poster.toString());
+    assertEqual(null, index.getKey(poster.toString()));
+  }
+}
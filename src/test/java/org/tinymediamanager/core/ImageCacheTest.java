@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.ImageCacheEncoder.TransparentFormat;
+
+/**
+ * @author Manuel Laggner
+ */
+public class ImageCacheTest extends BasicTest {
+
+  @Test
+  public void testCacheImage() throws Exception {
+    deleteSettingsFolder();
+    Path folder = Paths.get(getSettingsFolder(), "images").toAbsolutePath();
+    Files.createDirectories(folder);
+    Path original = folder.resolve("movie-fanart.jpg");
+    ImageIO.write(new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB), "jpg", original.toFile());
+
+    // the size is taken from the header
+    Point size = ImageCache.getImageSize(original);
+    assertEqual(1920, size.x);
+    assertEqual(1080, size.y);
+
+    // subsampled decoding: at least the double of the target width is decoded
+    assertEqual(1, ImageCache.getSubsampling(1920, 1000));
+    assertEqual(3, ImageCache.getSubsampling(1920, 300));
+    assertEqual(640, ImageCache.createImage(original, 300).getWidth());
+
+    FileTime cachedTime = FileTime.fromMillis(System.currentTimeMillis() - 10000);
+    Files.setLastModifiedTime(original, FileTime.fromMillis(cachedTime.toMillis() - 10000));
+    Path cached = ImageCache.cacheImage(original);
+    Path recached = null;
+    try {
+      assertEqual(true, Files.exists(cached));
+      assertEqual(1000, ImageCache.getImageSize(cached).x);
+
+      // an up to date cached file is not written again
+      Files.setLastModifiedTime(cached, cachedTime);
+      assertEqual(cached, ImageCache.cacheImage(original));
+      assertEqual(cachedTime, Files.getLastModifiedTime(cached));
+
+      // a renamed original keeps its cached file
+      Path renamed = folder.resolve("renamed-fanart.jpg");
+      Files.move(original, renamed);
+      assertEqual(cached, ImageCache.getCachedFile(renamed));
+
+      // a modified original gets a new key and is cached again
+      Files.setLastModifiedTime(renamed, FileTime.fromMillis(cachedTime.toMillis() + 5000));
+      recached = ImageCache.cacheImage(renamed);
+      assertEqual(false, cached.equals(recached));
+      assertEqual(true, Files.exists(recached));
+    }
+    finally {
+      Files.deleteIfExists(cached);
+      if (recached != null) {
+        Files.deleteIfExists(recached);
+      }
+    }
+  }
+
+  @Test
+  public void testCacheKey() throws Exception {
+    deleteSettingsFolder();
+    Path folder = Paths.get(getSettingsFolder(), "images").toAbsolutePath();
+    Files.createDirectories(folder);
+    Path poster1 = folder.resolve("poster1.jpg");
+    Path poster2 = folder.resolve("poster2.jpg");
+    Files.write(poster1, new byte[] { 1, 2, 3 });
+    Files.write(poster2, new byte[] { 1, 2, 3 });
+
+    // the key does not depend on the path
+    assertEqual(ImageCache.createCacheKey(poster1, 3, 1000), ImageCache.createCacheKey(poster2, 3, 1000));
+    // but on the modification time and the content
+    assertEqual(false, ImageCache.createCacheKey(poster1, 3, 1000).equals(ImageCache.createCacheKey(poster1, 3, 2000)));
+    Files.write(poster2, new byte[] { 1, 2, 4 });
+    assertEqual(false, ImageCache.createCacheKey(poster1, 3, 1000).equals(ImageCache.createCacheKey(poster2, 3, 1000)));
+  }
+
+  @Test
+  public void testEncoder() throws Exception {
+    BufferedImage opaque = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    BufferedImage transparent = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    for (int x = 0; x < 10; x++) {
+      for (int y = 0; y < 10; y++) {
+        opaque.setRGB(x, y, 0xFF336699);
+        transparent.setRGB(x, y, x == 5 && y == 5 ? 0x00000000 : 0xFF336699);
+      }
+    }
+    assertEqual(false, ImageCacheEncoder.hasTransparentPixels(opaque));
+    assertEqual(true, ImageCacheEncoder.hasTransparentPixels(transparent));
+
+    // RGB images are written directly
+    BufferedImage rgb = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+    assertEqual(true, ImageCacheEncoder.toRgb(rgb) == rgb);
+    assertEqual(BufferedImage.TYPE_INT_RGB, ImageCacheEncoder.toRgb(opaque).getType());
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(baos)) {
+      assertEqual("jpg", ImageCacheEncoder.encode(opaque, output, TransparentFormat.WEBP));
+    }
+    baos = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(baos)) {
+      // webp only with an ImageIO plugin for webp
+      String expected = ImageIO.getImageWritersByFormatName("webp").hasNext() && ImageIO.getImageReadersByFormatName("webp").hasNext() ? "webp"
+          : "png";
+      assertEqual(expected, ImageCacheEncoder.encode(transparent, output, TransparentFormat.WEBP));
+    }
+    assertEqual(10, ImageIO.read(new ByteArrayInputStream(baos.toByteArray())).getWidth());
+
+    // images with at most 256 colors are written as png with a palette - lossless
+    BufferedImage indexed = ImageCacheEncoder.toIndexed(transparent);
+    assertEqual(BufferedImage.TYPE_BYTE_INDEXED, indexed.getType());
+    assertEqual(2, ((IndexColorModel) indexed.getColorModel()).getMapSize());
+    baos = new ByteArrayOutputStream();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(baos)) {
+      assertEqual("png", ImageCacheEncoder.encode(transparent, output, TransparentFormat.PNG));
+    }
+    BufferedImage png = ImageIO.read(new ByteArrayInputStream(baos.toByteArray()));
+    assertEqual(0, png.getRGB(5, 5) >>> 24);
+    assertEqual(0xFF336699, png.getRGB(0, 0));
+
+    BufferedImage colorful = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+    for (int x = 0; x < 20; x++) {
+      for (int y = 0; y < 20; y++) {
+        colorful.setRGB(x, y, 0xFF000000 | (x * 20 + y));
+      }
+    }
+    assertEqual(null, ImageCacheEncoder.toIndexed(colorful));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * @author Manuel Laggner
+ */
+public class MediaEntityIndexTest extends BasicTest {
+
+  @Test
+  public void testIndex() {
+    MediaEntityIndex<Movie> index = new MediaEntityIndex<>(Constants.IMDB, Constants.TMDB);
+
+    Movie movie = new Movie();
+    movie.setPath("/media/movies/Movie");
+    movie.setImdbId("tt0103064");
+    index.add(movie);
+
+    assertEqual(movie, index.getById(movie.getDbId()));
+    assertEqual(1, index.getByPath(Paths.get("/media/movies/Movie")).size());
+    assertEqual(1, index.getByPath(Paths.get("/media/movies/../movies/Movie")).size());
+    assertEqual(1, index.getByProviderId(Constants.IMDB, "tt0103064").size());
+    assertEqual(0, index.getByProviderId(Constants.TMDB, 280).size());
+
+    // rename and new ids are indexed immediately
+    movie.setPath("/media/movies/Movie (1991)");
+    movie.setTmdbId(280);
+    assertEqual(0, index.getByPath(Paths.get("/media/movies/Movie")).size());
+    assertEqual(1, index.getByPath(Paths.get("/media/movies/Movie (1991)")).size());
+    assertEqual(1, index.getByProviderId(Constants.TMDB, 280).size());
+
+    movie.removeId(Constants.IMDB);
+    assertEqual(0, index.getByProviderId(Constants.IMDB, "tt0103064").size());
+
+    index.remove(movie);
+    assertEqual(null, index.getById(movie.getDbId()));
+    assertEqual(0, index.getByPath(Paths.get("/media/movies/Movie (1991)")).size());
+  }
+}
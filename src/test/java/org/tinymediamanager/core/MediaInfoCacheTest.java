@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 - 2017 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.h2.mvstore.MVStore;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.thirdparty.MediaInfo.StreamKind;
+
+/**
+ * @author Manuel Laggner
+ */
+public class MediaInfoCacheTest extends BasicTest {
+
+  @Test
+  public void testCache() throws Exception {
+    MediaInfoCache cache = new MediaInfoCache(new MVStore.Builder().open()); // in memory
+
+    Map<String, String> general = new LinkedHashMap<>();
+    general.put("Format", "Matroska");
+    List<Map<String, String>> streams = new ArrayList<>();
+    streams.add(general);
+    Map<StreamKind, List<Map<String, String>>> snapshot = new EnumMap<>(StreamKind.class);
+    snapshot.put(StreamKind.General, streams);
+
+    Path folder = Paths.get(getSettingsFolder());
+    Files.createDirectories(folder);
+    Path movie = createFile(folder.resolve("movie.mkv"), "movie");
+
+    String key = MediaInfoCache.getKey(movie, 1000, 1234);
+    assertEqual(null, cache.get(key));
+    cache.put(key, snapshot);
+    assertEqual(1, cache.size());
+
+    // unchanged file: same size, date and content
+    assertEqual("Matroska", cache.get(MediaInfoCache.getKey(movie, 1000, 1234)).get(StreamKind.General).get(0).get("Format"));
+
+    // changed file
+    assertEqual(null, cache.get(MediaInfoCache.getKey(movie, 1001, 1234)));
+    assertEqual(null, cache.get(MediaInfoCache.getKey(movie, 1000, 1235)));
+
+    // a moved/renamed file keeps its result
+    Path renamed = createFile(folder.resolve("renamed.mkv"), "movie");
+    assertEqual("Matroska", cache.get(MediaInfoCache.getKey(renamed, 1000, 1234)).get(StreamKind.General).get(0).get("Format"));
+
+    // another file with the same size and date (e.g. the VOBs of a DVD)
+    Path other = createFile(folder.resolve("other.mkv"), "other");
+    assertEqual(null, cache.get(MediaInfoCache.getKey(other, 1000, 1234)));
+
+    // no fingerprint or not readable - never cached
+    assertEqual(null, MediaInfoCache.getKey(movie, 0, 1234));
+    assertEqual(null, MediaInfoCache.getKey(folder.resolve("missing.mkv"), 1000, 1234));
+    cache.put(null, snapshot);
+    assertEqual(1, cache.size());
+
+    // disc images are stored with the accumulated duration and size
+    String isoKey = MediaInfoCache.getKey(other, 5000, 1234);
+    cache.put(isoKey, snapshot, 7200, 4000);
+    assertEqual(7200, cache.getEntry(isoKey).getDuration());
+    assertEqual(4000L, cache.getEntry(isoKey).getDiscSize());
+
+    // unused entries are pruned
+    assertEqual(0, cache.prune(System.currentTimeMillis() - 60000));
+    assertEqual(2, cache.prune(System.currentTimeMillis() + 60000));
+    assertEqual(0, cache.size());
+  }
+
+  private Path createFile(Path file, String content) throws Exception {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  public void testPresetSnapshot() throws Exception {
+    // a file inside an ISO image: the snapshot is set by the ISO probe and the file itself does not exist
+    Map<String, String> general = new LinkedHashMap<>();
+    general.put("Format", "MPEG-PS");
+    general.put("Duration", "600000");
+    List<Map<String, String>> streams = new ArrayList<>();
+    streams.add(general);
+    Map<StreamKind, List<Map<String, String>>> snapshot = new EnumMap<>(StreamKind.class);
+    snapshot.put(StreamKind.General, streams);
+
+    MediaFile mf = new MediaFile(Paths.get(getSettingsFolder(), "movie.iso", "VIDEO_TS", "VTS_01_1.VOB"));
+    mf.setFilesize(1000000);
+    mf.setMiSnapshot(snapshot);
+    mf.gatherMediaInformation();
+
+    assertEqual("mpeg-ps", mf.getContainerFormat());
+    assertEqual(600, mf.getDuration());
+  }
+}
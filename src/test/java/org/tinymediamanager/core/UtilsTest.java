@@ -277,4 +277,11 @@ public class UtilsTest extends BasicTest {
     assertEqual("Test one two three", Utils.replacePlaceholders("Test {} {} {}", new String[] { "one", "two", "three" }));
     assertEqual("Test with empty spaces", Utils.replacePlaceholders("Test {} with {}{}empty spaces", new String[] {}));
   }
+
+  @Test
+  public void networkShare() {
+    assertEqual(true, Utils.isNetworkShare(Paths.get("\\\\server\\share")));
+    // the working dir is a local folder
+    assertEqual(false, Utils.isNetworkShare(Paths.get(".")));
+  }
 }
@@ -15,13 +15,25 @@
  */
 package org.tinymediamanager.core.movie;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
 import org.junit.Test;
 import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.EntityCodec;
+import org.tinymediamanager.core.EntityDetailCache;
+import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieActor;
 import org.tinymediamanager.scraper.util.ParserUtils;
 import org.tinymediamanager.scraper.util.StrgUtils;
 
@@ -48,6 +60,118 @@ public class MovieTest extends BasicTest {
     System.out.println(ParserUtils.getCleanerString("lebo_b.avi", "lebow.avi", "The Big Lebowski"));
   }
 
+  @Test
+  public void testDirtyTracking() {
+    Movie movie = new Movie();
+    assertEqual(true, movie.isDirty());
+
+    movie.clearDirty();
+    assertEqual(false, movie.isDirty());
+
+    // same value - no modification
+    movie.setTitle(movie.getTitle());
+    assertEqual(false, movie.isDirty());
+
+    movie.setTitle("Dirty Movie");
+    assertEqual(true, movie.isDirty());
+
+    // changes of nested objects
+    MediaFile mf = new MediaFile(Paths.get("/media/movies/Dirty Movie/Dirty Movie.mkv"));
+    movie.addToMediaFiles(mf);
+    movie.clearDirty();
+    Movie otherMovie = new Movie();
+    otherMovie.clearDirty();
+    mf.setVideoCodec("h264");
+    assertEqual(true, movie.isDirty());
+    // only the owning movie is modified
+    assertEqual(false, otherMovie.isDirty());
+
+    MovieActor actor = new MovieActor("Actor");
+    movie.addActor(actor);
+    movie.clearDirty();
+    actor.setCharacter("Character");
+    assertEqual(true, movie.isDirty());
+
+    // removing media files without an event
+    movie.clearDirty();
+    movie.removeAllMediaFiles(MediaFileType.VIDEO);
+    assertEqual(true, movie.isDirty());
+
+    // modifications while persisting keep the movie dirty
+    long modifications = movie.getModificationCount();
+    movie.setTitle("Modified while persisting");
+    movie.clearDirty(modifications);
+    assertEqual(true, movie.isDirty());
+    movie.clearDirty(movie.getModificationCount());
+    assertEqual(false, movie.isDirty());
+  }
+
+  @Test
+  public void testDetailCache() throws Exception {
+    MVStore mvStore = new MVStore.Builder().open(); // in memory
+    MVMap<UUID, Object> movieMap = mvStore.openMap("movies");
+    EntityCodec<Movie> codec = new EntityCodec<>(Movie.class, false);
+
+    List<Movie> movies = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Movie movie = new Movie();
+      movie.setTitle("Movie " + i);
+      movie.setYear("2017");
+      movie.setPlot("Plot " + i);
+      movie.addActor(new MovieActor("Actor " + i, "Character " + i));
+      movieMap.put(movie.getDbId(), codec.encode(movie));
+      movie.clearDirty();
+      movies.add(movie);
+    }
+
+    EntityDetailCache<Movie> cache = new EntityDetailCache<>(movieMap, codec, 2);
+    cache.releaseAll(movies);
+    assertEqual(false, movies.get(0).isDetailsLoaded());
+    // the summary is still available
+    assertEqual(true, movies.get(0).getHasMetadata());
+
+    // load on demand
+    assertEqual("Plot 0", movies.get(0).getPlot());
+    assertEqual(1, movies.get(0).getActors().size());
+    assertEqual(true, movies.get(0).isDetailsLoaded());
+    assertEqual("Plot 1", movies.get(1).getPlot());
+
+    // the least recently used one releases its details again
+    assertEqual("Plot 2", movies.get(2).getPlot());
+    assertEqual(false, movies.get(0).isDetailsLoaded());
+    assertEqual(2, cache.getLoadedCount());
+
+    // a modified movie keeps its details
+    movies.get(1).setPlot("new plot");
+    movies.get(0).getPlot();
+    movies.get(2).getPlot();
+    assertEqual(true, movies.get(1).isDetailsLoaded());
+    assertEqual("new plot", movies.get(1).getPlot());
+
+    // a modification pins the details even if it does not change a value
+    movies.get(2).clearDirty();
+    movies.get(2).setTagline(movies.get(2).getTagline());
+    assertEqual(true, movies.get(2).isDirty());
+    movies.get(1).clearDirty();
+    cache.releaseAll(Collections.singletonList(movies.get(1)));
+    movies.get(1).getPlot();
+    assertEqual(true, movies.get(2).isDetailsLoaded());
+
+    // details which are being read are not released
+    movies.get(0).pinDetails();
+    movies.get(1).getPlot();
+    movies.get(2).getPlot();
+    assertEqual(true, movies.get(0).isDetailsLoaded());
+    movies.get(0).unpinDetails();
+
+    // an unpinned movie is tracked again on the next access
+    movies.get(0).getPlot();
+    assertEqual(false, movies.get(1).isDetailsLoaded());
+    assertEqual(2, cache.getLoadedCount());
+
+    mvStore.close();
+  }
+
   @Test
   public void testCleanStackingMarkers() {
     System.out.println(Utils.cleanStackingMarkers("Movie Name (2013)-cd1.mkv"));